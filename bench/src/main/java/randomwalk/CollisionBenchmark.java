@@ -0,0 +1,151 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        CollisionBenchmark.java
+ * @Description Benchmarks collision detection between moves and dormant walkers
+ */
+
+package randomwalk;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Shape;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks collision detection between moves and dormant walkers
+ *
+ * Each operation tests one random move against every dormant walker, through
+ * the grid index, a brute force distance test, or the Shape.intersect test
+ * the pane used before the grid index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private static final int SEGMENTS = 4096; // number of precomputed moves, power of two
+
+    @Param({ "10", "1000", "100000" })
+    public int dormant; // number of dormant walkers
+
+    @Param({ "200", "1000" })
+    public int size; // width and height of walk area
+
+    private CollisionGrid grid; // grid index of dormant walkers
+    private double[] cx; // x-coordinates of dormant walkers
+    private double[] cy; // y-coordinates of dormant walkers
+    private Circle[] circles; // dormant walkers as shapes
+    private double[] segments; // x0, y0, x1, y1 of precomputed moves
+    private int next = 0; // next precomputed move
+
+    /**
+     * Places dormant walkers and precomputes moves
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        Random generator = new Random(42);
+        double r = RandomWalkEngine.DORMANT_RADIUS;
+        grid = new CollisionGrid(size, size, 20, dormant);
+        cx = new double[dormant];
+        cy = new double[dormant];
+        circles = new Circle[dormant];
+        for (int i = 0; i < dormant; i++) {
+            cx[i] = generator.nextDouble() * size;
+            cy[i] = generator.nextDouble() * size;
+            grid.insert(i, cx[i], cy[i], r);
+            circles[i] = new Circle(cx[i], cy[i], r);
+            circles[i].setStroke(javafx.scene.paint.Color.BLACK);
+        }
+
+        segments = new double[SEGMENTS * 4];
+        for (int k = 0; k < SEGMENTS; k++) {
+            double length = (generator.nextInt(RandomWalkEngine.MAX_STEP_COUNT) + 1) * RandomWalkEngine.STEP_SIZE;
+            double angle = generator.nextInt(8) * Math.PI / 4;
+            double x0 = generator.nextDouble() * size;
+            double y0 = generator.nextDouble() * size;
+            segments[k * 4] = x0;
+            segments[k * 4 + 1] = y0;
+            segments[k * 4 + 2] = x0 + Math.cos(angle) * length;
+            segments[k * 4 + 3] = y0 + Math.sin(angle) * length;
+        }
+    }
+
+    /**
+     * Tests a move through the grid index
+     *
+     * @return number of dormant walkers touched
+     */
+    @Benchmark
+    public int grid() {
+        int k = nextSegment();
+        return grid.query(segments[k], segments[k + 1], segments[k + 2], segments[k + 3],
+                RandomWalkEngine.COLLISION_MARGIN);
+    }
+
+    /**
+     * Tests a move against every dormant walker with the exact distance test
+     *
+     * @return number of dormant walkers touched
+     */
+    @Benchmark
+    public int bruteForce() {
+        int k = nextSegment();
+        double r = RandomWalkEngine.DORMANT_RADIUS + RandomWalkEngine.COLLISION_MARGIN;
+        int hits = 0;
+        for (int i = 0; i < dormant; i++) {
+            if (CollisionGrid.segmentIntersectsCircle(segments[k], segments[k + 1], segments[k + 2],
+                    segments[k + 3], cx[i], cy[i], r)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Tests a move against every dormant walker with Shape.intersect
+     *
+     * @return number of dormant walkers touched
+     */
+    @Benchmark
+    public int shapeIntersect() {
+        int k = nextSegment();
+        Line line = new Line(segments[k], segments[k + 1], segments[k + 2], segments[k + 3]);
+        int hits = 0;
+        for (int i = 0; i < dormant; i++) {
+            if (Shape.intersect(circles[i], line).getBoundsInLocal().getWidth() >= 0) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the offset of the next precomputed move
+     *
+     * @return offset into segments
+     */
+    private int nextSegment() {
+        next = (next + 1) & (SEGMENTS - 1);
+        return next * 4;
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        RenderBenchmark.java
+ * @Description Benchmarks trail recording and replay throughput
+ */
+
+package randomwalk;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks trail recording and replay throughput
+ *
+ * Measures the part of trail rendering that runs on every move, appending a
+ * segment to the trail buffer, and the pass over the buffer that redraws the
+ * canvas. Canvas drawing itself needs a running JavaFX toolkit and is left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ "0", "10000", "1000000" })
+    public int capacity; // trail capacity, 0 for unbounded
+
+    private TrailBuffer buffer; // buffer under test
+    private final Random generator = new Random(42); // source of segment coordinates
+    private double x = 500; // current x-coordinate
+    private double y = 500; // current y-coordinate
+
+    /**
+     * Creates a buffer filled with a walk
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        buffer = new TrailBuffer(capacity);
+        for (int k = 0; k < 100_000; k++) {
+            addSegment();
+        }
+    }
+
+    /**
+     * Appends one segment
+     *
+     * @return number of segments stored
+     */
+    @Benchmark
+    public int append() {
+        addSegment();
+        return buffer.size();
+    }
+
+    /**
+     * Reads every stored segment, as a canvas redraw does
+     *
+     * @return sum of coordinates
+     */
+    @Benchmark
+    public double replay() {
+        double sum = 0;
+        for (int k = 0; k < buffer.size(); k++) {
+            sum += buffer.getX0(k) + buffer.getY0(k) + buffer.getX1(k) + buffer.getY1(k) + buffer.getColor(k);
+        }
+        return sum;
+    }
+
+    /**
+     * Appends a random move to the buffer
+     */
+    private void addSegment() {
+        double length = (generator.nextInt(RandomWalkEngine.MAX_STEP_COUNT) + 1) * RandomWalkEngine.STEP_SIZE;
+        double nextX = x + (generator.nextInt(3) - 1) * length;
+        double nextY = y + (generator.nextInt(3) - 1) * length;
+        buffer.add(x, y, nextX, nextY, 0);
+        x = nextX;
+        y = nextY;
+    }
+
+}
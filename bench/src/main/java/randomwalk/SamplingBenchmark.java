@@ -0,0 +1,76 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SamplingBenchmark.java
+ * @Description Benchmarks direction and step length sampling
+ */
+
+package randomwalk;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks direction and step length sampling
+ *
+ * Moves a single walker, either from the center of the walk area or from a
+ * corner where most moves would leave it, so the cost of drawing a legal
+ * move can be compared between boundary policies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplingBenchmark {
+
+    @Param({ "center", "corner" })
+    public String placement; // starting position of walker
+
+    @Param({ "200", "1000" })
+    public int size; // width and height of walk area
+
+    @Param({ "RESTRICT", "REFLECT", "WRAP", "ABSORB" })
+    public BoundaryPolicy policy; // edge handling for walkers
+
+    private RandomWalkEngine engine; // engine under test
+    private double position; // starting x- and y-coordinate of walker
+
+    /**
+     * Creates the engine
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        double r = RandomWalkEngine.MAIN_RADIUS;
+        position = placement.equals("center") ? size / 2.0 : r;
+        engine = new RandomWalkEngine(1, size, size);
+        engine.setPolicy(policy);
+        engine.activate(engine.addWalker(position, position, r));
+    }
+
+    /**
+     * Draws and applies one move from the starting position
+     *
+     * @return x-coordinate after the move
+     */
+    @Benchmark
+    public double move() {
+        engine.setPosition(0, position, position);
+        engine.step(0);
+        return engine.getX(0);
+    }
+
+}
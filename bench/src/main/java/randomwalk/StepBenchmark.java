@@ -0,0 +1,118 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        StepBenchmark.java
+ * @Description Benchmarks the engine step kernel
+ */
+
+package randomwalk;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the engine step kernel
+ *
+ * Every walker is active and there are no dormant walkers, so a tick measures
+ * only moving walkers. The steps counter reports walker moves per second.
+ * The forked JVM loads the Vector API so vectorized moves can be compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class StepBenchmark {
+
+    @Param({ "1", "100", "10000", "100000" })
+    public int walkers; // number of active walkers
+
+    @Param({ "200", "1000" })
+    public int size; // width and height of walk area
+
+    @Param({ "RESTRICT", "REFLECT", "WRAP" })
+    public BoundaryPolicy policy; // edge handling for walkers
+
+    @Param({ "false", "true" })
+    public boolean vectorized; // whether to move lanes of walkers at once
+
+    private RandomWalkEngine engine; // engine under test
+
+    /**
+     * Counts walker moves
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+
+        public long steps; // walker moves
+
+        /**
+         * Clears the counters before each iteration
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            steps = 0;
+        }
+
+    }
+
+    /**
+     * Creates the engine
+     */
+    @Setup(Level.Iteration)
+    public void setup() {
+        engine = createEngine();
+    }
+
+    /**
+     * Advances every walker by one move, starting over once all are finished
+     *
+     * @param counters move counter
+     * @return number of walkers that moved
+     */
+    @Benchmark
+    public int step(Counters counters) {
+        int moved = engine.step();
+        if (moved == 0) {
+            engine = createEngine();
+        }
+        counters.steps += moved;
+        return moved;
+    }
+
+    /**
+     * Creates an engine with every walker active, spread over the walk area
+     *
+     * @return engine
+     */
+    private RandomWalkEngine createEngine() {
+        Random generator = new Random(42);
+        RandomWalkEngine engine = new RandomWalkEngine(walkers, size, size);
+        engine.setPolicy(policy);
+        engine.setVectorized(vectorized);
+        for (int i = 0; i < walkers; i++) {
+            double r = RandomWalkEngine.MAIN_RADIUS;
+            int id = engine.addWalker(r + generator.nextDouble() * (size - 2 * r),
+                    r + generator.nextDouble() * (size - 2 * r), r);
+            engine.activate(id);
+        }
+        return engine;
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        AliasTable.java
+ * @Description Constant-time sampler of a discrete distribution
+ */
+
+/**
+ * Constant-time sampler of a discrete distribution
+ *
+ * Built once with Vose's alias method, after which every draw takes a single
+ * random long and two array reads, whatever the number of outcomes, and
+ * allocates nothing. Draws use the same split of the random long as
+ * MoveSumSampler: the upper half picks a slot and the lower half accepts it
+ * or takes its alias. With equal weights every slot is always accepted, so a
+ * draw equals SplitMix64.boundedInt() on the same random long.
+ */
+public class AliasTable {
+
+    // Data fields
+
+    private final double[] probability; // chance of keeping each slot's own outcome
+    private final int[] alias; // outcome of each slot when not kept
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param weights relative weight of each outcome, non-negative and not all 0
+     */
+    AliasTable(double[] weights) {
+        probability = new double[weights.length];
+        alias = new int[weights.length];
+        build(weights, probability, alias, 0);
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the number of outcomes
+     *
+     * @return number of outcomes
+     */
+    public int size() {
+        return probability.length;
+    }
+
+    // Other methods
+
+    /**
+     * Builds the alias table of a distribution with Vose's method into a
+     * range of slots, for samplers that pack several tables into one array
+     *
+     * @param weights     relative weight of each outcome, non-negative and not all 0
+     * @param probability chance of keeping each slot's own outcome, filled from offset on
+     * @param alias       outcome of each slot when not kept, from 0, filled from offset on
+     * @param offset      first slot of the table
+     */
+    static void build(double[] weights, double[] probability, int[] alias, int offset) {
+        int size = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative");
+            }
+            total += weight;
+        }
+        if (size == 0 || total <= 0) {
+            throw new IllegalArgumentException("Weights must not all be 0");
+        }
+
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int k = 0; k < size; k++) {
+            scaled[k] = weights[k] * size / total;
+            if (scaled[k] < 1) {
+                small[smallCount++] = k;
+            } else {
+                large[largeCount++] = k;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[offset + less] = scaled[less];
+            alias[offset + less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // leftovers are 1 up to rounding
+        while (largeCount > 0) {
+            int k = large[--largeCount];
+            probability[offset + k] = 1;
+            alias[offset + k] = k;
+        }
+        while (smallCount > 0) {
+            int k = small[--smallCount];
+            probability[offset + k] = 1;
+            alias[offset + k] = k;
+        }
+    }
+
+    /**
+     * Draws an outcome
+     *
+     * @param random random long, the upper half picks a slot and the lower half accepts it
+     * @return outcome, from 0 to size() - 1
+     */
+    public int sample(long random) {
+        int slot = SplitMix64.boundedInt(random, probability.length);
+        double coin = (random & 0xffffffffL) * 0x1.0p-32;
+        return coin < probability[slot] ? slot : alias[slot];
+    }
+
+}
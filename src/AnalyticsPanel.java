@@ -0,0 +1,222 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        AnalyticsPanel.java
+ * @Description Side panel of live charts of a running walk
+ */
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Side panel of live charts of a running walk
+ *
+ * Shows the mean squared displacement over time, a histogram of
+ * displacements, the total steps of each walker and the activation timeline
+ * from WalkAnalytics. The panel checks for new statistics once per frame and
+ * redraws only when there are some, and each chart is a single canvas redrawn
+ * in place from reused coordinate arrays, so a refresh adds no scene nodes
+ * however many points are plotted.
+ */
+public class AnalyticsPanel extends VBox {
+
+    // Constants
+
+    public static final double CHART_WIDTH = 260; // width of a chart in pixels
+    public static final double CHART_HEIGHT = 150; // height of a chart in pixels
+    private static final double MARGIN = 16; // pixels above and below the plot area for labels
+    private static final double PADDING = 6; // pixels left and right of the plot area
+    private static final Color BACKGROUND = Color.gray(0.97); // fill behind each chart
+    private static final Color AXIS = Color.gray(0.6); // color of axes
+    private static final Color TEXT = Color.gray(0.2); // color of labels
+    private static final Font FONT = Font.font("Monospaced", 10); // font of labels
+
+    // Data fields
+
+    private final WalkAnalytics analytics; // source of statistics
+    private final AnimationTimer poller; // checks for new statistics each frame
+    private final Canvas msdChart = new Canvas(CHART_WIDTH, CHART_HEIGHT); // mean squared displacement over time
+    private final Canvas histogramChart = new Canvas(CHART_WIDTH, CHART_HEIGHT); // displacement histogram
+    private final Canvas stepsChart = new Canvas(CHART_WIDTH, CHART_HEIGHT); // total steps per walker
+    private final Canvas timelineChart = new Canvas(CHART_WIDTH, CHART_HEIGHT); // activations over time
+    private final double[] pointsX = new double[Math.max(WalkStatistics.HISTORY, WalkStatistics.TIMELINE)
+            * 2]; // x-coordinates of a polyline
+    private final double[] pointsY = new double[pointsX.length]; // y-coordinates of a polyline
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor, charts start out empty and follow the statistics
+     * while the panel is visible
+     *
+     * @param analytics source of statistics
+     */
+    AnalyticsPanel(WalkAnalytics analytics) {
+        this.analytics = analytics;
+        setSpacing(8);
+        setPadding(new Insets(20, 20, 20, 0));
+        getChildren().addAll(msdChart, histogramChart, stepsChart, timelineChart);
+        clear();
+
+        poller = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (isVisible() && analytics.update()) {
+                    refresh(analytics.getStatistics());
+                }
+            }
+        };
+        poller.start();
+    }
+
+    // Other methods
+
+    /**
+     * Clears every chart
+     */
+    public void clear() {
+        frame(msdChart.getGraphicsContext2D(), "Mean squared displacement", "", "");
+        frame(histogramChart.getGraphicsContext2D(), "Displacement", "", "");
+        frame(stepsChart.getGraphicsContext2D(), "Total steps per walker", "", "");
+        frame(timelineChart.getGraphicsContext2D(), "Activations", "", "");
+    }
+
+    /**
+     * Redraws every chart from a set of statistics
+     *
+     * @param s statistics to show
+     */
+    public void refresh(WalkStatistics s) {
+        drawLine(msdChart, "Mean squared displacement", s.msdTicks, s.msd, s.msdCount, false,
+                "tick " + (s.msdCount > 0 ? (long) s.msdTicks[s.msdCount - 1] : 0));
+        drawBars(histogramChart, "Displacement", s.histogram, WalkStatistics.HISTOGRAM_BINS,
+                String.format("0 - %.0f", s.binWidth * WalkStatistics.HISTOGRAM_BINS));
+        drawBars(stepsChart, s.walkersPerBar == 1 ? "Total steps per walker"
+                : "Total steps per " + s.walkersPerBar + " walkers", s.stepBars, s.barCount,
+                s.walkers + " active");
+        drawLine(timelineChart, "Activations", s.timelineTicks, s.timelineCounts, s.timelineCount, true,
+                "tick " + s.tick);
+    }
+
+    /**
+     * Draws a line chart, its x-axis from 0 to the last x-value and its y-axis
+     * from 0 to the largest y-value
+     *
+     * @param chart  canvas of chart
+     * @param title  title of chart
+     * @param xs     x-values in increasing order
+     * @param ys     y-values
+     * @param n      number of points
+     * @param steps  whether to hold each value until the next point instead of joining them
+     * @param xLabel label of the x-axis
+     */
+    private void drawLine(Canvas chart, String title, double[] xs, double[] ys, int n, boolean steps,
+            String xLabel) {
+        double top = 0;
+        for (int k = 0; k < n; k++) {
+            top = Math.max(top, ys[k]);
+        }
+        GraphicsContext gc = chart.getGraphicsContext2D();
+        frame(gc, title, format(top), xLabel);
+        if (n == 0 || top == 0) {
+            return;
+        }
+        double right = Math.max(xs[n - 1], 1);
+        double width = CHART_WIDTH - 2 * PADDING;
+        double height = CHART_HEIGHT - 2 * MARGIN;
+        int points = 0;
+        for (int k = 0; k < n; k++) {
+            double x = PADDING + xs[k] / right * width;
+            double y = CHART_HEIGHT - MARGIN - ys[k] / top * height;
+            if (steps && points > 0) {
+                pointsX[points] = x;
+                pointsY[points] = pointsY[points - 1];
+                points++;
+            }
+            pointsX[points] = x;
+            pointsY[points++] = y;
+        }
+        gc.setStroke(Color.BLUE);
+        gc.setLineWidth(1.5);
+        gc.strokePolyline(pointsX, pointsY, points);
+    }
+
+    /**
+     * Draws a bar chart, its y-axis from 0 to the largest value
+     *
+     * @param chart  canvas of chart
+     * @param title  title of chart
+     * @param values height of each bar
+     * @param n      number of bars
+     * @param xLabel label of the x-axis
+     */
+    private void drawBars(Canvas chart, String title, double[] values, int n, String xLabel) {
+        double top = 0;
+        for (int k = 0; k < n; k++) {
+            top = Math.max(top, values[k]);
+        }
+        GraphicsContext gc = chart.getGraphicsContext2D();
+        frame(gc, title, format(top), xLabel);
+        if (n == 0 || top == 0) {
+            return;
+        }
+        double slot = (CHART_WIDTH - 2 * PADDING) / n;
+        double height = CHART_HEIGHT - 2 * MARGIN;
+        gc.setFill(Color.RED);
+        for (int k = 0; k < n; k++) {
+            double bar = values[k] / top * height;
+            gc.fillRect(PADDING + k * slot, CHART_HEIGHT - MARGIN - bar, Math.max(slot - 1, 1), bar);
+        }
+    }
+
+    /**
+     * Clears a chart and draws its background, axes and labels
+     *
+     * @param gc     graphics context of chart
+     * @param title  title, top left
+     * @param yLabel largest y-value, top right
+     * @param xLabel label of the x-axis, bottom right
+     */
+    private static void frame(GraphicsContext gc, String title, String yLabel, String xLabel) {
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, CHART_WIDTH, CHART_HEIGHT);
+        gc.setStroke(AXIS);
+        gc.setLineWidth(1);
+        gc.strokeLine(PADDING, CHART_HEIGHT - MARGIN + 0.5, CHART_WIDTH - PADDING, CHART_HEIGHT - MARGIN + 0.5);
+
+        gc.setFill(TEXT);
+        gc.setFont(FONT);
+        gc.setTextBaseline(VPos.TOP);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText(title, PADDING, 2);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.fillText(yLabel, CHART_WIDTH - PADDING, 2);
+        gc.setTextBaseline(VPos.BOTTOM);
+        gc.fillText(xLabel, CHART_WIDTH - PADDING, CHART_HEIGHT - 2);
+    }
+
+    /**
+     * Formats the largest value of a chart
+     *
+     * @param value value
+     * @return value, abbreviated if large
+     */
+    private static String format(double value) {
+        if (value >= 1e9) {
+            return String.format("%.1fG", value / 1e9);
+        } else if (value >= 1e6) {
+            return String.format("%.1fM", value / 1e6);
+        } else if (value >= 1e4) {
+            return String.format("%.1fk", value / 1e3);
+        }
+        return String.format("%.0f", value);
+    }
+
+}
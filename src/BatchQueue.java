@@ -0,0 +1,106 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        BatchQueue.java
+ * @Description Lock-free queue of reusable batches between two threads
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free queue of reusable batches between two threads
+ *
+ * A ring of batches allocated up front. The producer fills the batch at the
+ * tail and publishes it by moving the tail on, the consumer reads batches
+ * from the head and releases each by moving the head on, which hands it back
+ * to the producer to fill again. Each side only ever writes its own counter,
+ * so neither takes a lock or waits for the other, and nothing is allocated
+ * after construction. Unlike SnapshotExchange no batch is ever dropped: when
+ * the consumer falls behind, publish() fails and the producer keeps adding to
+ * the batch it has.
+ *
+ * Only one thread may produce and one thread may consume.
+ *
+ * @param <T> batch type
+ */
+public class BatchQueue<T> {
+
+    // Data fields
+
+    private final Object[] batches; // ring of batches
+    private final AtomicLong head = new AtomicLong(); // batches released by the consumer
+    private final AtomicLong tail = new AtomicLong(); // batches published by the producer
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param factory  creates each batch
+     * @param capacity number of batches, one of them is always being filled
+     */
+    BatchQueue(Supplier<T> factory, int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Batch queue needs at least two batches");
+        }
+        batches = new Object[capacity];
+        for (int k = 0; k < capacity; k++) {
+            batches[k] = factory.get();
+        }
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the batch the producer fills, producer thread only, or the
+     * consumer's while the producer is known to be stopped
+     *
+     * @return batch at the tail
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) batches[(int) (tail.get() % batches.length)];
+    }
+
+    // Other methods
+
+    /**
+     * Publishes the back batch if there is a free batch to fill next,
+     * producer thread only
+     *
+     * @return true if published, false if the consumer is behind and the
+     *         back batch must keep being filled
+     */
+    public boolean publish() {
+        long t = tail.get();
+        if (t + 1 - head.get() >= batches.length) {
+            return false;
+        }
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Returns the oldest published batch, consumer thread only
+     *
+     * @return batch at the head, null if nothing is published
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        return (T) batches[(int) (h % batches.length)];
+    }
+
+    /**
+     * Releases the batch returned by peek() to be filled again, consumer
+     * thread only, the batch must be cleared first
+     */
+    public void remove() {
+        head.lazySet(head.get() + 1);
+    }
+
+}
@@ -0,0 +1,450 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        BatchRunner.java
+ * @Description Parallel Monte Carlo batch runs of the infection cascade
+ */
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel Monte Carlo batch runs of the infection cascade
+ *
+ * Runs independent replicas of the standard scenario headlessly across all
+ * cores and reports statistics on how long the main walker takes to activate
+ * the dormant walkers and how far the walk spreads. Times are in ticks, one
+ * move of every active walker per tick.
+ *
+ * Usage: java BatchRunner [runs] [width] [height] [dormant] [policy] [seed] [skip] [kernel] [vector]
+ *                         [density] [cell]
+ *        java BatchRunner fork snapshot [runs] [seed] [skip] [vector] [density] [cell]
+ *
+ * The policy must let walks end, so UNBOUNDED is rejected, as are snapshots
+ * saved under it.
+ * With skip, walkers far from edges and dormant walkers skip ahead several
+ * moves at once, which gives the same statistics much faster in sparse scenes.
+ * A kernel spec, such as levy:1.5 or gaussian:3, changes the distribution of
+ * moves from the standard 8-neighbour walk, see StepKernel.parse().
+ * With vector, moves are computed a lane of walkers at a time where the
+ * engine supports it, giving identical results, which needs the JVM to run
+ * with --add-modules jdk.incubator.vector.
+ * With fork, every replica continues the walk saved in a snapshot on streams
+ * of its own, so the statistics are conditioned on the saved state.
+ * With a density file, every move of every replica is counted in a grid of
+ * cells of the given size, 1 by default, which is written as a PNG heatmap if
+ * the name ends in .png and as raw counts otherwise, see DensityGrid.
+ */
+public class BatchRunner {
+
+    // Data fields
+
+    private final int runs; // number of replicas
+    private final double width; // width of walk area
+    private final double height; // height of walk area
+    private final int dormantCount; // number of dormant walkers
+    private final BoundaryPolicy policy; // edge handling for walkers
+    private final long seed; // master seed of the batch
+    private boolean skipAhead = false; // whether walkers skip ahead when far from anything
+    private StepKernel kernel = StepKernel.STANDARD; // distribution of moves
+    private boolean vectorized = false; // whether to move lanes of walkers at once
+    private SimulationSnapshot start = null; // state every replica continues from, null for a fresh scenario
+    private final ThreadLocal<RandomWalkEngine> engines = new ThreadLocal<RandomWalkEngine>(); // engine of each worker
+    private double densityCellSize = 0; // world units per density cell side, 0 if not counting
+    private final ThreadLocal<DensityGrid> densities = new ThreadLocal<DensityGrid>(); // grid of each worker
+    private final List<DensityGrid> workerDensities = new ArrayList<DensityGrid>(); // every worker's grid
+    private DensityGrid density = null; // visits of every replica of the last run(), a worker's grid
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param runs         number of replicas
+     * @param width        width of walk area
+     * @param height       height of walk area
+     * @param dormantCount number of dormant walkers
+     * @param policy       edge handling for walkers
+     * @param seed         master seed of the batch, each replica's seed is derived from it
+     * @throws IllegalArgumentException if the policy is UNBOUNDED, under which a replica never ends
+     */
+    BatchRunner(int runs, double width, double height, int dormantCount, BoundaryPolicy policy, long seed) {
+        if (policy == BoundaryPolicy.UNBOUNDED) {
+            throw new IllegalArgumentException("Batch runs need a policy under which walks end, not " + policy);
+        }
+        this.runs = runs;
+        this.width = width;
+        this.height = height;
+        this.dormantCount = dormantCount;
+        this.policy = policy;
+        this.seed = seed;
+    }
+
+    /**
+     * Setter for skipAhead
+     *
+     * @param skipAhead whether walkers skip ahead when far from anything
+     */
+    public void setSkipAhead(boolean skipAhead) {
+        this.skipAhead = skipAhead;
+    }
+
+    /**
+     * Setter for kernel
+     *
+     * @param kernel distribution of moves
+     */
+    public void setKernel(StepKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * Setter for vectorized
+     *
+     * @param vectorized whether to move lanes of walkers at once, see RandomWalkEngine.setVectorized()
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * Setter for densityCellSize
+     *
+     * @param cellSize world units per density cell side, 0 to not count visits
+     */
+    public void setDensityCellSize(double cellSize) {
+        densityCellSize = cellSize;
+    }
+
+    /**
+     * Getter for density
+     *
+     * @return visits of every replica of the last run(), null if not counting
+     */
+    public DensityGrid getDensity() {
+        return density;
+    }
+
+    /**
+     * Setter for start, replicas fork from the snapshot instead of starting
+     * the standard scenario
+     *
+     * @param start state every replica continues from, null for a fresh scenario
+     */
+    public void setStart(SimulationSnapshot start) {
+        this.start = start;
+    }
+
+    /**
+     * Main method
+     *
+     * @param args runs, width, height, dormant walkers, boundary policy, seed, skip, kernel, vector,
+     *             density file and cell size, or fork, snapshot, runs, seed, skip, vector, density file
+     *             and cell size
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("fork")) {
+            fork(args);
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        double width = args.length > 1 ? Double.parseDouble(args[1]) : 800;
+        double height = args.length > 2 ? Double.parseDouble(args[2]) : 600;
+        int dormant = args.length > 3 ? Integer.parseInt(args[3]) : RandomWalkEngine.DORMANT_COUNT;
+        BoundaryPolicy policy = args.length > 4 ? BoundaryPolicy.valueOf(args[4].toUpperCase())
+                : BoundaryPolicy.RESTRICT;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : ThreadLocalRandom.current().nextLong();
+
+        BatchRunner batch = new BatchRunner(runs, width, height, dormant, policy, seed);
+        batch.setSkipAhead(args.length > 6 && args[6].equalsIgnoreCase("skip"));
+        if (args.length > 7) {
+            batch.setKernel(StepKernel.parse(args[7]));
+        }
+        batch.setVectorized(args.length > 8 && args[8].equalsIgnoreCase("vector"));
+        Path densityPath = args.length > 9 ? Paths.get(args[9]) : null;
+        if (densityPath != null) {
+            batch.setDensityCellSize(args.length > 10 ? Double.parseDouble(args[10]) : 1);
+        }
+        long start = System.nanoTime();
+        List<RunResult> results = batch.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d runs of %.0fx%.0f with %d dormant walkers (%s, %s, seed %d%s%s) in %.2f s on %d cores%n",
+                runs, width, height, dormant, policy, batch.kernel, seed, batch.skipAhead ? ", skip-ahead" : "",
+                batch.vectorized ? ", vectorized" : "", seconds, Runtime.getRuntime().availableProcessors());
+        batch.report(results);
+        batch.writeDensity(densityPath);
+    }
+
+    /**
+     * Runs replicas forked from a snapshot
+     *
+     * @param args fork, snapshot, runs, seed, skip, vector, density file and cell size
+     */
+    private static void fork(String[] args) {
+        SimulationSnapshot snapshot;
+        try {
+            snapshot = SimulationSnapshot.read(Paths.get(args[1]));
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            System.out.println(e);
+            return;
+        }
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : ThreadLocalRandom.current().nextLong();
+
+        BatchRunner batch = new BatchRunner(runs, snapshot.width, snapshot.height, snapshot.count - 1,
+                snapshot.policy, seed);
+        batch.setStart(snapshot);
+        batch.setKernel(snapshot.kernel);
+        batch.setSkipAhead(args.length > 4 && args[4].equalsIgnoreCase("skip"));
+        batch.setVectorized(args.length > 5 && args[5].equalsIgnoreCase("vector"));
+        Path densityPath = args.length > 6 ? Paths.get(args[6]) : null;
+        if (densityPath != null) {
+            batch.setDensityCellSize(args.length > 7 ? Double.parseDouble(args[7]) : 1);
+        }
+        long start = System.nanoTime();
+        List<RunResult> results = batch.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d runs forked from %s at tick %d (%s, seed %d%s%s) in %.2f s on %d cores%n",
+                runs, args[1], snapshot.tick, snapshot.policy, seed, batch.skipAhead ? ", skip-ahead" : "",
+                batch.vectorized ? ", vectorized" : "", seconds, Runtime.getRuntime().availableProcessors());
+        batch.report(results);
+        batch.writeDensity(densityPath);
+    }
+
+    // Other methods
+
+    /**
+     * Runs every replica in parallel, each replica's result depends only on
+     * the batch seed and its index
+     *
+     * @return results of each replica, in replica order
+     */
+    public List<RunResult> run() {
+        workerDensities.removeIf(grid -> grid.getCellSize() != densityCellSize);
+        for (DensityGrid grid : workerDensities) {
+            grid.clear();
+        }
+        List<RunResult> results = IntStream.range(0, runs).parallel()
+                .mapToObj(run -> runOnce(SplitMix64.streamSeed(seed, run)))
+                .collect(Collectors.toList());
+
+        // each worker counted the replicas it ran, sum them into the first
+        // worker's grid rather than a copy, since grids can be very large
+        density = workerDensities.isEmpty() ? null : workerDensities.get(0);
+        for (int k = 1; k < workerDensities.size(); k++) {
+            density.add(workerDensities.get(k));
+        }
+        return results;
+    }
+
+    /**
+     * Runs a single replica until no walker can move
+     *
+     * Each worker thread keeps one engine and rewinds it for every replica it
+     * runs, so a batch allocates walker arrays once per thread.
+     *
+     * @param seed master seed of replica, or of its continuation when forking
+     * @return result of replica
+     */
+    public RunResult runOnce(long seed) {
+        RandomWalkEngine engine = engines.get();
+        double startX;
+        double startY;
+        if (start == null) {
+            if (engine == null) {
+                engine = RandomWalkEngine.createScenario(width, height, dormantCount, seed);
+            } else {
+                engine.resetScenario(width, height, dormantCount, seed);
+            }
+            startX = engine.getX(0);
+            startY = engine.getY(0);
+        } else {
+            if (engine == null) {
+                engine = new RandomWalkEngine(start, seed);
+            } else {
+                engine.restore(start, seed);
+            }
+            startX = start.originX[0];
+            startY = start.originY[0];
+        }
+        engines.set(engine);
+        engine.setPolicy(policy);
+        engine.setKernel(kernel);
+        engine.setSkipAhead(skipAhead);
+        engine.setVectorized(vectorized);
+        DensityGrid grid = densityCellSize > 0 ? density() : null;
+
+        while (engine.step() > 0 || !engine.isComplete()) {
+            // step until every active walker is finished
+            if (grid != null) {
+                grid.addTick(engine);
+            }
+        }
+
+        RunResult result = new RunResult();
+        result.activationOrder = new int[engine.getActivationCount() - 1];
+        result.activationTicks = new int[result.activationOrder.length];
+        for (int k = 1; k < engine.getActivationCount(); k++) {
+            int id = engine.getActivation(k);
+            result.activationOrder[k - 1] = id;
+            result.activationTicks[k - 1] = engine.getActivationTick(id);
+        }
+        result.ticks = engine.getTick();
+        result.mainDisplacement = Math.hypot(engine.getX(0) - startX, engine.getY(0) - startY);
+        return result;
+    }
+
+    /**
+     * Returns the density grid of the calling worker, creating it the first
+     * time the worker runs a replica
+     *
+     * @return grid the worker counts its replicas in
+     */
+    private DensityGrid density() {
+        DensityGrid grid = densities.get();
+        if (grid == null || grid.getCellSize() != densityCellSize) {
+            grid = new DensityGrid(width, height, densityCellSize);
+            densities.set(grid);
+            synchronized (workerDensities) {
+                workerDensities.add(grid);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Writes the density grid of the last run(), if visits were counted
+     *
+     * @param path PNG heatmap if the name ends in .png, raw counts otherwise, null to skip
+     */
+    private void writeDensity(Path path) {
+        if (path == null || density == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            density.write(path);
+        } catch (IOException e) {
+            System.out.println(e);
+            return;
+        }
+        System.out.printf("density of %,d cell visits in %dx%d cells of %s (max %,d) written to %s in %.2f s%n",
+                density.getTotal(), density.getColumns(), density.getRows(), density.getCellSize(),
+                density.getMax(), path, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Prints aggregate statistics of a batch
+     *
+     * @param results results of each replica
+     */
+    public void report(List<RunResult> results) {
+        int complete = 0;
+        double[] fullActivation = new double[results.size()];
+        double[] firstActivation = new double[results.size()];
+        double[] activated = new double[results.size()];
+        double[] displacement = new double[results.size()];
+        double[] ticks = new double[results.size()];
+        int firstCount = 0;
+        for (RunResult result : results) {
+            if (result.activationTicks.length == dormantCount && dormantCount > 0) {
+                fullActivation[complete++] = result.activationTicks[dormantCount - 1];
+            }
+            if (result.activationTicks.length > 0) {
+                firstActivation[firstCount++] = result.activationTicks[0];
+            }
+        }
+        for (int r = 0; r < results.size(); r++) {
+            activated[r] = results.get(r).activationTicks.length;
+            displacement[r] = results.get(r).mainDisplacement;
+            ticks[r] = results.get(r).ticks;
+        }
+
+        System.out.printf("fully activated in %d of %d runs (%.1f%%)%n", complete, results.size(),
+                100.0 * complete / Math.max(1, results.size()));
+        System.out.printf("%-28s %10s %10s %10s %10s %10s %10s%n", "", "mean", "stddev", "min", "median", "p90", "max");
+        printRow("ticks to full activation", Arrays.copyOf(fullActivation, complete));
+        printRow("ticks to first activation", Arrays.copyOf(firstActivation, firstCount));
+        printRow("walkers activated", activated);
+        printRow("main walker displacement", displacement);
+        printRow("ticks until all finished", ticks);
+
+        // mean tick of the k-th activation, over the runs that reached it
+        System.out.println("activation order, mean tick of k-th activation:");
+        for (int k = 0; k < dormantCount; k++) {
+            double sum = 0;
+            int n = 0;
+            for (RunResult result : results) {
+                if (k < result.activationTicks.length) {
+                    sum += result.activationTicks[k];
+                    n++;
+                }
+            }
+            if (n == 0) {
+                break;
+            }
+            System.out.printf("  %3d: %10.1f (%d runs)%n", k + 1, sum / n, n);
+        }
+    }
+
+    /**
+     * Prints a row of summary statistics
+     *
+     * @param label  label of row
+     * @param values sample values
+     */
+    private static void printRow(String label, double[] values) {
+        if (values.length == 0) {
+            System.out.printf("%-28s %10s%n", label, "n/a");
+            return;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double mean = 0;
+        for (double value : sorted) {
+            mean += value;
+        }
+        mean /= sorted.length;
+        double variance = 0;
+        for (double value : sorted) {
+            variance += (value - mean) * (value - mean);
+        }
+        double stddev = sorted.length > 1 ? Math.sqrt(variance / (sorted.length - 1)) : 0;
+        System.out.printf("%-28s %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", label, mean, stddev, sorted[0],
+                percentile(sorted, 0.5), percentile(sorted, 0.9), sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Returns a percentile of sorted values by nearest rank
+     *
+     * @param sorted sorted sample values
+     * @param p      percentile between 0 and 1
+     * @return percentile value
+     */
+    private static double percentile(double[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * Result of a single replica
+     */
+    static class RunResult {
+
+        int[] activationOrder; // ids of dormant walkers in order of activation
+        int[] activationTicks; // tick of each activation, in order of activation
+        int ticks; // ticks until every active walker finished
+        double mainDisplacement; // distance of main walker from its start
+
+    }
+
+}
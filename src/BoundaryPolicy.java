@@ -0,0 +1,28 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        BoundaryPolicy.java
+ * @Description Policies for walkers reaching the edge of the walk area
+ */
+
+/**
+ * Policies for walkers reaching the edge of the walk area
+ */
+public enum BoundaryPolicy {
+
+    /** Only moves that stay inside the walk area are drawn */
+    RESTRICT,
+
+    /** Moves that leave the walk area are mirrored back off the edge */
+    REFLECT,
+
+    /** Moves that leave the walk area re-enter from the opposite edge */
+    WRAP,
+
+    /** Walkers that reach the edge stop there for good */
+    ABSORB,
+
+    /** There is no edge, walkers roam the whole lattice without a step limit */
+    UNBOUNDED
+
+}
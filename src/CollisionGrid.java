@@ -0,0 +1,410 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        CollisionGrid.java
+ * @Description Uniform grid index of circles for segment collision queries
+ */
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid index of circles for segment collision queries
+ *
+ * Each circle is filed under the cell containing its center in an intrusive
+ * linked list, so insertion and removal are O(1) and a query only visits the
+ * cells along the segment. Circles are matched with an exact segment-to-circle
+ * distance test.
+ */
+public class CollisionGrid {
+
+    // Constants
+
+    private static final int SCAN_LIMIT = 64; // circles below which clearance() checks each one
+
+    // Data fields
+
+    private final double cellSize; // width and height of a cell
+    private int columns; // number of cell columns
+    private int rows; // number of cell rows
+    private int[] head; // first circle in each cell, -1 if empty, may be longer than columns times rows
+    private int[] next; // next circle in the same cell, -1 at end
+    private int[] prev; // previous circle in the same cell, -1 at start
+    private int[] cellOf; // cell of each circle, -1 if not in grid
+    private double[] cx; // x-coordinates of circle centers
+    private double[] cy; // y-coordinates of circle centers
+    private double[] radius; // radii of circles
+    private double maxRadius = 0; // largest radius inserted
+    private int size = 0; // number of circles in grid
+    private int[] members; // ids of circles in grid, densely packed
+    private int[] memberIndex; // index of each circle in members
+    private int[] hits = new int[16]; // ids of circles touched by the last query
+    private int hitCount = 0; // number of circles touched by the last query
+    private long tests = 0; // number of exact distance tests run
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param width    width of indexed area
+     * @param height   height of indexed area
+     * @param cellSize width and height of a cell
+     * @param capacity initial number of circle ids to allocate for
+     */
+    CollisionGrid(double width, double height, double cellSize, int capacity) {
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        head = new int[columns * rows];
+        Arrays.fill(head, -1);
+        capacity = Math.max(capacity, 1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        cellOf = new int[capacity];
+        Arrays.fill(cellOf, -1);
+        cx = new double[capacity];
+        cy = new double[capacity];
+        radius = new double[capacity];
+        members = new int[capacity];
+        memberIndex = new int[capacity];
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for size
+     *
+     * @return number of circles in grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cells
+     *
+     * @return columns times rows
+     */
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    /**
+     * Getter for tests
+     *
+     * @return number of exact distance tests run
+     */
+    public long getTests() {
+        return tests;
+    }
+
+    /**
+     * Returns a circle touched by the last query
+     *
+     * @param k hit index, less than the count returned by query()
+     * @return circle id
+     */
+    public int getHit(int k) {
+        return hits[k];
+    }
+
+    /**
+     * Returns whether a circle is in the grid
+     *
+     * @param id circle id
+     * @return true if circle is in the grid
+     */
+    public boolean contains(int id) {
+        return id < cellOf.length && cellOf[id] >= 0;
+    }
+
+    // Other methods
+
+    /**
+     * Inserts a circle
+     *
+     * @param id     circle id
+     * @param x      x-coordinate of center
+     * @param y      y-coordinate of center
+     * @param radius radius of circle
+     */
+    public void insert(int id, double x, double y, double radius) {
+        if (id >= cellOf.length) {
+            grow(Math.max(id + 1, cellOf.length * 2));
+        }
+        if (cellOf[id] >= 0) {
+            remove(id);
+        }
+        int cell = row(y) * columns + column(x);
+        cx[id] = x;
+        cy[id] = y;
+        this.radius[id] = radius;
+        maxRadius = Math.max(maxRadius, radius);
+        cellOf[id] = cell;
+        prev[id] = -1;
+        next[id] = head[cell];
+        if (head[cell] >= 0) {
+            prev[head[cell]] = id;
+        }
+        head[cell] = id;
+        members[size] = id;
+        memberIndex[id] = size;
+        size++;
+    }
+
+    /**
+     * Removes a circle, does nothing if it is not in the grid
+     *
+     * @param id circle id
+     */
+    public void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        int cell = cellOf[id];
+        if (prev[id] >= 0) {
+            next[prev[id]] = next[id];
+        } else {
+            head[cell] = next[id];
+        }
+        if (next[id] >= 0) {
+            prev[next[id]] = prev[id];
+        }
+        cellOf[id] = -1;
+        size--;
+        int last = members[size];
+        members[memberIndex[id]] = last;
+        memberIndex[last] = memberIndex[id];
+    }
+
+    /**
+     * Removes every circle
+     */
+    public void clear() {
+        Arrays.fill(head, -1);
+        Arrays.fill(cellOf, -1);
+        maxRadius = 0;
+        size = 0;
+    }
+
+    /**
+     * Removes every circle and fits the cells to a new area, reusing the
+     * arrays when they are large enough
+     *
+     * @param width  width of indexed area
+     * @param height height of indexed area
+     */
+    public void reset(double width, double height) {
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        if (head.length < columns * rows) {
+            head = new int[columns * rows];
+        }
+        clear();
+    }
+
+    /**
+     * Returns the circles in an order that, inserted one by one into an empty
+     * grid, rebuilds the list of every cell as it is. Queries report circles
+     * in list order, so this keeps a rebuilt grid answering exactly alike.
+     *
+     * @return circle ids, each cell's in reverse list order
+     */
+    public int[] getInsertionOrder() {
+        int[] order = new int[size];
+        int n = 0;
+        for (int cell = 0; cell < columns * rows; cell++) {
+            int first = n;
+            for (int id = head[cell]; id >= 0; id = next[id]) {
+                order[n++] = id;
+            }
+            // circles are inserted at the head, so the last one inserted comes first
+            for (int a = first, b = n - 1; a < b; a++, b--) {
+                int t = order[a];
+                order[a] = order[b];
+                order[b] = t;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Finds the circles touched by a segment, widening each circle by a margin
+     *
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param margin distance added to each radius
+     * @return number of circles touched, read them with getHit()
+     */
+    public int query(double x0, double y0, double x1, double y1, double margin) {
+        hitCount = 0;
+        if (size == 0) {
+            return 0;
+        }
+        double reach = maxRadius + margin;
+
+        // visit each column the segment crosses, and in it only the rows
+        // within reach of the part of the segment inside that column
+        double minX = Math.min(x0, x1) - reach;
+        double maxX = Math.max(x0, x1) + reach;
+        int firstColumn = column(minX);
+        int lastColumn = column(maxX);
+        for (int c = firstColumn; c <= lastColumn; c++) {
+            double low = Math.min(y0, y1);
+            double high = Math.max(y0, y1);
+            if (x0 != x1) {
+                // edge columns also hold circles clamped in from outside the grid
+                double left = c == 0 ? minX : Math.max(minX, c * cellSize) - reach;
+                double right = c == columns - 1 ? maxX : Math.min(maxX, (c + 1) * cellSize) + reach;
+                double yLeft = yAt(x0, y0, x1, y1, left);
+                double yRight = yAt(x0, y0, x1, y1, right);
+                low = Math.min(yLeft, yRight);
+                high = Math.max(yLeft, yRight);
+            }
+            int firstRow = row(low - reach);
+            int lastRow = row(high + reach);
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int id = head[r * columns + c]; id >= 0; id = next[id]) {
+                    tests++;
+                    if (segmentIntersectsCircle(x0, y0, x1, y1, cx[id], cy[id], radius[id] + margin)) {
+                        if (hitCount == hits.length) {
+                            hits = Arrays.copyOf(hits, hits.length * 2);
+                        }
+                        hits[hitCount++] = id;
+                    }
+                }
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * Returns the distance from a point to the edge of the nearest circle
+     *
+     * Few circles are checked one by one, otherwise rings of cells are
+     * searched outwards until no unvisited cell can hold a nearer circle.
+     * Does not count towards getTests() and changes no state, so it can run
+     * from several threads while the grid is not modified.
+     *
+     * @param x     x-coordinate of point
+     * @param y     y-coordinate of point
+     * @param limit distance beyond which circles do not matter
+     * @return distance to the nearest circle edge, negative inside a circle,
+     *         limit if no circle is nearer
+     */
+    public double clearance(double x, double y, double limit) {
+        double best = limit;
+        if (size <= SCAN_LIMIT) {
+            for (int k = 0; k < size; k++) {
+                int id = members[k];
+                best = Math.min(best, Math.hypot(x - cx[id], y - cy[id]) - radius[id]);
+            }
+            return best;
+        }
+
+        // cells ring cells away from the point's (clamped) cell are at least
+        // ring - 1 cells away, which projecting onto the grid cannot shorten
+        int c0 = column(x);
+        int r0 = row(y);
+        int lastRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= lastRing && (ring - 1) * cellSize - maxRadius < best; ring++) {
+            for (int r = Math.max(0, r0 - ring); r <= Math.min(rows - 1, r0 + ring); r++) {
+                boolean edgeRow = r == r0 - ring || r == r0 + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = c0 - ring; c <= c0 + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    for (int id = head[r * columns + c]; id >= 0; id = next[id]) {
+                        best = Math.min(best, Math.hypot(x - cx[id], y - cy[id]) - radius[id]);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether a segment touches a circle
+     *
+     * @param x0     starting x-coordinate of segment
+     * @param y0     starting y-coordinate of segment
+     * @param x1     ending x-coordinate of segment
+     * @param y1     ending y-coordinate of segment
+     * @param cx     x-coordinate of circle center
+     * @param cy     y-coordinate of circle center
+     * @param radius radius of circle
+     * @return true if the closest point of the segment is within the radius
+     */
+    public static boolean segmentIntersectsCircle(double x0, double y0, double x1, double y1,
+            double cx, double cy, double radius) {
+        double sx = x1 - x0;
+        double sy = y1 - y0;
+        double length2 = sx * sx + sy * sy;
+        double t = 0;
+        if (length2 > 0) {
+            t = ((cx - x0) * sx + (cy - y0) * sy) / length2;
+            t = Math.max(0, Math.min(1, t));
+        }
+        double px = x0 + t * sx - cx;
+        double py = y0 + t * sy - cy;
+        return px * px + py * py <= radius * radius;
+    }
+
+    /**
+     * Returns the y-coordinate of a non-vertical segment at an x-coordinate,
+     * clamped to the segment's endpoints
+     *
+     * @param x0 starting x-coordinate
+     * @param y0 starting y-coordinate
+     * @param x1 ending x-coordinate
+     * @param y1 ending y-coordinate
+     * @param x  x-coordinate to evaluate at
+     * @return y-coordinate
+     */
+    private static double yAt(double x0, double y0, double x1, double y1, double x) {
+        double t = Math.max(0, Math.min(1, (x - x0) / (x1 - x0)));
+        return y0 + t * (y1 - y0);
+    }
+
+    /**
+     * Returns the column containing an x-coordinate, clamped to the grid
+     *
+     * @param x x-coordinate
+     * @return column
+     */
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    /**
+     * Returns the row containing a y-coordinate, clamped to the grid
+     *
+     * @param y y-coordinate
+     * @return row
+     */
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    /**
+     * Grows the per-circle arrays
+     *
+     * @param capacity new capacity
+     */
+    private void grow(int capacity) {
+        int old = cellOf.length;
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        Arrays.fill(cellOf, old, capacity, -1);
+        cx = Arrays.copyOf(cx, capacity);
+        cy = Arrays.copyOf(cy, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        members = Arrays.copyOf(members, capacity);
+        memberIndex = Arrays.copyOf(memberIndex, capacity);
+    }
+
+}
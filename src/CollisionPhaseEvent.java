@@ -0,0 +1,32 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        CollisionPhaseEvent.java
+ * @Description JFR event around the collision phase of a tick
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event around the collision phase of a tick
+ */
+@Name("randomwalk.CollisionPhase")
+@Label("Collision Phase")
+@Category("Random Walk")
+@Description("Tests the moves of a tick against dormant walkers")
+public class CollisionPhaseEvent extends Event {
+
+    @Label("Tick")
+    int tick; // tick of engine
+
+    @Label("Collision Tests")
+    long tests; // number of exact collision tests run
+
+    @Label("Activations")
+    int activations; // number of walkers activated
+
+}
@@ -0,0 +1,459 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        DensityGrid.java
+ * @Description Tiled grid counting how often walkers pass through each cell
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Tiled grid counting how often walkers pass through each cell
+ *
+ * Covers the walk area with square cells of a chosen size and adds every
+ * move to the count of each cell its straight path enters, or of its own
+ * cell if it stays in one, so the grid shows where walkers spend their time.
+ * Counts are plain ints in tiles of 64 by 64 cells, allocated the first time
+ * a move reaches them, so a fine grid over a large area costs memory only
+ * where walkers have been, and a move touches one tile at a time.
+ *
+ * The grid is written out row by row without ever being copied whole: as
+ * raw counts through memory-mapped regions of the output file, or as a PNG
+ * heatmap through PngWriter. Cells in tiles never reached are not written at
+ * all, and stay zero in the sparse file.
+ */
+public class DensityGrid {
+
+    // Constants
+
+    public static final int MAGIC = 0x52574447; // "RWDG"
+    public static final int VERSION = 1; // format version
+    public static final int HEADER_SIZE = 64; // bytes before the first count
+    public static final int TILE_SHIFT = 6; // log2 of tile side in cells
+    public static final int TILE_SIZE = 1 << TILE_SHIFT; // tile side in cells
+    private static final int TILE_MASK = TILE_SIZE - 1; // cell offset within tile
+    private static final long REGION_SIZE = 1L << 30; // bytes per mapping of the output file
+    private static final int LEVEL_TABLE = 1 << 16; // counts whose heat level is looked up, not computed
+    public static final int[] PALETTE = palette(); // RGB of each heat level, level 0 is black
+
+    // Data fields
+
+    private final double cellSize; // world units per cell side
+    private int columns; // cells per row
+    private int rows; // rows of cells
+    private int tileColumns; // tiles per row of tiles
+    private int[][] tiles; // TILE_SIZE rows of counts of each tile, null until reached
+    private long total = 0; // sum of all counts
+    private int max = 0; // largest count
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param width    width of walk area
+     * @param height   height of walk area
+     * @param cellSize world units per cell side
+     * @throws IllegalArgumentException if the cell size is not positive or the grid has too many tiles
+     */
+    DensityGrid(double width, double height, double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        reset(width, height);
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for cellSize
+     *
+     * @return world units per cell side
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Getter for columns
+     *
+     * @return cells per row
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Getter for rows
+     *
+     * @return rows of cells
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for total
+     *
+     * @return sum of all counts, which changes whenever a count does
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Getter for max
+     *
+     * @return largest count
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the count of a cell
+     *
+     * @param column cell column
+     * @param row    cell row
+     * @return times walkers passed through the cell
+     */
+    public int get(int column, int row) {
+        int[] tile = tiles[(row >> TILE_SHIFT) * tileColumns + (column >> TILE_SHIFT)];
+        return tile == null ? 0 : tile[(row & TILE_MASK) << TILE_SHIFT | column & TILE_MASK];
+    }
+
+    /**
+     * Copies the counts of one row of cells
+     *
+     * @param row    cell row
+     * @param counts receives the count of each column, at least columns long
+     */
+    public void getRow(int row, int[] counts) {
+        int base = (row >> TILE_SHIFT) * tileColumns;
+        int offset = (row & TILE_MASK) << TILE_SHIFT;
+        for (int t = 0; t < tileColumns; t++) {
+            int first = t << TILE_SHIFT;
+            int length = Math.min(TILE_SIZE, columns - first);
+            if (tiles[base + t] == null) {
+                Arrays.fill(counts, first, first + length, 0);
+            } else {
+                System.arraycopy(tiles[base + t], offset, counts, first, length);
+            }
+        }
+    }
+
+    // Other methods
+
+    /**
+     * Clears every count and fits the grid to a walk area, keeping the tiles
+     * if the number of cells is unchanged
+     *
+     * @param width  width of walk area
+     * @param height height of walk area
+     * @throws IllegalArgumentException if the grid has too many tiles
+     */
+    public void reset(double width, double height) {
+        int newColumns = cells(width);
+        int newRows = cells(height);
+        if (tiles != null && newColumns == columns && newRows == rows) {
+            clear();
+            return;
+        }
+        long tileCount = (long) ((newColumns + TILE_MASK) >> TILE_SHIFT) * ((newRows + TILE_MASK) >> TILE_SHIFT);
+        if (tileCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Density grid too large: " + newColumns + "x" + newRows);
+        }
+        columns = newColumns;
+        rows = newRows;
+        tileColumns = (columns + TILE_MASK) >> TILE_SHIFT;
+        tiles = new int[(int) tileCount][];
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Clears every count, keeping the tiles
+     */
+    public void clear() {
+        for (int[] tile : tiles) {
+            if (tile != null) {
+                Arrays.fill(tile, 0);
+            }
+        }
+        total = 0;
+        max = 0;
+    }
+
+    /**
+     * Adds the moves of the engine's last tick, a wrapped move is added as
+     * the part leaving one edge and the part re-entering from the opposite
+     * one, and a reflected move as the parts between its bounces
+     *
+     * @param engine engine that just stepped
+     */
+    public void addTick(RandomWalkEngine engine) {
+        boolean wrap = engine.getPolicy() == BoundaryPolicy.WRAP;
+        for (int id = 0; id < engine.getCount(); id++) {
+            if (!engine.hasMoved(id)) {
+                continue;
+            }
+            double startX = engine.getLastX(id);
+            double startY = engine.getLastY(id);
+            double x = engine.getX(id);
+            double y = engine.getY(id);
+            double moveX = engine.getMoveX(id);
+            double moveY = engine.getMoveY(id);
+            if (wrap && (x != startX + moveX || y != startY + moveY)) {
+                addSegment(startX, startY, startX + moveX, startY + moveY);
+                addSegment(x - moveX, y - moveY, x, y);
+                continue;
+            }
+            // a reflected move turns at each edge it bounces off
+            int bounces = engine.getBounceCount(id);
+            for (int k = 0; k < bounces; k++) {
+                double bounceX = engine.getBounceX(id, k);
+                double bounceY = engine.getBounceY(id, k);
+                addSegment(startX, startY, bounceX, bounceY);
+                startX = bounceX;
+                startY = bounceY;
+            }
+            addSegment(startX, startY, x, y);
+        }
+    }
+
+    /**
+     * Adds a move along a straight path, counting every cell the path enters
+     * after its first, or the first if it never leaves it. Cells outside the
+     * grid are skipped
+     *
+     * @param x0 starting x-coordinate
+     * @param y0 starting y-coordinate
+     * @param x1 ending x-coordinate
+     * @param y1 ending y-coordinate
+     */
+    public void addSegment(double x0, double y0, double x1, double y1) {
+        double fx = x0 / cellSize;
+        double fy = y0 / cellSize;
+        long cx = (long) Math.floor(fx);
+        long cy = (long) Math.floor(fy);
+        long endX = (long) Math.floor(x1 / cellSize);
+        long endY = (long) Math.floor(y1 / cellSize);
+        if (cx == endX && cy == endY) {
+            increment(cx, cy);
+            return;
+        }
+
+        // walk the cells in the order the path crosses their edges
+        int stepX = Long.signum(endX - cx);
+        int stepY = Long.signum(endY - cy);
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize / (x1 - x0));
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(cellSize / (y1 - y0));
+        double nextX = stepX == 0 ? Double.POSITIVE_INFINITY : (stepX > 0 ? cx + 1 - fx : fx - cx) * deltaX;
+        double nextY = stepY == 0 ? Double.POSITIVE_INFINITY : (stepY > 0 ? cy + 1 - fy : fy - cy) * deltaY;
+        for (long n = Math.abs(endX - cx) + Math.abs(endY - cy); n > 0; n--) {
+            if (nextX < nextY) {
+                cx += stepX;
+                nextX += deltaX;
+            } else {
+                cy += stepY;
+                nextY += deltaY;
+            }
+            increment(cx, cy);
+        }
+    }
+
+    /**
+     * Adds every count of another grid of the same size, as when merging the
+     * grids of parallel workers
+     *
+     * @param other grid to add
+     * @throws IllegalArgumentException if the grids differ in size
+     */
+    public void add(DensityGrid other) {
+        if (other.columns != columns || other.rows != rows) {
+            throw new IllegalArgumentException("Density grids differ: " + columns + "x" + rows + " and "
+                    + other.columns + "x" + other.rows);
+        }
+        for (int t = 0; t < tiles.length; t++) {
+            int[] from = other.tiles[t];
+            if (from == null) {
+                continue;
+            }
+            if (tiles[t] == null) {
+                tiles[t] = new int[TILE_SIZE * TILE_SIZE];
+            }
+            int[] to = tiles[t];
+            for (int k = 0; k < to.length; k++) {
+                to[k] += from[k];
+                max = Math.max(max, to[k]);
+            }
+        }
+        total += other.total;
+    }
+
+    /**
+     * Returns the heat level of a count, on a log scale up to the largest count
+     *
+     * @param count count of a cell
+     * @return 0 for a cell never passed through, up to 255 for the largest count
+     */
+    public int level(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        return 1 + (int) (254 * Math.log(count) / Math.log(Math.max(max, 2)));
+    }
+
+    /**
+     * Writes the grid to a PNG heatmap if the file name ends in .png, and
+     * as raw counts otherwise
+     *
+     * @param path output file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        if (path.getFileName().toString().toLowerCase().endsWith(".png")) {
+            writePng(path);
+        } else {
+            writeCounts(path);
+        }
+    }
+
+    /**
+     * Writes the counts after a fixed header, row by row as little-endian
+     * ints, through memory-mapped regions of the file so no part of the
+     * grid is copied onto the heap
+     *
+     * @param path output file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCounts(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(columns);
+            header.putInt(rows);
+            header.putDouble(cellSize);
+            header.putLong(total);
+            header.putInt(max);
+            header.position(0);
+            channel.write(header);
+
+            // each region holds whole rows and stays under 2 GB
+            long rowBytes = (long) columns * Integer.BYTES;
+            int regionRows = (int) Math.max(1, Math.min(rows, REGION_SIZE / rowBytes));
+            for (int first = 0; first < rows; first += regionRows) {
+                int count = Math.min(regionRows, rows - first);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + first * rowBytes, count * rowBytes);
+                IntBuffer counts = region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                for (int row = first; row < first + count; row++) {
+                    int base = (row >> TILE_SHIFT) * tileColumns;
+                    int offset = (row & TILE_MASK) << TILE_SHIFT;
+                    for (int t = 0; t < tileColumns; t++) {
+                        if (tiles[base + t] != null) {
+                            counts.put((row - first) * columns + (t << TILE_SHIFT), tiles[base + t], offset,
+                                    Math.min(TILE_SIZE, columns - (t << TILE_SHIFT)));
+                        }
+                    }
+                }
+                region.force();
+            }
+        }
+    }
+
+    /**
+     * Writes the grid as a PNG heatmap, one pixel per cell colored by its
+     * heat level, encoding one row at a time
+     *
+     * @param path output file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writePng(Path path) throws IOException {
+        // most counts are small, so look their levels up rather than take logs
+        byte[] levels = new byte[(int) Math.min(LEVEL_TABLE, (long) max + 1)];
+        for (int k = 0; k < levels.length; k++) {
+            levels[k] = (byte) level(k);
+        }
+        int[] counts = new int[columns];
+        byte[] indices = new byte[columns];
+        try (PngWriter png = new PngWriter(path, columns, rows, PALETTE)) {
+            for (int row = 0; row < rows; row++) {
+                getRow(row, counts);
+                for (int k = 0; k < columns; k++) {
+                    indices[k] = counts[k] < levels.length ? levels[counts[k]] : (byte) level(counts[k]);
+                }
+                png.writeRow(indices);
+            }
+        }
+    }
+
+    /**
+     * Adds one to the count of a cell, if it is in the grid
+     *
+     * @param column cell column
+     * @param row    cell row
+     */
+    private void increment(long column, long row) {
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return;
+        }
+        int t = (int) (row >> TILE_SHIFT) * tileColumns + (int) (column >> TILE_SHIFT);
+        int[] tile = tiles[t];
+        if (tile == null) {
+            tile = new int[TILE_SIZE * TILE_SIZE];
+            tiles[t] = tile;
+        }
+        int count = ++tile[((int) row & TILE_MASK) << TILE_SHIFT | (int) column & TILE_MASK];
+        max = Math.max(max, count);
+        total++;
+    }
+
+    /**
+     * Returns the number of cells needed to cover a length
+     *
+     * @param length width or height of walk area
+     * @return cells, at least 1
+     * @throws IllegalArgumentException if the cells do not fit an int
+     */
+    private int cells(double length) {
+        double cells = Math.ceil(length / cellSize);
+        if (cells > Integer.MAX_VALUE - TILE_SIZE) {
+            throw new IllegalArgumentException("Density grid too large: " + cells + " cells across");
+        }
+        return (int) Math.max(1, cells);
+    }
+
+    /**
+     * Builds the heat palette, black for level 0 then blue through cyan,
+     * green and yellow to red
+     *
+     * @return RGB of each level
+     */
+    private static int[] palette() {
+        int[][] stops = { { 0, 0, 255 }, { 0, 255, 255 }, { 0, 255, 0 }, { 255, 255, 0 }, { 255, 0, 0 } };
+        int[] palette = new int[256];
+        for (int k = 1; k < 256; k++) {
+            double t = (k - 1) / 254.0 * (stops.length - 1);
+            int s = Math.min((int) t, stops.length - 2);
+            double f = t - s;
+            int r = (int) Math.round(stops[s][0] + f * (stops[s + 1][0] - stops[s][0]));
+            int g = (int) Math.round(stops[s][1] + f * (stops[s + 1][1] - stops[s][1]));
+            int b = (int) Math.round(stops[s][2] + f * (stops[s + 1][2] - stops[s][2]));
+            palette[k] = r << 16 | g << 8 | b;
+        }
+        return palette;
+    }
+
+}
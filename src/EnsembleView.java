@@ -0,0 +1,300 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        EnsembleView.java
+ * @Description Grid of simulations run side by side on one scheduler
+ */
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import javafx.geometry.Pos;
+import javafx.scene.layout.GridPane;
+
+/**
+ * Grid of simulations run side by side on one scheduler
+ *
+ * Every simulation is a RandomWalkPane sharing a single TickScheduler, so the
+ * whole grid costs one AnimationTimer. Each tick advances all engines at once
+ * on the common fork/join pool, one simulation per task since engines share
+ * no state, and then renders them one after another on the FX thread.
+ * Simulation k is seeded with stream k of the ensemble's master seed, so an
+ * ensemble is reproducible from that one seed.
+ */
+public class EnsembleView extends GridPane {
+
+    // Constants
+
+    private static final double GAP = 4; // pixels between simulations
+
+    // Data fields
+
+    private final TickScheduler scheduler = new TickScheduler(); // advances every simulation each tick
+    private final int rows; // rows of simulations
+    private final int columns; // columns of simulations
+    private final RandomWalkPane[] panes; // simulations, row by row
+    private final int[] moved; // walkers moved by each simulation in the current tick
+    private long seed = ThreadLocalRandom.current().nextLong(); // master seed of next initialize()
+    private boolean initialized = false; // whether the simulations have walks to run
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param rows    rows of simulations
+     * @param columns columns of simulations
+     */
+    EnsembleView(int rows, int columns) {
+        if (rows < 1 || columns < 1) {
+            throw new IllegalArgumentException("Ensemble needs at least one row and one column");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        panes = new RandomWalkPane[rows * columns];
+        moved = new int[panes.length];
+        setHgap(GAP);
+        setVgap(GAP);
+        setAlignment(Pos.CENTER);
+        for (int k = 0; k < panes.length; k++) {
+            panes[k] = new RandomWalkPane(scheduler);
+            panes[k].setStyle("-fx-border-color: black; -fx-border-width: 1");
+            add(panes[k], k % columns, k / columns);
+        }
+        scheduler.addTask(this::tick);
+        scheduler.addFrameTask(this::frame);
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for rows
+     *
+     * @return rows of simulations
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for columns
+     *
+     * @return columns of simulations
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the number of simulations
+     *
+     * @return rows times columns
+     */
+    public int getSimulationCount() {
+        return panes.length;
+    }
+
+    /**
+     * Returns a simulation
+     *
+     * @param k simulation index, row by row
+     * @return pane of simulation
+     */
+    public RandomWalkPane getPane(int k) {
+        return panes[k];
+    }
+
+    /**
+     * Getter for seed
+     *
+     * @return master seed of the current or next ensemble
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Setter for seed, the same seed reproduces every simulation
+     *
+     * @param seed master seed, simulation k is seeded with stream k of it
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the size of the whole grid, shared equally by the simulations
+     *
+     * @param width  width of grid
+     * @param height height of grid
+     */
+    public void setSize(double width, double height) {
+        double cellWidth = Math.floor((width - GAP * (columns - 1)) / columns);
+        double cellHeight = Math.floor((height - GAP * (rows - 1)) / rows);
+        for (RandomWalkPane pane : panes) {
+            pane.setSize(cellWidth, cellHeight);
+            pane.setMinSize(cellWidth, cellHeight);
+            pane.setMaxSize(cellWidth, cellHeight);
+        }
+    }
+
+    /**
+     * Sets the duration of a tick of every simulation
+     *
+     * @param duration duration of a tick in milliseconds
+     */
+    public void setDuration(int duration) {
+        for (RandomWalkPane pane : panes) {
+            pane.setDuration(duration);
+        }
+    }
+
+    /**
+     * Switches turbo mode of every simulation, which runs as many ticks per
+     * frame as the budget allows
+     *
+     * @param turbo whether to run in turbo mode
+     */
+    public void setTurbo(boolean turbo) {
+        for (RandomWalkPane pane : panes) {
+            pane.setTurbo(turbo);
+        }
+    }
+
+    /**
+     * Sets the frame-time budget of turbo mode, shared by every simulation as
+     * they tick together
+     *
+     * @param millis milliseconds of ticks per frame
+     */
+    public void setTurboBudget(int millis) {
+        for (RandomWalkPane pane : panes) {
+            pane.setTurboBudget(millis);
+        }
+    }
+
+    /**
+     * Sets whether turbo mode draws the trails of every simulation only once
+     * its walk is complete
+     *
+     * @param renderAtEnd whether to draw only once the walk is complete
+     */
+    public void setRenderAtEnd(boolean renderAtEnd) {
+        for (RandomWalkPane pane : panes) {
+            pane.setRenderAtEnd(renderAtEnd);
+        }
+    }
+
+    /**
+     * Sets the number of dormant walkers of every simulation
+     *
+     * @param dormantCount number of dormant walkers placed by the next initialize()
+     */
+    public void setDormantCount(int dormantCount) {
+        for (RandomWalkPane pane : panes) {
+            pane.setDormantCount(dormantCount);
+        }
+    }
+
+    /**
+     * Sets the edge handling of every simulation
+     *
+     * @param policy edge handling for walkers
+     */
+    public void setPolicy(BoundaryPolicy policy) {
+        for (RandomWalkPane pane : panes) {
+            pane.setPolicy(policy);
+        }
+    }
+
+    /**
+     * Sets the distribution of moves of every simulation
+     *
+     * @param kernel distribution of moves
+     */
+    public void setKernel(StepKernel kernel) {
+        for (RandomWalkPane pane : panes) {
+            pane.setKernel(kernel);
+        }
+    }
+
+    /**
+     * Sets the trail capacity of every simulation
+     *
+     * @param capacity maximum number of segments, 0 for unbounded
+     */
+    public void setTrailCapacity(int capacity) {
+        for (RandomWalkPane pane : panes) {
+            pane.setTrailCapacity(capacity);
+        }
+    }
+
+    // Other methods
+
+    /**
+     * Initializes every simulation from the master seed and starts them
+     */
+    public void initialize() {
+        for (int k = 0; k < panes.length; k++) {
+            panes[k].setSeed(SplitMix64.streamSeed(seed, k));
+            panes[k].initialize();
+        }
+        initialized = true;
+        play();
+    }
+
+    /**
+     * Plays every simulation
+     */
+    public void play() {
+        if (initialized) {
+            scheduler.start();
+        }
+    }
+
+    /**
+     * Pauses every simulation
+     */
+    public void pause() {
+        scheduler.stop();
+    }
+
+    /**
+     * Resets every simulation and picks a new master seed
+     */
+    public void reset() {
+        pause();
+        for (RandomWalkPane pane : panes) {
+            pane.reset();
+        }
+        initialized = false;
+        seed = ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Advances every simulation in parallel, then renders them in turn, and
+     * stops once every walk has ended
+     */
+    private void tick() {
+        IntStream.range(0, panes.length).parallel().forEach(k -> moved[k] = panes[k].advance());
+        boolean complete = true;
+        for (int k = 0; k < panes.length; k++) {
+            panes[k].showTick(moved[k]);
+            complete = complete && moved[k] == 0 && panes[k].isComplete();
+        }
+        if (complete) {
+            // a pane never stops the shared scheduler itself
+            pause();
+        }
+    }
+
+    /**
+     * Draws every simulation's sprites
+     */
+    private void frame() {
+        for (RandomWalkPane pane : panes) {
+            pane.frame();
+        }
+    }
+
+}
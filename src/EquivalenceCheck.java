@@ -0,0 +1,281 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        EquivalenceCheck.java
+ * @Description Headless checks that engine speedups leave the walk unchanged
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Headless checks that engine speedups leave the walk unchanged
+ *
+ * Vectorized moves must give exactly the same walk, so engines stepped with
+ * and without them, by step() and by stepParallel(), are compared walker by
+ * walker after every tick. This needs the JVM to run with
+ * --add-modules jdk.incubator.vector, and is skipped otherwise.
+ *
+ * Skip-ahead draws walks from the same distributions on different random
+ * streams, so it is checked statistically: batches of replicas with and
+ * without it are compared by two-sample Kolmogorov-Smirnov tests on the main
+ * walker's displacement and on activation and finishing times. Each test
+ * fails by chance once in a thousand batches.
+ *
+ * Usage: java EquivalenceCheck [runs] [seed]
+ *
+ * Prints a line per check and exits with status 1 if any fails.
+ */
+public class EquivalenceCheck {
+
+    // Constants
+
+    private static final double KS_CRITICAL = 1.949; // Kolmogorov-Smirnov coefficient at the 0.001 level
+    private static final double SPARSE_SIZE = 1500; // side of the sparse scene skip-ahead applies to
+    private static final int SPARSE_DORMANT = 4; // number of dormant walkers of the sparse scene
+    private static final int CROWD_SIZE = 12000; // number of walkers of crowded scenes, several parallel chunks
+    private static final int VECTOR_SEEDS = 4; // number of seeds each vectorized scene is checked with
+
+    // Data fields
+
+    private final int runs; // number of replicas of each batch
+    private final long seed; // master seed of the checks
+    private int failures = 0; // number of checks failed so far
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param runs number of replicas of each batch
+     * @param seed master seed of the checks
+     */
+    EquivalenceCheck(int runs, long seed) {
+        this.runs = runs;
+        this.seed = seed;
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for failures
+     *
+     * @return number of checks failed so far
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Main method
+     *
+     * @param args runs and seed
+     */
+    public static void main(String[] args) {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : ThreadLocalRandom.current().nextLong();
+
+        System.out.printf("equivalence checks with %d runs, seed %d%n", runs, seed);
+        EquivalenceCheck check = new EquivalenceCheck(runs, seed);
+        check.checkVectorized();
+        check.checkSkipAhead(BoundaryPolicy.RESTRICT);
+        check.checkSkipAhead(BoundaryPolicy.ABSORB);
+        System.out.println(check.getFailures() == 0 ? "all checks passed" : check.getFailures() + " checks failed");
+        if (check.getFailures() > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Other methods
+
+    /**
+     * Compares vectorized and scalar moves in a sparse cascade, in a crowd
+     * pressed against the edges and in a crowd spread over a large area
+     */
+    public void checkVectorized() {
+        if (!RandomWalkEngine.VECTOR_AVAILABLE) {
+            System.out.println("vectorized moves skipped, run with --add-modules jdk.incubator.vector");
+            return;
+        }
+        compareVectorized("vectorized cascade", 800, 600, RandomWalkEngine.DORMANT_COUNT, false, 2000);
+        compareVectorized("vectorized crowd at the edges", 200, 200, CROWD_SIZE, true, 100);
+        compareVectorized("vectorized crowd", 6000, 6000, CROWD_SIZE, true, 100);
+    }
+
+    /**
+     * Compares batches with and without skip-ahead in a sparse scene, where
+     * walkers skip most of their moves
+     *
+     * @param policy edge handling for walkers
+     */
+    public void checkSkipAhead(BoundaryPolicy policy) {
+        BatchRunner plain = new BatchRunner(runs, SPARSE_SIZE, SPARSE_SIZE, SPARSE_DORMANT, policy, seed);
+        BatchRunner skipping = new BatchRunner(runs, SPARSE_SIZE, SPARSE_SIZE, SPARSE_DORMANT, policy,
+                SplitMix64.streamSeed(seed, 1));
+        skipping.setSkipAhead(true);
+        List<BatchRunner.RunResult> expected = plain.run();
+        List<BatchRunner.RunResult> actual = skipping.run();
+
+        String name = "skip-ahead " + policy + " ";
+        compare(name + "main walker displacement", displacements(expected), displacements(actual));
+        compare(name + "ticks until all finished", ticks(expected), ticks(actual));
+        compare(name + "ticks to first activation", firstActivations(expected), firstActivations(actual));
+        compare(name + "walkers activated", activated(expected), activated(actual));
+    }
+
+    /**
+     * Steps a scene with scalar moves by step(), and with vectorized moves by
+     * step() and by stepParallel(), and checks that every walker's position
+     * and total steps agree after every tick
+     *
+     * @param name        name of the check
+     * @param width       width of walk area
+     * @param height      height of walk area
+     * @param dormant     number of dormant walkers
+     * @param activateAll whether every walker moves from the start, rather than once activated
+     * @param ticks       number of ticks to step
+     */
+    private void compareVectorized(String name, double width, double height, int dormant, boolean activateAll,
+            int ticks) {
+        int mismatches = 0;
+        for (int n = 0; n < VECTOR_SEEDS; n++) {
+            RandomWalkEngine[] engines = new RandomWalkEngine[3];
+            for (int k = 0; k < engines.length; k++) {
+                engines[k] = RandomWalkEngine.createScenario(width, height, dormant, SplitMix64.streamSeed(seed, n));
+                engines[k].setPolicy(BoundaryPolicy.RESTRICT);
+                engines[k].setVectorized(k > 0);
+                for (int i = 1; activateAll && i < engines[k].getCount(); i++) {
+                    engines[k].activate(i);
+                }
+            }
+            for (int tick = 0; tick < ticks; tick++) {
+                engines[0].step();
+                engines[1].step();
+                engines[2].stepParallel();
+                if (!sameWalk(engines[0], engines[1]) || !sameWalk(engines[0], engines[2])) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+        boolean passed = mismatches == 0;
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("%-60s %d of %d seeds differ  %s%n", name, mismatches, VECTOR_SEEDS,
+                passed ? "ok" : "FAILED");
+    }
+
+    /**
+     * Returns whether two engines hold the same walk
+     *
+     * @param a first engine
+     * @param b second engine
+     * @return true if every walker's position, total steps and activation agree
+     */
+    private static boolean sameWalk(RandomWalkEngine a, RandomWalkEngine b) {
+        if (a.getActivationCount() != b.getActivationCount()) {
+            return false;
+        }
+        for (int i = 0; i < a.getCount(); i++) {
+            if (a.getX(i) != b.getX(i) || a.getY(i) != b.getY(i) || a.getTotalSteps(i) != b.getTotalSteps(i)
+                    || a.isActive(i) != b.isActive(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two samples by a two-sample Kolmogorov-Smirnov test and
+     * reports the result
+     *
+     * @param name     name of the check
+     * @param expected sample drawn without the speedup
+     * @param actual   sample drawn with it
+     */
+    private void compare(String name, double[] expected, double[] actual) {
+        double d = ksStatistic(expected, actual);
+        double n = expected.length;
+        double m = actual.length;
+        double critical = KS_CRITICAL * Math.sqrt((n + m) / (n * m));
+        boolean passed = expected.length > 0 && actual.length > 0 && d <= critical;
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("%-60s D = %.4f, critical %.4f  %s%n", name, d, critical, passed ? "ok" : "FAILED");
+    }
+
+    /**
+     * Returns the largest distance between the empirical distribution
+     * functions of two samples
+     *
+     * @param a first sample
+     * @param b second sample
+     * @return Kolmogorov-Smirnov statistic
+     */
+    static double ksStatistic(double[] a, double[] b) {
+        a = a.clone();
+        b = b.clone();
+        Arrays.sort(a);
+        Arrays.sort(b);
+        int i = 0;
+        int j = 0;
+        double d = 0;
+        while (i < a.length && j < b.length) {
+            // step past every value equal to the smaller one in both samples
+            double value = Math.min(a[i], b[j]);
+            while (i < a.length && a[i] == value) {
+                i++;
+            }
+            while (j < b.length && b[j] == value) {
+                j++;
+            }
+            d = Math.max(d, Math.abs((double) i / a.length - (double) j / b.length));
+        }
+        return d;
+    }
+
+    /**
+     * Returns the main walker displacement of every replica
+     *
+     * @param results results of a batch
+     * @return displacements
+     */
+    private static double[] displacements(List<BatchRunner.RunResult> results) {
+        return results.stream().mapToDouble(result -> result.mainDisplacement).toArray();
+    }
+
+    /**
+     * Returns the ticks until every walker finished of every replica
+     *
+     * @param results results of a batch
+     * @return ticks
+     */
+    private static double[] ticks(List<BatchRunner.RunResult> results) {
+        return results.stream().mapToDouble(result -> result.ticks).toArray();
+    }
+
+    /**
+     * Returns the tick of the first activation of every replica with one
+     *
+     * @param results results of a batch
+     * @return ticks of first activations
+     */
+    private static double[] firstActivations(List<BatchRunner.RunResult> results) {
+        return results.stream().filter(result -> result.activationTicks.length > 0)
+                .mapToDouble(result -> result.activationTicks[0]).toArray();
+    }
+
+    /**
+     * Returns the number of walkers activated in every replica
+     *
+     * @param results results of a batch
+     * @return numbers of activations
+     */
+    private static double[] activated(List<BatchRunner.RunResult> results) {
+        return results.stream().mapToDouble(result -> result.activationOrder.length).toArray();
+    }
+
+}
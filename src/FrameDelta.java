@@ -0,0 +1,260 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        FrameDelta.java
+ * @Description Changes to draw from one or more ticks of a walk
+ */
+
+import java.util.Arrays;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Changes to draw from one or more ticks of a walk
+ *
+ * Filled in by whichever thread steps the engine and drawn by the FX thread,
+ * so the FX thread never reads the engine while it runs. Ticks added to the
+ * same delta are coalesced: trail segments, visited sites and activations
+ * accumulate in order, but a walker that moved in several ticks keeps only
+ * its latest position. Arrays grow by doubling and are reused once cleared.
+ */
+public class FrameDelta {
+
+    // Data fields
+
+    int ticks = 0; // number of ticks added
+    int tick = 0; // engine tick after the last one
+    boolean complete = false; // whether the walk finished and the stepping thread stopped
+    boolean recordingFailed = false; // whether writing the trajectory log failed
+
+    int timings = 0; // number of timed ticks
+    long[] tickTimes = new long[16]; // start and end timestamp of each tick
+    int[] tickMoves = new int[8]; // walkers moved by each tick
+    long[] tickTests = new long[8]; // collision tests run by each tick
+    long[] tickBytes = new long[8]; // bytes allocated by each tick, 0 if unmeasured
+
+    int segmentCount = 0; // number of trail segments
+    int[] segmentWalkers = new int[64]; // walker of each segment
+    double[] segmentCoords = new double[256]; // start and end of each segment
+    Color[] segmentColors = new Color[64]; // color of each segment
+
+    int siteCount = 0; // number of lattice sites passed through, repeats included
+    long[] sites = new long[128]; // x and y of each site, in steps
+
+    int positionCount = 0; // number of walkers that moved
+    int[] positionWalkers = new int[64]; // id of each walker that moved
+    double[] positions = new double[128]; // latest x and y of each walker that moved
+    private int[] positionSlot = new int[0]; // index in positionWalkers of each walker id, -1 if absent
+
+    int activationCount = 0; // number of activations
+    int[] activations = new int[16]; // walker ids in order of activation
+
+    long visitedSites = -1; // distinct cells visited, -1 if not tracked
+    double coverage = 0; // fraction of the walk area visited
+    int mainReturns = 0; // returns of the main walker to its starting cell
+    long rangeX = 0; // columns spanned by the visited cells
+    long rangeY = 0; // rows spanned by the visited cells
+
+    // Constructors
+
+    /**
+     * No-arg constructor, the stepping thread fills in the fields
+     */
+    FrameDelta() {
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns whether there is anything to draw
+     *
+     * @return true if no tick was added and the walk is not complete
+     */
+    public boolean isEmpty() {
+        return ticks == 0 && activationCount == 0 && !complete && !recordingFailed;
+    }
+
+    // Other methods
+
+    /**
+     * Adds the moves and activations of the engine's last tick
+     *
+     * Mirrors how the pane draws a tick: a wrapped move is split into the
+     * part leaving one edge and the part re-entering from the opposite one, a
+     * reflected move into the parts between its bounces, and in unbounded mode every lattice site a move passes through is
+     * recorded instead of a trail segment.
+     *
+     * @param engine         engine that just stepped
+     * @param unbounded      whether to record visited sites instead of trail segments
+     * @param fromActivation first activation not yet added to a delta
+     */
+    public void addTick(RandomWalkEngine engine, boolean unbounded, int fromActivation) {
+        if (positionSlot.length < engine.getCount()) {
+            int old = positionSlot.length;
+            positionSlot = Arrays.copyOf(positionSlot, Math.max(engine.getCount(), 2 * old));
+            Arrays.fill(positionSlot, old, positionSlot.length, -1);
+        }
+        boolean wrap = engine.getPolicy() == BoundaryPolicy.WRAP;
+        for (int id = 0; id < engine.getCount(); id++) {
+            if (!engine.hasMoved(id)) {
+                continue;
+            }
+            double startX = engine.getLastX(id);
+            double startY = engine.getLastY(id);
+            double x = engine.getX(id);
+            double y = engine.getY(id);
+            addPosition(id, x, y);
+
+            if (unbounded) {
+                // first move of a walker activated off the walk so far
+                addSite(startX, startY);
+                double stepX = engine.getDx(id) * RandomWalkEngine.STEP_SIZE;
+                double stepY = engine.getDy(id) * RandomWalkEngine.STEP_SIZE;
+                for (int k = 1; k <= engine.getSteps(id); k++) {
+                    addSite(startX + stepX * k, startY + stepY * k);
+                }
+                continue;
+            }
+
+            Color color = id == 0 ? Color.BLUE : engine.isActive(id) ? Color.RED : Color.GREEN;
+            double moveX = engine.getMoveX(id);
+            double moveY = engine.getMoveY(id);
+            if (wrap && (x != startX + moveX || y != startY + moveY)) {
+                addSegment(id, startX, startY, startX + moveX, startY + moveY, color);
+                addSegment(id, x - moveX, y - moveY, x, y, color);
+                continue;
+            }
+            // a reflected move turns at each edge it bounces off
+            int bounces = engine.getBounceCount(id);
+            for (int k = 0; k < bounces; k++) {
+                double bounceX = engine.getBounceX(id, k);
+                double bounceY = engine.getBounceY(id, k);
+                addSegment(id, startX, startY, bounceX, bounceY, color);
+                startX = bounceX;
+                startY = bounceY;
+            }
+            addSegment(id, startX, startY, x, y, color);
+        }
+
+        for (int k = fromActivation; k < engine.getActivationCount(); k++) {
+            if (activationCount == activations.length) {
+                activations = Arrays.copyOf(activations, 2 * activationCount);
+            }
+            activations[activationCount++] = engine.getActivation(k);
+        }
+
+        ticks++;
+        tick = engine.getTick();
+        VisitationBitmap visits = engine.getVisits();
+        visitedSites = visits == null ? -1 : visits.getDistinct();
+        if (visits != null) {
+            coverage = visits.getCoverage();
+            mainReturns = engine.getReturns(0);
+            rangeX = visits.getRangeX();
+            rangeY = visits.getRangeY();
+        }
+    }
+
+    /**
+     * Adds the timing of a tick for the performance counters
+     *
+     * @param start start timestamp in nanoseconds
+     * @param end   end timestamp in nanoseconds
+     * @param moved walkers moved
+     * @param tests collision tests run
+     * @param bytes bytes allocated, 0 if unmeasured
+     */
+    public void addTiming(long start, long end, int moved, long tests, long bytes) {
+        int k = timings++;
+        if (k == tickMoves.length) {
+            tickTimes = Arrays.copyOf(tickTimes, 4 * k);
+            tickMoves = Arrays.copyOf(tickMoves, 2 * k);
+            tickTests = Arrays.copyOf(tickTests, 2 * k);
+            tickBytes = Arrays.copyOf(tickBytes, 2 * k);
+        }
+        tickTimes[2 * k] = start;
+        tickTimes[2 * k + 1] = end;
+        tickMoves[k] = moved;
+        tickTests[k] = tests;
+        tickBytes[k] = bytes;
+    }
+
+    /**
+     * Empties the delta, keeping its arrays
+     */
+    public void clear() {
+        for (int k = 0; k < positionCount; k++) {
+            positionSlot[positionWalkers[k]] = -1;
+        }
+        Arrays.fill(segmentColors, 0, segmentCount, null);
+        ticks = 0;
+        timings = 0;
+        complete = false;
+        recordingFailed = false;
+        segmentCount = 0;
+        siteCount = 0;
+        positionCount = 0;
+        activationCount = 0;
+    }
+
+    /**
+     * Adds a trail segment
+     *
+     * @param walker walker id
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param color  color of segment
+     */
+    private void addSegment(int walker, double x0, double y0, double x1, double y1, Color color) {
+        if (segmentCount == segmentWalkers.length) {
+            segmentWalkers = Arrays.copyOf(segmentWalkers, 2 * segmentCount);
+            segmentCoords = Arrays.copyOf(segmentCoords, 8 * segmentCount);
+            segmentColors = Arrays.copyOf(segmentColors, 2 * segmentCount);
+        }
+        segmentWalkers[segmentCount] = walker;
+        segmentCoords[4 * segmentCount] = x0;
+        segmentCoords[4 * segmentCount + 1] = y0;
+        segmentCoords[4 * segmentCount + 2] = x1;
+        segmentCoords[4 * segmentCount + 3] = y1;
+        segmentColors[segmentCount++] = color;
+    }
+
+    /**
+     * Adds the lattice site of a position
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    private void addSite(double x, double y) {
+        if (2 * siteCount == sites.length) {
+            sites = Arrays.copyOf(sites, 2 * sites.length);
+        }
+        sites[2 * siteCount] = Math.round(x / RandomWalkEngine.STEP_SIZE);
+        sites[2 * siteCount++ + 1] = Math.round(y / RandomWalkEngine.STEP_SIZE);
+    }
+
+    /**
+     * Sets the latest position of a walker, replacing one from an earlier tick
+     *
+     * @param id walker id
+     * @param x  x-coordinate
+     * @param y  y-coordinate
+     */
+    private void addPosition(int id, double x, double y) {
+        int slot = positionSlot[id];
+        if (slot < 0) {
+            if (positionCount == positionWalkers.length) {
+                positionWalkers = Arrays.copyOf(positionWalkers, 2 * positionCount);
+                positions = Arrays.copyOf(positions, 4 * positionCount);
+            }
+            slot = positionCount++;
+            positionWalkers[slot] = id;
+            positionSlot[id] = slot;
+        }
+        positions[2 * slot] = x;
+        positions[2 * slot + 1] = y;
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        GaussianKernel.java
+ * @Description Step kernel of continuous-angle Gaussian moves
+ */
+
+/**
+ * Step kernel of continuous-angle Gaussian moves
+ *
+ * A move is a pair of independent normal displacements, drawn as a uniform
+ * angle and a Rayleigh distributed length by inverting their distribution
+ * functions, so each move takes exactly two random longs. The move is split
+ * into whole steps of at most STEP_SIZE each, which count towards the step
+ * limit and mark visited cells like lattice steps do.
+ *
+ * A move that must fit the room around the walker is drawn the same way and
+ * then cut short where it would cross an edge, as if the walker were stopped
+ * by it, which keeps the draw at two random longs.
+ */
+public class GaussianKernel extends StepKernel {
+
+    // Data fields
+
+    private final String name; // spec of kernel
+    private final double sigma; // standard deviation of each axis in steps
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param name  spec of kernel
+     * @param sigma standard deviation of each axis in steps
+     */
+    GaussianKernel(String name, double sigma) {
+        this.name = name;
+        this.sigma = sigma;
+    }
+
+    // Other methods
+
+    /**
+     * Draws an angle and a length
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     */
+    @Override
+    void draw(RandomWalkEngine engine, int i) {
+        double angle = 2 * Math.PI * SplitMix64.unitDouble(engine.nextLong(i));
+        double length = sigma * Math.sqrt(-2 * Math.log1p(-SplitMix64.unitDouble(engine.nextLong(i))));
+        int steps = Math.max(1, (int) Math.ceil(length));
+        engine.setStep(i, length * Math.cos(angle) / steps, length * Math.sin(angle) / steps, steps);
+    }
+
+    /**
+     * Draws an angle and a length, shortening the length to the room along
+     * that angle
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     * @param west   room towards negative x, in steps
+     * @param north  room towards negative y, in steps
+     * @param east   room towards positive x, in steps
+     * @param south  room towards positive y, in steps
+     */
+    @Override
+    void drawWithin(RandomWalkEngine engine, int i, double west, double north, double east, double south) {
+        double angle = 2 * Math.PI * SplitMix64.unitDouble(engine.nextLong(i));
+        double length = sigma * Math.sqrt(-2 * Math.log1p(-SplitMix64.unitDouble(engine.nextLong(i))));
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        if (cos != 0) {
+            length = Math.min(length, (cos > 0 ? east : west) / Math.abs(cos));
+        }
+        if (sin != 0) {
+            length = Math.min(length, (sin > 0 ? south : north) / Math.abs(sin));
+        }
+        length = Math.max(0, length);
+        if (length == 0) {
+            engine.setStep(i, 0, 0, 0);
+            return;
+        }
+        int steps = Math.max(1, (int) Math.ceil(length));
+        engine.setStep(i, length * cos / steps, length * sin / steps, steps);
+    }
+
+    /**
+     * Returns the spec of the kernel
+     *
+     * @return spec, parsed back by StepKernel.parse()
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
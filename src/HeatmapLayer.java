@@ -0,0 +1,127 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        HeatmapLayer.java
+ * @Description Translucent image of a density grid laid over the walk
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Translucent image of a density grid laid over the walk
+ *
+ * Holds one pixel per grid cell in a PixelBuffer, colored by the cell's heat
+ * level and stretched over the pane, and leaves cells never passed through
+ * transparent. Since levels are relative to the largest count, a refresh
+ * recolors every cell, one row of the grid at a time, and is skipped when no
+ * count changed.
+ */
+public class HeatmapLayer extends ImageView {
+
+    // Constants
+
+    private static final double OPACITY = 0.6; // opacity of a visited cell
+    private static final int[] COLORS = colors(); // premultiplied ARGB of each heat level
+
+    // Data fields
+
+    private int columns = 0; // width of pixel buffer
+    private int rows = 0; // height of pixel buffer
+    private IntBuffer pixels = null; // premultiplied ARGB pixels, row by row
+    private PixelBuffer<IntBuffer> pixelBuffer = null; // pixels shared with the image
+    private int[] counts = new int[0]; // counts of the row being colored
+    private int[] row = new int[0]; // pixels of the row being colored
+    private byte[] levels = new byte[0]; // heat level of each small count, rebuilt when the largest count changes
+    private int levelsMax = -1; // largest count the levels were built for
+    private long shownTotal = -1; // total of the grid as last shown
+
+    // Constructors
+
+    /**
+     * No-arg constructor
+     */
+    HeatmapLayer() {
+        setPreserveRatio(false);
+        setSmooth(false);
+        setMouseTransparent(true);
+    }
+
+    // Other methods
+
+    /**
+     * Redraws the image from a grid if any count changed since the last
+     * refresh, must run on the JavaFX application thread
+     *
+     * @param grid grid to show
+     */
+    public void refresh(DensityGrid grid) {
+        if (grid.getColumns() != columns || grid.getRows() != rows) {
+            resize(grid.getColumns(), grid.getRows());
+        } else if (grid.getTotal() == shownTotal) {
+            return;
+        }
+        shownTotal = grid.getTotal();
+        if (grid.getMax() != levelsMax) {
+            levelsMax = grid.getMax();
+            levels = new byte[Math.min(4096, levelsMax + 1)];
+            for (int k = 0; k < levels.length; k++) {
+                levels[k] = (byte) grid.level(k);
+            }
+        }
+
+        pixelBuffer.updateBuffer(buffer -> {
+            for (int r = 0; r < rows; r++) {
+                grid.getRow(r, counts);
+                for (int k = 0; k < columns; k++) {
+                    int count = counts[k];
+                    row[k] = COLORS[count < levels.length ? levels[count] & 0xff : grid.level(count)];
+                }
+                pixels.put(r * columns, row);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Resizes the pixel buffer to one pixel per cell
+     *
+     * @param columns cells per row
+     * @param rows    rows of cells
+     */
+    private void resize(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        // PixelBuffer needs a direct buffer
+        pixels = ByteBuffer.allocateDirect(columns * rows * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<IntBuffer>(columns, rows, pixels, PixelFormat.getIntArgbPreInstance());
+        setImage(new WritableImage(pixelBuffer));
+        counts = new int[columns];
+        row = new int[columns];
+    }
+
+    /**
+     * Builds the overlay colors from the heat palette, level 0 transparent
+     *
+     * @return premultiplied ARGB of each level
+     */
+    private static int[] colors() {
+        int[] colors = new int[DensityGrid.PALETTE.length];
+        int alpha = (int) Math.round(OPACITY * 255);
+        for (int k = 1; k < colors.length; k++) {
+            int rgb = DensityGrid.PALETTE[k];
+            int r = (rgb >> 16 & 0xff) * alpha / 255;
+            int g = (rgb >> 8 & 0xff) * alpha / 255;
+            int b = (rgb & 0xff) * alpha / 255;
+            colors[k] = alpha << 24 | r << 16 | g << 8 | b;
+        }
+        return colors;
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        LatticeKernel.java
+ * @Description Step kernel of neighbour directions and whole numbers of steps
+ */
+
+/**
+ * Step kernel of neighbour directions and whole numbers of steps
+ *
+ * Directions and numbers of steps are drawn independently, each from its own
+ * alias table, so a move costs two random longs and constant time however
+ * many directions or step counts have weight. With equal weights the draws
+ * are the same as picking uniformly, so the standard kernel walks exactly as
+ * it did before kernels were pluggable.
+ *
+ * A move that must fit the room around the walker weighs each direction by
+ * its weight times the total length weight of the steps that fit that way,
+ * then draws the number of steps from the cumulative length weights, so it
+ * takes a single random long and never redraws.
+ */
+public class LatticeKernel extends StepKernel {
+
+    // Data fields
+
+    private final String name; // spec of kernel
+    private final int[] directionX; // x-differential of each direction with weight
+    private final int[] directionY; // y-differential of each direction with weight
+    private final double[] directionWeights; // relative weight of each direction with weight
+    private final AliasTable directions; // sampler of direction indices
+    private final AliasTable lengths; // sampler of numbers of steps, less 1
+    private final double[] cumulativeLengths; // total weight of 1 to k steps at index k
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param name    spec of kernel
+     * @param weights relative weights of N, NE, E, SE, S, SW, W and NW
+     * @param lengths relative weights of 1, 2, 3, ... steps
+     */
+    LatticeKernel(String name, double[] weights, double[] lengths) {
+        this.name = name;
+        int count = 0;
+        for (double weight : weights) {
+            if (weight > 0) {
+                count++;
+            }
+        }
+        // drop directions never taken so they cost no table slots
+        directionX = new int[count];
+        directionY = new int[count];
+        double[] kept = new double[count];
+        int n = 0;
+        for (int d = 0; d < weights.length; d++) {
+            if (weights[d] > 0) {
+                directionX[n] = DIRECTION_X[d];
+                directionY[n] = DIRECTION_Y[d];
+                kept[n++] = weights[d];
+            }
+        }
+        directionWeights = kept;
+        directions = new AliasTable(kept);
+        this.lengths = new AliasTable(lengths);
+        cumulativeLengths = new double[lengths.length + 1];
+        for (int k = 0; k < lengths.length; k++) {
+            cumulativeLengths[k + 1] = cumulativeLengths[k] + lengths[k];
+        }
+    }
+
+    // Other methods
+
+    /**
+     * Draws a direction, then a number of steps
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     */
+    @Override
+    void draw(RandomWalkEngine engine, int i) {
+        int d = directions.sample(engine.nextLong(i));
+        int steps = lengths.sample(engine.nextLong(i)) + 1;
+        engine.setStep(i, directionX[d], directionY[d], steps);
+    }
+
+    /**
+     * Draws a direction weighted by the steps that fit along it, then a number
+     * of steps from among those that fit
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     * @param west   room towards negative x, in steps
+     * @param north  room towards negative y, in steps
+     * @param east   room towards positive x, in steps
+     * @param south  room towards positive y, in steps
+     */
+    @Override
+    void drawWithin(RandomWalkEngine engine, int i, double west, double north, double east, double south) {
+        double total = 0;
+        for (int d = 0; d < directionWeights.length; d++) {
+            total += directionWeights[d] * cumulativeLengths[fittingSteps(d, west, north, east, south)];
+        }
+        // area too small to move in
+        if (total == 0) {
+            engine.setStep(i, 0, 0, 0);
+            return;
+        }
+
+        double pick = SplitMix64.unitDouble(engine.nextLong(i)) * total;
+        int d = -1;
+        int fitting = 0;
+        for (int k = 0; k < directionWeights.length; k++) {
+            int steps = fittingSteps(k, west, north, east, south);
+            double mass = directionWeights[k] * cumulativeLengths[steps];
+            if (mass == 0) {
+                continue;
+            }
+            // the last direction that fits takes whatever rounding leaves over
+            d = k;
+            fitting = steps;
+            if (pick < mass) {
+                break;
+            }
+            pick -= mass;
+        }
+
+        // smallest number of steps whose cumulative weight exceeds the pick
+        double target = Math.min(pick / directionWeights[d], cumulativeLengths[fitting]);
+        int low = 1;
+        int high = fitting;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeLengths[middle] > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        engine.setStep(i, directionX[d], directionY[d], low);
+    }
+
+    /**
+     * Returns the number of steps in a direction that fit the room, at most
+     * the longest move
+     *
+     * @param d     index of direction with weight
+     * @param west  room towards negative x, in steps
+     * @param north room towards negative y, in steps
+     * @param east  room towards positive x, in steps
+     * @param south room towards positive y, in steps
+     * @return number of fitting steps, from 0
+     */
+    private int fittingSteps(int d, double west, double north, double east, double south) {
+        int longest = cumulativeLengths.length - 1;
+        double room = Math.min(directionX[d] > 0 ? east : directionX[d] < 0 ? west : longest,
+                directionY[d] > 0 ? south : directionY[d] < 0 ? north : longest);
+        return (int) Math.max(0, Math.min(longest, Math.floor(room)));
+    }
+
+    /**
+     * Returns the spec of the kernel
+     *
+     * @return spec, parsed back by StepKernel.parse()
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
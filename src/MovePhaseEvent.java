@@ -0,0 +1,32 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        MovePhaseEvent.java
+ * @Description JFR event around the move phase of a tick
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event around the move phase of a tick
+ */
+@Name("randomwalk.MovePhase")
+@Label("Move Phase")
+@Category("Random Walk")
+@Description("Moves every ready walker by one move")
+public class MovePhaseEvent extends Event {
+
+    @Label("Tick")
+    int tick; // tick of engine
+
+    @Label("Walkers Moved")
+    int moved; // number of walkers moved
+
+    @Label("Parallel")
+    boolean parallel; // whether walkers were moved on the fork/join pool
+
+}
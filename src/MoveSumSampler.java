@@ -0,0 +1,74 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        MoveSumSampler.java
+ * @Description Exact sampler of the total steps of several moves
+ */
+
+/**
+ * Exact sampler of the total steps of several moves
+ *
+ * The number of steps of a move is uniform from 1 to MAX_STEP_COUNT, so the
+ * total of n moves follows the n-fold convolution of that distribution. One
+ * alias table per n, built once with AliasTable.build() and packed into
+ * shared arrays, draws such a total in constant time from a single random
+ * long instead of n draws.
+ */
+public class MoveSumSampler {
+
+    // Constants
+
+    public static final int MAX_MOVES = 128; // largest number of moves sampled at once
+
+    private static final int STEP_COUNT = RandomWalkEngine.MAX_STEP_COUNT; // outcomes of a single move
+    private static final int[] OFFSET = new int[MAX_MOVES + 2]; // first table slot of each n
+    private static final double[] PROBABILITY; // alias table acceptance probabilities
+    private static final int[] ALIAS; // alias table alternatives, as totals less n
+
+    static {
+        for (int n = 1; n <= MAX_MOVES; n++) {
+            OFFSET[n + 1] = OFFSET[n] + (STEP_COUNT - 1) * n + 1;
+        }
+        PROBABILITY = new double[OFFSET[MAX_MOVES + 1]];
+        ALIAS = new int[OFFSET[MAX_MOVES + 1]];
+
+        // distribution of the total of n moves, from n to STEP_COUNT * n,
+        // built up one move at a time
+        double[] distribution = { 1 };
+        for (int n = 1; n <= MAX_MOVES; n++) {
+            double[] convolved = new double[distribution.length + STEP_COUNT - 1];
+            for (int k = 0; k < distribution.length; k++) {
+                for (int s = 0; s < STEP_COUNT; s++) {
+                    convolved[k + s] += distribution[k] / STEP_COUNT;
+                }
+            }
+            distribution = convolved;
+            AliasTable.build(distribution, PROBABILITY, ALIAS, OFFSET[n]);
+        }
+    }
+
+    // Constructors
+
+    /**
+     * No-arg constructor, not instantiable
+     */
+    private MoveSumSampler() {
+    }
+
+    // Other methods
+
+    /**
+     * Draws the total steps of n moves
+     *
+     * @param n      number of moves, from 1 to MAX_MOVES
+     * @param random random long, the upper half picks a slot and the lower half accepts it
+     * @return total number of steps, from n to MAX_STEP_COUNT * n
+     */
+    public static int sample(int n, long random) {
+        int size = OFFSET[n + 1] - OFFSET[n];
+        int slot = OFFSET[n] + SplitMix64.boundedInt(random, size);
+        double coin = (random & 0xffffffffL) * 0x1.0p-32;
+        return n + (coin < PROBABILITY[slot] ? slot - OFFSET[n] : ALIAS[slot]);
+    }
+
+}
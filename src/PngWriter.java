@@ -0,0 +1,173 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        PngWriter.java
+ * @Description Streaming encoder of palette PNG images
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming encoder of palette PNG images
+ *
+ * Takes an image one row of palette indices at a time and deflates each row
+ * straight into IDAT chunks of at most CHUNK_SIZE bytes, so only a row and a
+ * chunk are ever held in memory however large the image is. Rows are stored
+ * unfiltered, which compresses the long runs of a density grid well.
+ */
+public class PngWriter implements AutoCloseable {
+
+    // Constants
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' }; // file start
+    private static final int CHUNK_SIZE = 1 << 16; // bytes of compressed image data per IDAT chunk
+
+    // Data fields
+
+    private final DataOutputStream out; // image file
+    private final int width; // pixels per row
+    private final int height; // rows of pixels
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED); // compresses the rows
+    private final CRC32 crc = new CRC32(); // checksum of each chunk
+    private final byte[] scanline; // filter byte and palette indices of the row being written
+    private final byte[] chunk = new byte[CHUNK_SIZE]; // compressed data not yet written
+    private int chunkSize = 0; // bytes of compressed data in chunk
+    private int rowsWritten = 0; // number of rows written
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor, creates the file and writes the header and palette
+     *
+     * @param path    image file, replaced if it exists
+     * @param width   pixels per row
+     * @param height  rows of pixels
+     * @param palette RGB color of each palette index, at most 256
+     * @throws IOException if the file cannot be written
+     */
+    PngWriter(Path path, int width, int height, int[] palette) throws IOException {
+        if (width < 1 || height < 1 || palette.length < 1 || palette.length > 256) {
+            throw new IllegalArgumentException("Bad PNG size " + width + "x" + height
+                    + " or palette of " + palette.length);
+        }
+        this.width = width;
+        this.height = height;
+        scanline = new byte[width + 1];
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), CHUNK_SIZE));
+        out.write(SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // bits per index
+        header[9] = 3; // palette color type
+        writeChunk("IHDR", header, header.length);
+
+        byte[] colors = new byte[palette.length * 3];
+        for (int k = 0; k < palette.length; k++) {
+            colors[3 * k] = (byte) (palette[k] >> 16);
+            colors[3 * k + 1] = (byte) (palette[k] >> 8);
+            colors[3 * k + 2] = (byte) palette[k];
+        }
+        writeChunk("PLTE", colors, colors.length);
+    }
+
+    // Other methods
+
+    /**
+     * Appends the next row of the image
+     *
+     * @param indices palette index of each pixel of the row, at least width long
+     * @throws IOException if the file cannot be written
+     */
+    public void writeRow(byte[] indices) throws IOException {
+        if (rowsWritten == height) {
+            throw new IllegalStateException("PNG already has all " + height + " rows");
+        }
+        System.arraycopy(indices, 0, scanline, 1, width);
+        deflater.setInput(scanline);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+        rowsWritten++;
+    }
+
+    /**
+     * Flushes the compressed rows and ends the image
+     *
+     * @throws IOException if the file cannot be written or rows are missing
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+            if (chunkSize > 0) {
+                writeChunk("IDAT", chunk, chunkSize);
+            }
+            writeChunk("IEND", chunk, 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+        if (rowsWritten < height) {
+            throw new IOException("PNG ended after " + rowsWritten + " of " + height + " rows");
+        }
+    }
+
+    /**
+     * Compresses pending input into the chunk, writing the chunk out when full
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void deflate() throws IOException {
+        chunkSize += deflater.deflate(chunk, chunkSize, CHUNK_SIZE - chunkSize);
+        if (chunkSize == CHUNK_SIZE) {
+            writeChunk("IDAT", chunk, chunkSize);
+            chunkSize = 0;
+        }
+    }
+
+    /**
+     * Writes a chunk with its length and checksum
+     *
+     * @param type   four-letter chunk type
+     * @param data   chunk data
+     * @param length bytes of data
+     * @throws IOException if the file cannot be written
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        crc.reset();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Stores an int big-endian, as every number in a PNG is
+     *
+     * @param bytes  destination
+     * @param offset index of first byte
+     * @param value  value to store
+     */
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+}
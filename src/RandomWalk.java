@@ -34,6 +34,9 @@
   // TODO: look over program for cases where methods can be made to return values
   // mainRW -> primary...
   
+import java.io.File;
+import java.io.IOException;
+
 import javafx.application.Application;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -42,10 +45,14 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -53,6 +60,12 @@ import javafx.stage.Stage;
  */
 public class RandomWalk extends Application {
 
+    // Data fields
+
+    private EnsembleView ensemble = null; // grid of simulations shown instead of the pane, null if off
+    private EnsembleView spareEnsemble = null; // last ensemble, reused by the next one of the same grid
+    private boolean seedShown = false; // whether the seed field shows a seed the user did not type
+
     /**
      * Main method
      * @param args command line arguments
@@ -92,10 +105,61 @@ public class RandomWalk extends Application {
         durationComboBox.setMinWidth(75);
         durationComboBox.setMaxWidth(75);
 
+        // trail capacity in segments, 0 keeps the whole trail
+        Integer[] trailTitles = { 0, 1000, 5000, 10000, 50000 };
+        ObservableList<Integer> trails = FXCollections.observableArrayList(trailTitles);
+        ComboBox<Integer> trailComboBox = new ComboBox<Integer>(trails);
+        trailComboBox.setValue(0);
+        trailComboBox.setMinWidth(75);
+        trailComboBox.setMaxWidth(75);
+
+        // dormant walkers placed by initialize, drawn as sprites in one image
+        Integer[] walkerTitles = { 10, 100, 1000, 10000, 100000 };
+        ObservableList<Integer> walkers = FXCollections.observableArrayList(walkerTitles);
+        ComboBox<Integer> walkersComboBox = new ComboBox<Integer>(walkers);
+        walkersComboBox.setValue(RandomWalkEngine.DORMANT_COUNT);
+        walkersComboBox.setMinWidth(100);
+        walkersComboBox.setMaxWidth(100);
+
+        ComboBox<BoundaryPolicy> policyComboBox = new ComboBox<BoundaryPolicy>(
+                FXCollections.observableArrayList(BoundaryPolicy.values()));
+        policyComboBox.setValue(BoundaryPolicy.RESTRICT);
+        policyComboBox.setMinWidth(100);
+        policyComboBox.setMaxWidth(100);
+
+        // step kernels, the standard 8-neighbour walk first
+        ComboBox<StepKernel> kernelComboBox = new ComboBox<StepKernel>(FXCollections.observableArrayList(
+                StepKernel.STANDARD, StepKernel.fourNeighbour(),
+                StepKernel.biased(new double[] { 1, 1, 2, 1, 1, 1, 1, 1 }),
+                StepKernel.levy(1.5, StepKernel.LEVY_MAX_STEPS), StepKernel.gaussian(3)));
+        kernelComboBox.setValue(StepKernel.STANDARD);
+        kernelComboBox.setMinWidth(160);
+        kernelComboBox.setMaxWidth(160);
+
+        // ensemble of rows x columns simulations, 1x1 is the single pane
+        ComboBox<String> ensembleComboBox = new ComboBox<String>(FXCollections.observableArrayList(
+                "1x1", "2x2", "2x3", "3x3", "3x4", "4x4", "6x6", "8x8"));
+        ensembleComboBox.setValue("1x1");
+        ensembleComboBox.setMinWidth(75);
+        ensembleComboBox.setMaxWidth(75);
+
+        // seed TextField, left blank for a random seed
+        TextField seedTextField = new TextField();
+        seedTextField.setPromptText("random");
+        seedTextField.setMinWidth(160);
+        seedTextField.setMaxWidth(160);
+
         // create Labels for ComboBoxes
         Label heightLabel = new Label("Height ");
         Label widthLabel = new Label("Width ");
         Label durationLabel = new Label("Duration ");
+        Label trailLabel = new Label("Trail ");
+        Label policyLabel = new Label("Boundary ");
+        Label seedLabel = new Label("Seed ");
+        Label walkersLabel = new Label("Walkers ");
+        Label kernelLabel = new Label("Kernel ");
+        Label ensembleLabel = new Label("Ensemble ");
+        Label cellLabel = new Label("Cell ");
 
         // create initialize, play, pause, and reset Buttons
         Button initializeButton = new Button("Initialize");
@@ -114,6 +178,57 @@ public class RandomWalk extends Application {
         resetButton.setMaxWidth(75);
         resetButton.setDisable(true);
 
+        // create record CheckBox, replay Button, and replay seek Slider
+        CheckBox recordCheckBox = new CheckBox("Record");
+        Button replayButton = new Button("Replay");
+        replayButton.setMinWidth(75);
+        replayButton.setMaxWidth(75);
+        Slider replaySlider = new Slider(0, 0, 0);
+        replaySlider.setMinWidth(160);
+        replaySlider.setMaxWidth(160);
+        replaySlider.setDisable(true);
+
+        // create snapshot save and resume Buttons
+        Button saveButton = new Button("Save");
+        saveButton.setMinWidth(75);
+        saveButton.setMaxWidth(75);
+        saveButton.setDisable(true);
+        Button resumeButton = new Button("Resume");
+        resumeButton.setMinWidth(75);
+        resumeButton.setMaxWidth(75);
+
+        // metrics CheckBox toggles the performance overlay
+        CheckBox metricsCheckBox = new CheckBox("Metrics");
+
+        // heatmap CheckBox toggles the density overlay, cell ComboBox sets its
+        // resolution in pixels per cell side, export Button writes it out
+        CheckBox heatmapCheckBox = new CheckBox("Heatmap");
+        Integer[] cellTitles = { 1, 2, 4, 8, 16 };
+        ObservableList<Integer> cells = FXCollections.observableArrayList(cellTitles);
+        ComboBox<Integer> cellComboBox = new ComboBox<Integer>(cells);
+        cellComboBox.setValue(2);
+        cellComboBox.setMinWidth(75);
+        cellComboBox.setMaxWidth(75);
+        Button exportButton = new Button("Export");
+        exportButton.setMinWidth(75);
+        exportButton.setMaxWidth(75);
+        exportButton.setDisable(true);
+
+        // charts CheckBox toggles the analytics side panel
+        CheckBox chartsCheckBox = new CheckBox("Charts");
+        chartsCheckBox.setSelected(true);
+
+        // turbo CheckBoxes and frame budget in milliseconds of ticks per frame
+        CheckBox turboCheckBox = new CheckBox("Turbo");
+        CheckBox renderAtEndCheckBox = new CheckBox("Render at end");
+        Integer[] budgetTitles = { 4, 8, 12, 16 };
+        ObservableList<Integer> budgets = FXCollections.observableArrayList(budgetTitles);
+        ComboBox<Integer> budgetComboBox = new ComboBox<Integer>(budgets);
+        budgetComboBox.setValue(12);
+        budgetComboBox.setMinWidth(75);
+        budgetComboBox.setMaxWidth(75);
+        Label budgetLabel = new Label("Budget ");
+
         // TODO: instead of GridPane, VBox on left
         // create GridPane to hold Labels, ComboBoxes, and Buttons
         GridPane gridPane = new GridPane();
@@ -132,26 +247,147 @@ public class RandomWalk extends Application {
         gridPane.add(playButton, 2, 1);
         gridPane.add(pauseButton, 2, 2);
         gridPane.add(resetButton, 3, 0);
+        gridPane.add(trailLabel, 4, 0);
+        gridPane.add(trailComboBox, 5, 0);
+        gridPane.add(policyLabel, 4, 1);
+        gridPane.add(policyComboBox, 5, 1);
+        gridPane.add(seedLabel, 4, 2);
+        gridPane.add(seedTextField, 5, 2);
+        gridPane.add(recordCheckBox, 3, 1);
+        gridPane.add(replayButton, 3, 2);
+        gridPane.add(replaySlider, 5, 3);
+        gridPane.add(metricsCheckBox, 3, 3);
+        gridPane.add(resumeButton, 1, 3);
+        gridPane.add(saveButton, 2, 3);
+        gridPane.add(budgetLabel, 6, 0);
+        gridPane.add(budgetComboBox, 7, 0);
+        gridPane.add(turboCheckBox, 7, 1);
+        gridPane.add(renderAtEndCheckBox, 7, 2);
+        gridPane.add(walkersLabel, 6, 3);
+        gridPane.add(walkersComboBox, 7, 3);
+        gridPane.add(kernelLabel, 4, 4);
+        gridPane.add(kernelComboBox, 5, 4);
+        gridPane.add(chartsCheckBox, 3, 4);
+        gridPane.add(heatmapCheckBox, 1, 4);
+        gridPane.add(exportButton, 2, 4);
+        gridPane.add(cellLabel, 0, 5);
+        gridPane.add(cellComboBox, 1, 5);
+        gridPane.add(ensembleLabel, 6, 4);
+        gridPane.add(ensembleComboBox, 7, 4);
+        GridPane.setHalignment(budgetLabel, HPos.RIGHT);
         GridPane.setHalignment(widthLabel, HPos.RIGHT);
         GridPane.setHalignment(heightLabel, HPos.RIGHT);
         GridPane.setHalignment(durationLabel, HPos.RIGHT);
+        GridPane.setHalignment(trailLabel, HPos.RIGHT);
+        GridPane.setHalignment(policyLabel, HPos.RIGHT);
+        GridPane.setHalignment(seedLabel, HPos.RIGHT);
+        GridPane.setHalignment(walkersLabel, HPos.RIGHT);
+        GridPane.setHalignment(kernelLabel, HPos.RIGHT);
+        GridPane.setHalignment(ensembleLabel, HPos.RIGHT);
+        GridPane.setHalignment(cellLabel, HPos.RIGHT);
 
         // TODO: try rate slider again?
 
         // create uninitialized RandomWalkPane 
-        // (size must be fixed or recursion in RandomWalkPane::move() function can crash on resizing)
+        // (size is fixed to the selected width and height)
         RandomWalkPane rwPane = new RandomWalkPane();
         rwPane.setSize(defaultWidth, defaultHeight);
         rwPane.setMinSize(defaultWidth, defaultHeight);
         rwPane.setMaxSize(defaultWidth, defaultHeight);
         rwPane.setStyle("-fx-border-color: black; -fx-border-width: 2");
 
+        // create analytics side panel, its statistics are computed off the FX thread
+        WalkAnalytics analytics = new WalkAnalytics();
+        AnalyticsPanel analyticsPanel = new AnalyticsPanel(analytics);
+        rwPane.setAnalytics(analytics);
+
         // create central BorderPane 
         BorderPane borderPane = new BorderPane();
         borderPane.setTop(gridPane);
         borderPane.setCenter(rwPane);
+        borderPane.setRight(analyticsPanel);
         BorderPane.setAlignment(rwPane, Pos.CENTER);
 
+        // trail ComboBox caps the number of trail segments kept, oldest are erased first
+        trailComboBox.setOnAction(e -> {
+            rwPane.setTrailCapacity(trailComboBox.getValue());
+            if (ensemble != null) {
+                ensemble.setTrailCapacity(trailComboBox.getValue());
+            }
+        });
+
+        // boundary ComboBox selects how walkers are handled at the edge of the pane
+        policyComboBox.setOnAction(e -> {
+            rwPane.setPolicy(policyComboBox.getValue());
+            if (ensemble != null) {
+                ensemble.setPolicy(policyComboBox.getValue());
+            }
+        });
+
+        // kernel ComboBox selects the distribution of moves, from the next move on
+        kernelComboBox.setOnAction(e -> {
+            rwPane.setKernel(kernelComboBox.getValue());
+            if (ensemble != null) {
+                ensemble.setKernel(kernelComboBox.getValue());
+            }
+        });
+
+        // metrics CheckBox shows steps and collision tests per second, tick and frame
+        // times, scene node count, and allocation per step over the pane
+        metricsCheckBox.setOnAction(e -> rwPane.setMetricsVisible(metricsCheckBox.isSelected()));
+
+        // charts CheckBox shows mean squared displacement, displacement histogram,
+        // total steps per walker and activation timeline beside the pane, the
+        // walk is only sampled for them while shown
+        chartsCheckBox.setOnAction(e -> {
+            boolean shown = chartsCheckBox.isSelected();
+            analyticsPanel.setVisible(shown);
+            analyticsPanel.setManaged(shown);
+            rwPane.setAnalytics(shown ? analytics : null);
+        });
+
+        // heatmap CheckBox counts how often walkers pass through each cell from then
+        // on and shades the pane by it, export button saves the counts as a PNG
+        // heatmap or, for any other file name, as raw counts, and cell ComboBox
+        // starts counting afresh at the new resolution
+        heatmapCheckBox.setOnAction(e -> {
+            rwPane.setHeatmapVisible(heatmapCheckBox.isSelected());
+            exportButton.setDisable(rwPane.getDensity() == null);
+        });
+        cellComboBox.setOnAction(e -> rwPane.setDensityCellSize(cellComboBox.getValue()));
+        exportButton.setOnAction(e -> {
+            File file = new FileChooser().showSaveDialog(primaryStage);
+            if (file != null) {
+                try {
+                    rwPane.exportDensity(file.toPath());
+                } catch (IOException ex) {
+                    System.out.println(ex);
+                }
+            }
+        });
+
+        // turbo CheckBox runs as many ticks per frame as the budget allows, showing
+        // only the latest state, and render at end CheckBox holds back the trail
+        // until the walk is complete
+        turboCheckBox.setOnAction(e -> {
+            rwPane.setTurbo(turboCheckBox.isSelected());
+            if (ensemble != null) {
+                ensemble.setTurbo(turboCheckBox.isSelected());
+            }
+        });
+        renderAtEndCheckBox.setOnAction(e -> {
+            rwPane.setRenderAtEnd(renderAtEndCheckBox.isSelected());
+            if (ensemble != null) {
+                ensemble.setRenderAtEnd(renderAtEndCheckBox.isSelected());
+            }
+        });
+        budgetComboBox.setOnAction(e -> {
+            rwPane.setTurboBudget(budgetComboBox.getValue());
+            if (ensemble != null) {
+                ensemble.setTurboBudget(budgetComboBox.getValue());
+            }
+        });
+
         // initialize button initializes RandomWalkPane to selected width, height, and animation duration
         initializeButton.setOnAction(e -> {
 
@@ -161,35 +397,186 @@ public class RandomWalk extends Application {
             heightComboBox.setDisable(true);
             int duration = durationComboBox.getValue();
             durationComboBox.setDisable(true);
+            rwPane.setDormantCount(walkersComboBox.getValue());
+            walkersComboBox.setDisable(true);
+
+            // an entered seed reproduces a walk, otherwise show the random one used
+            try {
+                rwPane.setSeed(Long.parseLong(seedTextField.getText().trim()));
+            } catch (NumberFormatException ex) {
+                seedTextField.setText(Long.toString(rwPane.getSeed()));
+                seedShown = true;
+            }
+            seedTextField.setDisable(true);
+            ensembleComboBox.setDisable(true);
+
+            // an ensemble of several simulations takes the place of the pane,
+            // sharing its size and controls
+            String[] grid = ensembleComboBox.getValue().split("x");
+            int rows = Integer.parseInt(grid[0]);
+            int columns = Integer.parseInt(grid[1]);
+            if (rows * columns > 1) {
+                if (spareEnsemble != null && spareEnsemble.getRows() == rows
+                        && spareEnsemble.getColumns() == columns) {
+                    ensemble = spareEnsemble;
+                } else {
+                    ensemble = new EnsembleView(rows, columns);
+                }
+                ensemble.setSeed(rwPane.getSeed());
+                ensemble.setDormantCount(walkersComboBox.getValue());
+                ensemble.setPolicy(policyComboBox.getValue());
+                ensemble.setKernel(kernelComboBox.getValue());
+                ensemble.setTrailCapacity(trailComboBox.getValue());
+                ensemble.setTurboBudget(budgetComboBox.getValue());
+                ensemble.setTurbo(turboCheckBox.isSelected());
+                ensemble.setRenderAtEnd(renderAtEndCheckBox.isSelected());
+                ensemble.setSize(width, height);
+                ensemble.setDuration(duration);
+                borderPane.setCenter(ensemble);
+                ensemble.initialize();
+
+                recordCheckBox.setDisable(true);
+                replayButton.setDisable(true);
+                resumeButton.setDisable(true);
+                initializeButton.setDisable(true);
+                pauseButton.setDisable(false);
+                resetButton.setDisable(false);
+                return;
+            }
 
             rwPane.setSize(width, height);
             rwPane.setDuration(duration);
             rwPane.setMinSize(width, height);
             rwPane.setMaxSize(width, height);
-            rwPane.initialize();
+            // record CheckBox asks for a trajectory log to record to, before
+            // the walk starts so the log holds it from the first tick
+            File file = null;
+            if (recordCheckBox.isSelected()) {
+                file = new FileChooser().showSaveDialog(primaryStage);
+            }
+            try {
+                rwPane.initialize(file == null ? null : file.toPath());
+            } catch (IOException ex) {
+                System.out.println(ex);
+            }
+            recordCheckBox.setDisable(true);
+            replayButton.setDisable(true);
+            resumeButton.setDisable(true);
 
             initializeButton.setDisable(true);
             pauseButton.setDisable(false);
             resetButton.setDisable(false);
+            saveButton.setDisable(false);
 
         });
 
+        // replay button replays a trajectory log, and the slider seeks within it
+        replayButton.setOnAction(e -> {
+            File file = new FileChooser().showOpenDialog(primaryStage);
+            if (file == null) {
+                return;
+            }
+            try {
+                rwPane.setDuration(durationComboBox.getValue());
+                rwPane.replay(file.toPath());
+            } catch (IOException ex) {
+                System.out.println(ex);
+                return;
+            }
+            replaySlider.setMax(rwPane.getReplayLastTick());
+            replaySlider.setValue(0);
+            replaySlider.setDisable(false);
+            widthComboBox.setDisable(true);
+            heightComboBox.setDisable(true);
+            durationComboBox.setDisable(true);
+            walkersComboBox.setDisable(true);
+            seedTextField.setDisable(true);
+            ensembleComboBox.setDisable(true);
+            recordCheckBox.setDisable(true);
+            replayButton.setDisable(true);
+            resumeButton.setDisable(true);
+            initializeButton.setDisable(true);
+            playButton.setDisable(true);
+            pauseButton.setDisable(false);
+            resetButton.setDisable(false);
+        });
+
+        // save button snapshots the walk in the background, resume button
+        // restores a snapshot paused where it was saved
+        saveButton.setOnAction(e -> {
+            File file = new FileChooser().showSaveDialog(primaryStage);
+            if (file != null) {
+                rwPane.saveSnapshot(file.toPath());
+            }
+        });
+        resumeButton.setOnAction(e -> {
+            File file = new FileChooser().showOpenDialog(primaryStage);
+            if (file == null) {
+                return;
+            }
+            try {
+                rwPane.restoreSnapshot(file.toPath());
+            } catch (IOException ex) {
+                System.out.println(ex);
+                return;
+            }
+            rwPane.setDuration(durationComboBox.getValue());
+            policyComboBox.setValue(rwPane.getPolicy());
+            kernelComboBox.setValue(rwPane.getKernel());
+            seedTextField.setText(Long.toString(rwPane.getSeed()));
+            seedShown = true;
+            widthComboBox.setDisable(true);
+            heightComboBox.setDisable(true);
+            durationComboBox.setDisable(true);
+            walkersComboBox.setDisable(true);
+            seedTextField.setDisable(true);
+            ensembleComboBox.setDisable(true);
+            recordCheckBox.setDisable(true);
+            replayButton.setDisable(true);
+            resumeButton.setDisable(true);
+            initializeButton.setDisable(true);
+            playButton.setDisable(false);
+            pauseButton.setDisable(true);
+            resetButton.setDisable(false);
+            saveButton.setDisable(false);
+        });
+        replaySlider.valueChangingProperty().addListener((ov, wasChanging, changing) -> {
+            if (!changing) {
+                rwPane.seekReplay((int) replaySlider.getValue());
+            }
+        });
+        replaySlider.setOnMouseClicked(e -> rwPane.seekReplay((int) replaySlider.getValue()));
+
         // play button plays RandomWalkPane animations
         playButton.setOnAction(e -> {
-            rwPane.play();
+            if (ensemble != null) {
+                ensemble.play();
+            } else {
+                rwPane.play();
+            }
             playButton.setDisable(true);
             pauseButton.setDisable(false);
         });
 
         // pause button pauses RandomWalkPane animations
         pauseButton.setOnAction(e -> {
-            rwPane.pause();
+            if (ensemble != null) {
+                ensemble.pause();
+            } else {
+                rwPane.pause();
+            }
             pauseButton.setDisable(true);
             playButton.setDisable(false);
         });
 
-        // reset button resets RandomWalkPane
+        // reset button resets RandomWalkPane, or the ensemble and brings back the pane
         resetButton.setOnAction(e -> {
+            if (ensemble != null) {
+                ensemble.reset();
+                borderPane.setCenter(rwPane);
+                spareEnsemble = ensemble;
+                ensemble = null;
+            }
             rwPane.reset();
             resetButton.setDisable(true);
             playButton.setDisable(true);
@@ -197,12 +584,25 @@ public class RandomWalk extends Application {
             widthComboBox.setDisable(false);
             heightComboBox.setDisable(false);
             durationComboBox.setDisable(false);
+            walkersComboBox.setDisable(false);
+            // only a typed seed repeats the walk, a shown one makes way for a new random seed
+            if (seedShown) {
+                seedTextField.clear();
+                seedShown = false;
+            }
+            seedTextField.setDisable(false);
+            ensembleComboBox.setDisable(false);
+            recordCheckBox.setDisable(false);
+            replayButton.setDisable(false);
+            replaySlider.setDisable(true);
+            resumeButton.setDisable(false);
+            saveButton.setDisable(true);
             initializeButton.setDisable(false);
 
         });
 
         // create scene
-        Scene scene = new Scene(borderPane, defaultWidth + 200, defaultHeight + 200);
+        Scene scene = new Scene(borderPane, defaultWidth + 200 + AnalyticsPanel.CHART_WIDTH, defaultHeight + 200);
         primaryStage.setTitle("Random Walk");
         primaryStage.setScene(scene);
         primaryStage.show();
@@ -0,0 +1,1849 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        RandomWalkEngine.java
+ * @Description Headless simulation state and step kernel for the random walk
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Headless simulation state and step kernel for the random walk
+ *
+ * Every walker's state lives in parallel primitive arrays indexed by walker id,
+ * so the walk can be stepped and tested without a JavaFX scene graph.
+ * RandomWalkPane only reads from the engine to render.
+ */
+public class RandomWalkEngine {
+
+    // Constants
+
+    public static final int STEP_SIZE = 10; // size of steps
+    public static final int MAX_STEPS = 2000; // maximum number of steps
+    public static final int MAX_STEP_COUNT = 9; // maximum number of steps per move
+    public static final double MAIN_RADIUS = 5; // radius of main walker
+    public static final double DORMANT_RADIUS = 10; // radius of dormant walkers
+    public static final int DORMANT_COUNT = 10; // number of dormant walkers in standard scenario
+    private static final int PARALLEL_CHUNK = 4096; // walkers moved per parallel task
+    public static final double COLLISION_MARGIN = 1; // stroke widths of walker and trail
+    private static final double CELL_SIZE = 20; // cell size of collision grid
+    private static final int MIN_SKIP = 2; // fewest moves worth skipping ahead
+    private static final double MOVE_REACH = MAX_STEP_COUNT * STEP_SIZE; // farthest a move goes along an axis
+    private static final double MOVE_DISTANCE = MOVE_REACH * Math.sqrt(2); // farthest a move goes
+    private static final double CLEARANCE_CELL_SIZE = 2 * MOVE_REACH; // cell size of clearance grid
+    private static final double HORIZON_LIMIT = 64 * MOVE_DISTANCE; // largest collision horizon
+    private static final double HORIZON_SLACK = 1e-6; // rounding allowance of collision horizons
+
+    // cardinal and ordinal directions, N, NE, E, SE, S, SW, W, NW
+    private static final int[] DIRECTION_X = StepKernel.DIRECTION_X;
+    private static final int[] DIRECTION_Y = StepKernel.DIRECTION_Y;
+
+    // whether the JVM was started with --add-modules jdk.incubator.vector
+    public static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector")
+            .isPresent();
+
+    // Data fields
+
+    private double width; // width of walk area
+    private double height; // height of walk area
+    private BoundaryPolicy policy = BoundaryPolicy.RESTRICT; // edge handling
+    private long seed; // master seed of walker streams
+    private int count = 0; // number of walkers
+    private int tick = 0; // number of calls to step()
+    private int stepLimit = MAX_STEPS; // steps after which a walker is finished
+    private final CollisionGrid dormant; // spatial index of dormant walkers
+    private final CollisionGrid clearanceGrid; // coarse spatial index of dormant walkers for clearance queries
+    private int dormantEpoch = 0; // bumped whenever a dormant walker is added or moved
+    private boolean collisionHorizons = true; // whether moves inside a walker's horizon skip collision tests
+    private long horizonSkips = 0; // number of moves that needed no collision test
+    private int[] activations; // walker ids in order of activation
+    private int activationCount = 0; // number of activations
+    private VisitationBitmap visits = null; // cells visited by active walkers, null if not tracked
+    private boolean skipAhead = false; // whether moves far from anything are sampled in bulk
+    private StepKernel kernel = StepKernel.STANDARD; // distribution of moves
+    private VectorMoves vectorMoves = null; // lane-wise move kernel, null if moving one walker at a time
+
+    private double[] x; // x-coordinates
+    private double[] y; // y-coordinates
+    private double[] lastX; // x-coordinates before the last move
+    private double[] lastY; // y-coordinates before the last move
+    private double[] radius; // radii
+    private double[] dx; // x-coordinate differentials of a step, in steps
+    private double[] dy; // y-coordinate differentials of a step, in steps
+    private int[] steps; // number of steps taken by the last move
+    private int[] totalSteps; // total steps taken
+    private boolean[] active; // whether walker has been activated
+    private boolean[] absorbed; // whether walker has been absorbed by an edge
+    private boolean[] moved; // whether walker moved during the last step()
+    private int[] activationTick; // tick of activation, -1 if dormant
+    private long[] generators; // SplitMix64 state of each walker's random stream
+    private double[] originX; // x-coordinates walkers started from
+    private double[] originY; // y-coordinates walkers started from
+    private int[] returns; // number of returns to the starting cell
+    private int[] folded; // number of moves folded into the last move
+    private int[] resumeTick; // tick a walker that skipped ahead moves again on
+    private double[] horizonX; // x-coordinates of collision horizon centers
+    private double[] horizonY; // y-coordinates of collision horizon centers
+    private double[] horizonRadius; // radii of collision horizons
+    private int[] horizonEpoch; // dormantEpoch a collision horizon was measured in
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor, with a random master seed
+     *
+     * @param capacity initial number of walkers to allocate for
+     * @param width    width of walk area
+     * @param height   height of walk area
+     */
+    RandomWalkEngine(int capacity, double width, double height) {
+        this(capacity, width, height, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param capacity initial number of walkers to allocate for
+     * @param width    width of walk area
+     * @param height   height of walk area
+     * @param seed     master seed, each walker's stream is derived from it and its id
+     */
+    RandomWalkEngine(int capacity, double width, double height, long seed) {
+        capacity = Math.max(capacity, 1);
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        x = new double[capacity];
+        y = new double[capacity];
+        lastX = new double[capacity];
+        lastY = new double[capacity];
+        radius = new double[capacity];
+        dx = new double[capacity];
+        dy = new double[capacity];
+        steps = new int[capacity];
+        totalSteps = new int[capacity];
+        active = new boolean[capacity];
+        absorbed = new boolean[capacity];
+        moved = new boolean[capacity];
+        activationTick = new int[capacity];
+        generators = new long[capacity];
+        originX = new double[capacity];
+        originY = new double[capacity];
+        returns = new int[capacity];
+        folded = new int[capacity];
+        resumeTick = new int[capacity];
+        horizonX = new double[capacity];
+        horizonY = new double[capacity];
+        horizonRadius = new double[capacity];
+        horizonEpoch = new int[capacity];
+        activations = new int[capacity];
+        dormant = new CollisionGrid(width, height, CELL_SIZE, capacity);
+        clearanceGrid = new CollisionGrid(width, height, CLEARANCE_CELL_SIZE, capacity);
+    }
+
+    /**
+     * Multi-arg constructor, restores a snapshot
+     *
+     * With the snapshot's seed every walker continues its saved random
+     * stream, so the walk goes on exactly as it would have. Any other seed
+     * starts fresh streams derived from it and the walker ids, forking a new
+     * continuation from the saved state. Collision horizons are measured
+     * again, and visit tracking starts over from the walkers' positions.
+     *
+     * @param snapshot state taken by snapshot()
+     * @param seed     master seed of walker streams from here on
+     */
+    RandomWalkEngine(SimulationSnapshot snapshot, long seed) {
+        this(snapshot.count, snapshot.width, snapshot.height, seed);
+        restore(snapshot, seed);
+    }
+
+    /**
+     * Creates the standard scenario, a main walker in the center of the walk
+     * area and dormant walkers placed on a grid of tenths of the walk area
+     *
+     * @param width        width of walk area
+     * @param height       height of walk area
+     * @param dormantCount number of dormant walkers
+     * @param seed         master seed of placement and walker streams
+     * @return engine with the main walker as walker 0, already activated
+     */
+    public static RandomWalkEngine createScenario(double width, double height, int dormantCount, long seed) {
+        RandomWalkEngine engine = new RandomWalkEngine(dormantCount + 1, width, height, seed);
+        engine.placeScenario(dormantCount);
+        return engine;
+    }
+
+    // Getters and setters
+
+    /**
+     * Adds a dormant walker
+     *
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param radius radius of walker
+     * @return id of new walker
+     */
+    public int addWalker(double x, double y, double radius) {
+        if (count == this.x.length) {
+            grow(count * 2);
+        }
+        int i = count++;
+        this.x[i] = x;
+        this.y[i] = y;
+        lastX[i] = x;
+        lastY[i] = y;
+        this.radius[i] = radius;
+        dx[i] = 0;
+        dy[i] = 0;
+        steps[i] = 0;
+        totalSteps[i] = 0;
+        active[i] = false;
+        absorbed[i] = false;
+        moved[i] = false;
+        activationTick[i] = -1;
+        generators[i] = SplitMix64.streamSeed(seed, i);
+        originX[i] = x;
+        originY[i] = y;
+        returns[i] = 0;
+        folded[i] = 0;
+        resumeTick[i] = 0;
+        horizonRadius[i] = 0;
+        horizonEpoch[i] = -1;
+        dormant.insert(i, x, y, radius);
+        clearanceGrid.insert(i, x, y, radius);
+        dormantEpoch++;
+        return i;
+    }
+
+    /**
+     * Moves a walker without taking a step, dormant walkers are re-indexed
+     *
+     * @param i walker id
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    public void setPosition(int i, double x, double y) {
+        this.x[i] = x;
+        this.y[i] = y;
+        lastX[i] = x;
+        lastY[i] = y;
+        originX[i] = x;
+        originY[i] = y;
+        if (dormant.contains(i)) {
+            dormant.insert(i, x, y, radius[i]);
+            clearanceGrid.insert(i, x, y, radius[i]);
+            dormantEpoch++;
+        }
+    }
+
+    /**
+     * Sets the size of the walk area
+     *
+     * @param width  width of walk area
+     * @param height height of walk area
+     */
+    public void setSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Getter for width
+     *
+     * @return width of walk area
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for height
+     *
+     * @return height of walk area
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter for policy
+     *
+     * @return policy for walkers reaching the edge of the walk area
+     */
+    public BoundaryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Setter for policy
+     *
+     * @param policy policy for walkers reaching the edge of the walk area
+     */
+    public void setPolicy(BoundaryPolicy policy) {
+        this.policy = policy;
+        stepLimit = policy == BoundaryPolicy.UNBOUNDED ? Integer.MAX_VALUE : MAX_STEPS;
+    }
+
+    /**
+     * Switches skip-ahead sampling
+     *
+     * With skip-ahead on, a walker whose next k moves cannot reach an edge or
+     * a dormant walker makes all k at once: its position after k moves is
+     * drawn directly from the exact distribution, the k moves are shown as a
+     * single move, and it then sits out the next k - 1 ticks. Walks and
+     * activation times follow the same distributions as without it, but not
+     * the same random streams, so a seed gives a different walk. It is
+     * ignored while visits are tracked, since cells along skipped moves are
+     * never drawn, and with any kernel but StepKernel.STANDARD, whose sums
+     * MoveSumSampler draws.
+     *
+     * @param skipAhead whether to sample moves far from anything in bulk
+     */
+    public void setSkipAhead(boolean skipAhead) {
+        this.skipAhead = skipAhead;
+    }
+
+    /**
+     * Getter for kernel
+     *
+     * @return distribution of moves
+     */
+    public StepKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Setter for kernel
+     *
+     * @param kernel distribution of moves
+     */
+    public void setKernel(StepKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * Switches vectorized moves
+     *
+     * Moves whole lanes of walkers at once with the incubating Vector API:
+     * counting legal steps, drawing from each walker's stream and updating
+     * positions. Every walker draws from its own stream exactly as when moved
+     * alone, so the walk is identical. Applies to StepKernel.STANDARD under
+     * RESTRICT, and not while skipping ahead, other moves stay scalar as
+     * they gain nothing from lanes. Ignored unless the JVM
+     * runs with --add-modules jdk.incubator.vector.
+     *
+     * @param vectorized whether to move lanes of walkers at once
+     */
+    public void setVectorized(boolean vectorized) {
+        if (!vectorized || !VECTOR_AVAILABLE) {
+            vectorMoves = null;
+        } else if (vectorMoves == null) {
+            vectorMoves = new VectorMoves(this);
+        }
+    }
+
+    /**
+     * Returns whether moves are vectorized
+     *
+     * @return true if setVectorized() was switched on and the Vector API is available
+     */
+    public boolean isVectorized() {
+        return vectorMoves != null;
+    }
+
+    /**
+     * Switches collision horizons
+     *
+     * After a move is tested, the walker's collision horizon is the largest
+     * circle around its position that no dormant walker reaches into. Dormant
+     * walkers only disappear until one is added or moved, so while later
+     * moves start and end inside that circle they cannot touch anything and
+     * are not tested at all. A walk spreads with the square root of its
+     * length, so a horizon of n moves' reach lasts for about n^2 moves.
+     * Activations are the same as without horizons, only the work differs.
+     *
+     * @param collisionHorizons whether moves inside a walker's horizon skip collision tests
+     */
+    public void setCollisionHorizons(boolean collisionHorizons) {
+        this.collisionHorizons = collisionHorizons;
+    }
+
+    /**
+     * Getter for horizonSkips
+     *
+     * @return number of moves that stayed inside their collision horizon and needed no test
+     */
+    public long getHorizonSkips() {
+        return horizonSkips;
+    }
+
+    /**
+     * Returns the number of moves folded into the last move of a walker
+     *
+     * @param i walker id
+     * @return number of moves, more than 1 if the walker skipped ahead
+     */
+    public int getFolded(int i) {
+        return folded[i];
+    }
+
+    /**
+     * Getter for seed
+     *
+     * @return master seed of walker streams
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Getter for count
+     *
+     * @return number of walkers
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Getter for x-coordinate
+     *
+     * @param i walker id
+     * @return x-coordinate
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Getter for y-coordinate
+     *
+     * @param i walker id
+     * @return y-coordinate
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Getter for x-coordinate before the last move
+     *
+     * @param i walker id
+     * @return previous x-coordinate
+     */
+    public double getLastX(int i) {
+        return lastX[i];
+    }
+
+    /**
+     * Getter for y-coordinate before the last move
+     *
+     * @param i walker id
+     * @return previous y-coordinate
+     */
+    public double getLastY(int i) {
+        return lastY[i];
+    }
+
+    /**
+     * Getter for radius
+     *
+     * @param i walker id
+     * @return radius
+     */
+    public double getRadius(int i) {
+        return radius[i];
+    }
+
+    /**
+     * Getter for dx
+     *
+     * @param i walker id
+     * @return change in x of each step of the last move, in steps
+     */
+    public double getDx(int i) {
+        return dx[i];
+    }
+
+    /**
+     * Getter for dy
+     *
+     * @param i walker id
+     * @return change in y of each step of the last move, in steps
+     */
+    public double getDy(int i) {
+        return dy[i];
+    }
+
+    /**
+     * Getter for steps
+     *
+     * @param i walker id
+     * @return number of steps taken by the last move
+     */
+    public int getSteps(int i) {
+        return steps[i];
+    }
+
+    /**
+     * Getter for originX
+     *
+     * @param i walker id
+     * @return x-coordinate the walker started from
+     */
+    public double getOriginX(int i) {
+        return originX[i];
+    }
+
+    /**
+     * Getter for originY
+     *
+     * @param i walker id
+     * @return y-coordinate the walker started from
+     */
+    public double getOriginY(int i) {
+        return originY[i];
+    }
+
+    /**
+     * Getter for totalSteps
+     *
+     * @param i walker id
+     * @return total number of steps taken
+     */
+    public int getTotalSteps(int i) {
+        return totalSteps[i];
+    }
+
+    /**
+     * Returns whether the walker has been activated
+     *
+     * @param i walker id
+     * @return true if walker has been activated
+     */
+    public boolean isActive(int i) {
+        return active[i];
+    }
+
+    /**
+     * Activates the walker and removes it from the dormant index
+     *
+     * @param i walker id
+     */
+    public void activate(int i) {
+        if (active[i]) {
+            return;
+        }
+        active[i] = true;
+        activationTick[i] = tick;
+        activations[activationCount++] = i;
+        dormant.remove(i);
+        clearanceGrid.remove(i);
+        if (visits != null) {
+            visits.visit(cell(x[i]), cell(y[i]));
+        }
+    }
+
+    /**
+     * Starts tracking the lattice cells visited by active walkers, over a
+     * domain of the current walk area in cells of STEP_SIZE
+     *
+     * Cells are updated step by step during the collision pass, so tracking
+     * works with step() and stepParallel() alike. Cells outside the domain,
+     * after a resize or with the UNBOUNDED policy, widen the range but do not
+     * count towards coverage.
+     */
+    public void trackVisits() {
+        long columns = Math.max(1, (long) Math.ceil(width / STEP_SIZE));
+        long rows = Math.max(1, (long) Math.ceil(height / STEP_SIZE));
+        if (visits != null && visits.getColumns() == columns && visits.getRows() == rows) {
+            // same domain, the bitmap is reused
+            visits.clear();
+        } else {
+            visits = new VisitationBitmap(columns, rows);
+        }
+        for (int i = 0; i < count; i++) {
+            if (active[i]) {
+                visits.visit(cell(x[i]), cell(y[i]));
+            }
+        }
+    }
+
+    /**
+     * Getter for visits
+     *
+     * @return cells visited by active walkers, null if not tracked
+     */
+    public VisitationBitmap getVisits() {
+        return visits;
+    }
+
+    /**
+     * Returns how often a walker has stepped back onto its starting cell,
+     * counted while visits are tracked
+     *
+     * @param i walker id
+     * @return number of returns to the starting cell
+     */
+    public int getReturns(int i) {
+        return returns[i];
+    }
+
+    /**
+     * Getter for tick
+     *
+     * @return number of calls to step()
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the tick a walker was activated on
+     *
+     * @param i walker id
+     * @return tick of activation, -1 if dormant
+     */
+    public int getActivationTick(int i) {
+        return activationTick[i];
+    }
+
+    /**
+     * Getter for activationCount
+     *
+     * @return number of walkers activated so far
+     */
+    public int getActivationCount() {
+        return activationCount;
+    }
+
+    /**
+     * Returns an activated walker in order of activation
+     *
+     * @param k activation index, 0 is the first
+     * @return walker id
+     */
+    public int getActivation(int k) {
+        return activations[k];
+    }
+
+    /**
+     * Returns the number of exact collision tests run so far
+     *
+     * @return number of collision tests
+     */
+    public long getCollisionTests() {
+        return dormant.getTests();
+    }
+
+    /**
+     * Returns whether the walker has taken its maximum number of steps or has
+     * been absorbed by an edge
+     *
+     * @param i walker id
+     * @return true if walker is finished
+     */
+    public boolean isFinished(int i) {
+        return totalSteps[i] >= stepLimit || absorbed[i];
+    }
+
+    /**
+     * Returns whether no walker will move again, walkers that skipped ahead
+     * count as moving until the ticks they skipped have passed
+     *
+     * @return true if every active walker is finished
+     */
+    public boolean isComplete() {
+        for (int i = 0; i < count; i++) {
+            if (active[i] && (!isFinished(i) || resumeTick[i] > tick)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the x-displacement of the last move before any edge handling
+     *
+     * @param i walker id
+     * @return x-displacement of last move
+     */
+    public double getMoveX(int i) {
+        if (folded[i] > 1) {
+            return x[i] - lastX[i];
+        }
+        return dx[i] * steps[i] * STEP_SIZE;
+    }
+
+    /**
+     * Returns the y-displacement of the last move before any edge handling
+     *
+     * @param i walker id
+     * @return y-displacement of last move
+     */
+    public double getMoveY(int i) {
+        if (folded[i] > 1) {
+            return y[i] - lastY[i];
+        }
+        return dy[i] * steps[i] * STEP_SIZE;
+    }
+
+    /**
+     * Returns how many times the last move of a walker bounced off an edge
+     * under REFLECT, where its path turns
+     *
+     * @param i walker id
+     * @return number of bounces, 0 under any other policy
+     */
+    public int getBounceCount(int i) {
+        if (policy != BoundaryPolicy.REFLECT) {
+            return 0;
+        }
+        double r = radius[i];
+        return crossings(lastX[i], getMoveX(i), r, width - r) + crossings(lastY[i], getMoveY(i), r, height - r);
+    }
+
+    /**
+     * Returns the x-coordinate where the last move of a walker bounced
+     *
+     * @param i walker id
+     * @param k bounce index, from 0 to getBounceCount() - 1 in order along the move
+     * @return x-coordinate of bounce
+     */
+    public double getBounceX(int i, int k) {
+        return reflect(lastX[i] + getMoveX(i) * bounceTime(i, k), radius[i], width - radius[i]);
+    }
+
+    /**
+     * Returns the y-coordinate where the last move of a walker bounced
+     *
+     * @param i walker id
+     * @param k bounce index, from 0 to getBounceCount() - 1 in order along the move
+     * @return y-coordinate of bounce
+     */
+    public double getBounceY(int i, int k) {
+        return reflect(lastY[i] + getMoveY(i) * bounceTime(i, k), radius[i], height - radius[i]);
+    }
+
+    /**
+     * Returns whether the walker moved during the last call to step()
+     *
+     * @param i walker id
+     * @return true if walker moved
+     */
+    public boolean hasMoved(int i) {
+        return moved[i];
+    }
+
+    // Other methods
+
+    /**
+     * Advances every active, unfinished walker by one move, walkers activated
+     * during this tick start moving on the next one
+     *
+     * @return number of walkers that moved
+     */
+    public int step() {
+        tick++;
+        MovePhaseEvent event = new MovePhaseEvent();
+        event.begin();
+        int n = moveRange(0, count);
+        event.tick = tick;
+        event.moved = n;
+        event.commit();
+        detectCollisions();
+        return n;
+    }
+
+    /**
+     * Same as step(), but moves walkers on the common fork/join pool. Each
+     * walker draws from its own stream and collisions are resolved afterwards
+     * in id order, so the result is identical to step() for the same seed.
+     *
+     * @return number of walkers that moved
+     */
+    public int stepParallel() {
+        tick++;
+        MovePhaseEvent event = new MovePhaseEvent();
+        event.begin();
+        int chunks = (count + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        int n = IntStream.range(0, chunks).parallel()
+                .map(chunk -> moveRange(chunk * PARALLEL_CHUNK, Math.min(count, (chunk + 1) * PARALLEL_CHUNK)))
+                .sum();
+        event.tick = tick;
+        event.moved = n;
+        event.parallel = true;
+        event.commit();
+        detectCollisions();
+        return n;
+    }
+
+    /**
+     * Moves the walkers in a range of ids that are active, unfinished and were
+     * not activated this tick, whole lanes at a time if vectorized
+     *
+     * @param from first walker id
+     * @param to   last walker id, exclusive
+     * @return number of walkers that moved
+     */
+    private int moveRange(int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            moved[i] = active[i] && activationTick[i] < tick && !isFinished(i) && resumeTick[i] <= tick;
+            if (moved[i]) {
+                n++;
+            }
+        }
+        int i = from;
+        if (vectorMoves != null && kernel == StepKernel.STANDARD && policy == BoundaryPolicy.RESTRICT
+                && !(skipAhead && visits == null)) {
+            i = vectorMoves.move(from, to);
+        }
+        // walkers past the last whole lane
+        for (; i < to; i++) {
+            if (moved[i]) {
+                move(i);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Activates the dormant walkers touched by the moves of this tick, in id order
+     */
+    private void detectCollisions() {
+        CollisionPhaseEvent event = new CollisionPhaseEvent();
+        event.begin();
+        long tests = dormant.getTests();
+        int activated = activationCount;
+        for (int i = 0; i < count; i++) {
+            if (moved[i]) {
+                detectCollisions(i);
+                if (visits != null) {
+                    recordVisits(i);
+                }
+            }
+        }
+        event.tick = tick;
+        event.tests = dormant.getTests() - tests;
+        event.activations = activationCount - activated;
+        event.commit();
+    }
+
+    /**
+     * Advances a single walker by one move and activates the dormant walkers
+     * its path touches
+     *
+     * @param i walker id
+     */
+    public void step(int i) {
+        move(i);
+        detectCollisions(i);
+        if (visits != null) {
+            recordVisits(i);
+        }
+    }
+
+    /**
+     * Marks the cells a walker stepped on during its last move, one per step,
+     * following the same edge handling as the move
+     *
+     * @param i walker id
+     */
+    private void recordVisits(int i) {
+        // an absorbed move stops short at the edge
+        double travelled = Math.max(Math.abs(x[i] - lastX[i]), Math.abs(y[i] - lastY[i]));
+        double stride = STEP_SIZE * Math.max(Math.abs(dx[i]), Math.abs(dy[i]));
+        long originCellX = cell(originX[i]);
+        long originCellY = cell(originY[i]);
+        double r = radius[i];
+        for (int k = 1; k <= steps[i]; k++) {
+            if (absorbed[i] && k * stride > travelled) {
+                break;
+            }
+            double px = lastX[i] + dx[i] * k * STEP_SIZE;
+            double py = lastY[i] + dy[i] * k * STEP_SIZE;
+            if (policy == BoundaryPolicy.REFLECT) {
+                px = reflect(px, r, width - r);
+                py = reflect(py, r, height - r);
+            } else if (policy == BoundaryPolicy.WRAP) {
+                px = wrap(px, width);
+                py = wrap(py, height);
+            }
+            long cx = cell(px);
+            long cy = cell(py);
+            visits.visit(cx, cy);
+            if (cx == originCellX && cy == originCellY) {
+                returns[i]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the lattice cell of a coordinate
+     *
+     * @param value coordinate
+     * @return index of cell along the axis
+     */
+    private static long cell(double value) {
+        return (long) Math.floor(value / STEP_SIZE);
+    }
+
+    /**
+     * Activates the dormant walkers touched by the last move of a walker
+     *
+     * @param i walker id
+     */
+    private void detectCollisions(int i) {
+        double moveX = getMoveX(i);
+        double moveY = getMoveY(i);
+        if (policy == BoundaryPolicy.WRAP && (x[i] != lastX[i] + moveX || y[i] != lastY[i] + moveY)) {
+            // a wrapped move leaves one edge and re-enters from the opposite one
+            activateTouched(lastX[i], lastY[i], lastX[i] + moveX, lastY[i] + moveY);
+            activateTouched(x[i] - moveX, y[i] - moveY, x[i], y[i]);
+        } else if (collisionHorizons && insideHorizon(i)) {
+            horizonSkips++;
+        } else {
+            long tests = dormant.getTests();
+            // a reflected move runs to each edge it bounces off, then on from there
+            double fromX = lastX[i];
+            double fromY = lastY[i];
+            int bounces = getBounceCount(i);
+            for (int k = 0; k < bounces; k++) {
+                double bounceX = getBounceX(i, k);
+                double bounceY = getBounceY(i, k);
+                activateTouched(fromX, fromY, bounceX, bounceY);
+                fromX = bounceX;
+                fromY = bounceY;
+            }
+            activateTouched(fromX, fromY, x[i], y[i]);
+            // next to a dormant walker the horizon would not hold the next move
+            if (collisionHorizons && dormant.getTests() == tests) {
+                measureHorizon(i);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the last move of a walker started, bounced and ended
+     * inside its collision horizon, so the straight segments between cannot
+     * touch a dormant walker
+     *
+     * @param i walker id
+     * @return true if the horizon is current and holds every corner of the move
+     */
+    private boolean insideHorizon(int i) {
+        if (horizonEpoch[i] != dormantEpoch) {
+            return false;
+        }
+        if (!insideHorizon(i, lastX[i], lastY[i]) || !insideHorizon(i, x[i], y[i])) {
+            return false;
+        }
+        int bounces = getBounceCount(i);
+        for (int k = 0; k < bounces; k++) {
+            if (!insideHorizon(i, getBounceX(i, k), getBounceY(i, k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether a point lies inside a walker's collision horizon
+     *
+     * @param i walker id
+     * @param x x-coordinate of point
+     * @param y y-coordinate of point
+     * @return true if the point is inside
+     */
+    private boolean insideHorizon(int i, double x, double y) {
+        double offX = x - horizonX[i];
+        double offY = y - horizonY[i];
+        return offX * offX + offY * offY < horizonRadius[i] * horizonRadius[i];
+    }
+
+    /**
+     * Returns the fraction of the last move of a walker at which it bounced,
+     * merging the bounces off vertical and horizontal edges in order
+     *
+     * @param i walker id
+     * @param k bounce index
+     * @return fraction of the move, from 0 to 1
+     */
+    private double bounceTime(int i, int k) {
+        double r = radius[i];
+        double moveX = getMoveX(i);
+        double moveY = getMoveY(i);
+        int countX = crossings(lastX[i], moveX, r, width - r);
+        int countY = crossings(lastY[i], moveY, r, height - r);
+        int nextX = 0;
+        int nextY = 0;
+        double t = 0;
+        for (int n = 0; n <= k; n++) {
+            double tx = nextX < countX ? crossingTime(lastX[i], moveX, r, width - r, nextX) : Double.MAX_VALUE;
+            double ty = nextY < countY ? crossingTime(lastY[i], moveY, r, height - r, nextY) : Double.MAX_VALUE;
+            if (tx <= ty) {
+                t = tx;
+                nextX++;
+            } else {
+                t = ty;
+                nextY++;
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Centers a walker's collision horizon on its position, with the largest
+     * radius that keeps every dormant walker, widened by the collision
+     * margin, outside
+     *
+     * @param i walker id
+     */
+    private void measureHorizon(int i) {
+        horizonX[i] = x[i];
+        horizonY[i] = y[i];
+        horizonRadius[i] = clearance(x[i], y[i], HORIZON_LIMIT) - COLLISION_MARGIN - HORIZON_SLACK;
+        horizonEpoch[i] = dormantEpoch;
+    }
+
+    /**
+     * Returns the distance from a point to the edge of the nearest dormant
+     * walker, searching the coarse index unless it holds more walkers than
+     * cells, where the fine one finds the nearest after fewer distances
+     *
+     * @param x     x-coordinate of point
+     * @param y     y-coordinate of point
+     * @param limit distance beyond which dormant walkers do not matter
+     * @return distance to the nearest edge, limit if none is nearer
+     */
+    private double clearance(double x, double y, double limit) {
+        CollisionGrid grid = clearanceGrid.size() > clearanceGrid.getCellCount() ? dormant : clearanceGrid;
+        return grid.clearance(x, y, limit);
+    }
+
+    /**
+     * Activates the dormant walkers touched by a segment
+     *
+     * @param x0 starting x-coordinate
+     * @param y0 starting y-coordinate
+     * @param x1 ending x-coordinate
+     * @param y1 ending y-coordinate
+     */
+    private void activateTouched(double x0, double y0, double x1, double y1) {
+        int hits = dormant.query(x0, y0, x1, y1, COLLISION_MARGIN);
+        for (int k = 0; k < hits; k++) {
+            activate(dormant.getHit(k));
+        }
+    }
+
+    /**
+     * Moves a single walker
+     *
+     * Draws a move from the step kernel, then applies the boundary policy.
+     * Runs in constant time however close the walker is to an edge.
+     *
+     * @param i walker id
+     */
+    private void move(int i) {
+        if (skipAhead && visits == null) {
+            int k = skipLength(i);
+            if (k >= MIN_SKIP) {
+                skip(i, k);
+                return;
+            }
+        }
+        folded[i] = 1;
+
+        double r = radius[i];
+        if (policy == BoundaryPolicy.RESTRICT || policy == BoundaryPolicy.ABSORB) {
+            // the area may have shrunk since the last move
+            x[i] = clamp(x[i], r, width - r);
+            y[i] = clamp(y[i], r, height - r);
+        }
+        double startX = x[i];
+        double startY = y[i];
+        double endX;
+        double endY;
+
+        if (policy == BoundaryPolicy.RESTRICT) {
+            if (kernel == StepKernel.STANDARD) {
+                drawLegalMove(i);
+            } else {
+                drawFittingMove(i);
+            }
+            endX = startX + getMoveX(i);
+            endY = startY + getMoveY(i);
+        } else {
+            kernel.draw(this, i);
+            endX = startX + getMoveX(i);
+            endY = startY + getMoveY(i);
+            switch (policy) {
+                case REFLECT:
+                    endX = reflect(endX, r, width - r);
+                    endY = reflect(endY, r, height - r);
+                    break;
+                case WRAP:
+                    endX = wrap(endX, width);
+                    endY = wrap(endY, height);
+                    break;
+                case ABSORB:
+                    double t = distanceToEdge(startX, startY, dx[i], dy[i], r);
+                    if (t < steps[i] * STEP_SIZE) {
+                        endX = startX + dx[i] * t;
+                        endY = startY + dy[i] * t;
+                        absorbed[i] = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        lastX[i] = startX;
+        lastY[i] = startY;
+        x[i] = endX;
+        y[i] = endY;
+        totalSteps[i] += steps[i];
+        moved[i] = true;
+    }
+
+    /**
+     * Returns how many moves a walker can make with no chance of reaching an
+     * edge or a dormant walker
+     *
+     * Each move shifts a coordinate by at most MOVE_REACH, so k moves stay in
+     * the square of half-width k * MOVE_REACH around the start and in the
+     * circle of k * MOVE_REACH * sqrt(2). With every move of that many legal,
+     * RESTRICT draws from all moves alike, and no other policy changes them.
+     *
+     * @param i walker id
+     * @return number of moves that are safe to sample in bulk, at most MoveSumSampler.MAX_MOVES
+     */
+    private int skipLength(int i) {
+        if (kernel != StepKernel.STANDARD) {
+            return 0;
+        }
+        int k = MoveSumSampler.MAX_MOVES;
+        if (policy != BoundaryPolicy.UNBOUNDED) {
+            double r = radius[i];
+            double room = Math.min(Math.min(x[i] - r, width - r - x[i]), Math.min(y[i] - r, height - r - y[i]));
+            k = Math.min(k, (int) Math.floor(room / MOVE_REACH));
+        }
+
+        // every move folded in must be taken before the step limit finishes the walker
+        k = Math.min(k, (stepLimit - totalSteps[i] - 1) / MAX_STEP_COUNT + 1);
+        if (k < MIN_SKIP) {
+            return k;
+        }
+
+        // stay strictly clear of every dormant walker widened by the collision margin
+        double clear = clearance(x[i], y[i], MOVE_DISTANCE * (k + 1)) - COLLISION_MARGIN;
+        return Math.min(k, (int) Math.ceil(clear / MOVE_DISTANCE) - 1);
+    }
+
+    /**
+     * Makes k moves of a walker at once, drawing how many go in each direction
+     * and the total steps in each direction from their exact distributions
+     *
+     * @param i walker id
+     * @param k number of moves, from MIN_SKIP to MoveSumSampler.MAX_MOVES
+     */
+    private void skip(int i, int k) {
+        // one byte-wide count per direction, 3 random bits per move
+        long counts = 0;
+        long bits = 0;
+        for (int j = 0; j < k; j++) {
+            if (j % 21 == 0) {
+                bits = nextLong(i);
+            }
+            counts += 1L << ((bits & 7) << 3);
+            bits >>>= 3;
+        }
+
+        long sumX = 0;
+        long sumY = 0;
+        int total = 0;
+        for (int d = 0; d < 8; d++) {
+            int n = (int) (counts >>> (d << 3)) & 0xff;
+            if (n > 0) {
+                int length = MoveSumSampler.sample(n, nextLong(i));
+                sumX += (long) DIRECTION_X[d] * length;
+                sumY += (long) DIRECTION_Y[d] * length;
+                total += length;
+            }
+        }
+
+        lastX[i] = x[i];
+        lastY[i] = y[i];
+        x[i] += sumX * STEP_SIZE;
+        y[i] += sumY * STEP_SIZE;
+        dx[i] = 0;
+        dy[i] = 0;
+        steps[i] = total;
+        totalSteps[i] += total;
+        folded[i] = k;
+        resumeTick[i] = tick + k;
+        moved[i] = true;
+    }
+
+    /**
+     * Draws a direction and number of steps uniformly from among the moves that
+     * keep the walker inside the walk area, which matches redrawing until a
+     * move fits without the wasted draws
+     *
+     * @param i walker id
+     */
+    private void drawLegalMove(int i) {
+        int total = 0;
+        for (int d = 0; d < 8; d++) {
+            total += legalSteps(i, d);
+        }
+
+        // area too small to move in
+        if (total == 0) {
+            dx[i] = 0;
+            dy[i] = 0;
+            steps[i] = 0;
+            return;
+        }
+
+        int pick = nextInt(i, total);
+        int d = 0;
+        while (pick >= legalSteps(i, d)) {
+            pick -= legalSteps(i, d);
+            d++;
+        }
+        dx[i] = DIRECTION_X[d];
+        dy[i] = DIRECTION_Y[d];
+        steps[i] = pick + 1;
+    }
+
+    /**
+     * Draws a move from the step kernel from among the moves that keep the
+     * walker inside the walk area
+     *
+     * @param i walker id
+     */
+    private void drawFittingMove(int i) {
+        double r = radius[i];
+        kernel.drawWithin(this, i, (x[i] - r) / STEP_SIZE, (y[i] - r) / STEP_SIZE, (width - r - x[i]) / STEP_SIZE,
+                (height - r - y[i]) / STEP_SIZE);
+    }
+
+    /**
+     * Returns the number of steps a walker can take in a direction without
+     * leaving the walk area
+     *
+     * @param i walker id
+     * @param d direction index
+     * @return number of legal steps, from 0 to MAX_STEP_COUNT
+     */
+    private int legalSteps(int i, int d) {
+        int legal = Math.min(maxSteps(x[i], DIRECTION_X[d], radius[i], width),
+                maxSteps(y[i], DIRECTION_Y[d], radius[i], height));
+        return Math.max(0, Math.min(MAX_STEP_COUNT, legal));
+    }
+
+    /**
+     * Draws a random int from a walker's stream
+     *
+     * @param i     walker id
+     * @param bound upper bound, exclusive
+     * @return random int from 0 to bound
+     */
+    private int nextInt(int i, int bound) {
+        return SplitMix64.boundedInt(nextLong(i), bound);
+    }
+
+    /**
+     * Draws a random long from a walker's stream, for step kernels
+     *
+     * @param i walker id
+     * @return random long
+     */
+    long nextLong(int i) {
+        return SplitMix64.mix64(generators[i] += SplitMix64.GAMMA);
+    }
+
+    /**
+     * Sets the move a step kernel drew for a walker
+     *
+     * @param i     walker id
+     * @param dx    x-coordinate differential of a step, in steps
+     * @param dy    y-coordinate differential of a step, in steps
+     * @param steps number of steps
+     */
+    void setStep(int i, double dx, double dy, int steps) {
+        this.dx[i] = dx;
+        this.dy[i] = dy;
+        this.steps[i] = steps;
+    }
+
+    /**
+     * Returns the number of whole steps that fit between a coordinate and the
+     * edge it is heading towards
+     *
+     * @param position  coordinate along the axis
+     * @param direction direction along the axis, -1, 0 or 1
+     * @param radius    radius of walker
+     * @param extent    size of walk area along the axis
+     * @return number of steps, MAX_STEP_COUNT if not moving along the axis
+     */
+    private static int maxSteps(double position, int direction, double radius, double extent) {
+        if (direction == 0) {
+            return MAX_STEP_COUNT;
+        }
+        double room = direction > 0 ? extent - radius - position : position - radius;
+        return (int) Math.floor(room / STEP_SIZE);
+    }
+
+    /**
+     * Returns the distance a walker can travel in a direction before touching
+     * an edge
+     *
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param dx     x-coordinate differential of a step, in steps
+     * @param dy     y-coordinate differential of a step, in steps
+     * @param radius radius of walker
+     * @return distance in step lengths times STEP_SIZE, which is the distance
+     *         along each axis for a neighbour direction
+     */
+    private double distanceToEdge(double x, double y, double dx, double dy, double radius) {
+        double t = Double.POSITIVE_INFINITY;
+        if (dx != 0) {
+            t = Math.min(t, (dx > 0 ? width - radius - x : x - radius) / Math.abs(dx));
+        }
+        if (dy != 0) {
+            t = Math.min(t, (dy > 0 ? height - radius - y : y - radius) / Math.abs(dy));
+        }
+        return Math.max(t, 0);
+    }
+
+    /**
+     * Returns how many edges a reflected move along an axis bounces off
+     *
+     * @param start coordinate at the start of the move
+     * @param move  displacement along the axis before reflecting
+     * @param low   lower bound
+     * @param high  upper bound
+     * @return number of bounces, not counting one exactly at the end
+     */
+    private static int crossings(double start, double move, double low, double high) {
+        double span = high - low;
+        if (move == 0 || span <= 0) {
+            return 0;
+        }
+        // edges sit at low + m * span once the interval is unfolded
+        double from = (start - low) / span;
+        double to = (start + move - low) / span;
+        long count = move > 0 ? (long) Math.ceil(to) - (long) Math.floor(from) - 1
+                : (long) Math.ceil(from) - (long) Math.floor(to) - 1;
+        return (int) Math.max(0, count);
+    }
+
+    /**
+     * Returns the fraction of a reflected move along an axis at which it
+     * bounces off an edge
+     *
+     * @param start coordinate at the start of the move
+     * @param move  displacement along the axis before reflecting
+     * @param low   lower bound
+     * @param high  upper bound
+     * @param j     bounce index along the axis, below crossings()
+     * @return fraction of the move
+     */
+    private static double crossingTime(double start, double move, double low, double high, int j) {
+        double span = high - low;
+        double from = (start - low) / span;
+        double edge = move > 0 ? Math.floor(from) + 1 + j : Math.ceil(from) - 1 - j;
+        return (low + edge * span - start) / move;
+    }
+
+    /**
+     * Mirrors a coordinate back into an interval as many times as needed
+     *
+     * @param value coordinate
+     * @param low   lower bound
+     * @param high  upper bound
+     * @return reflected coordinate
+     */
+    private static double reflect(double value, double low, double high) {
+        double span = high - low;
+        if (span <= 0) {
+            return (low + high) / 2;
+        }
+        double t = (value - low) % (2 * span);
+        if (t < 0) {
+            t += 2 * span;
+        }
+        return low + (t > span ? 2 * span - t : t);
+    }
+
+    /**
+     * Wraps a coordinate around a toroidal interval
+     *
+     * @param value  coordinate
+     * @param extent size of interval
+     * @return wrapped coordinate
+     */
+    private static double wrap(double value, double extent) {
+        if (extent <= 0) {
+            return 0;
+        }
+        double t = value % extent;
+        return t < 0 ? t + extent : t;
+    }
+
+    /**
+     * Clamps a coordinate into an interval, centering it if the interval is empty
+     *
+     * @param value coordinate
+     * @param low   lower bound
+     * @param high  upper bound
+     * @return clamped coordinate
+     */
+    private static double clamp(double value, double low, double high) {
+        if (high < low) {
+            return (low + high) / 2;
+        }
+        return Math.max(low, Math.min(high, value));
+    }
+
+    /**
+     * Copies the state of every walker, random streams included, into a
+     * snapshot that RandomWalkEngine(SimulationSnapshot, long) restores. Only
+     * copies arrays, so it is cheap enough to take between two ticks.
+     *
+     * @return snapshot without trail or visited sites
+     */
+    public SimulationSnapshot snapshot() {
+        SimulationSnapshot snapshot = new SimulationSnapshot();
+        snapshot.count = count;
+        snapshot.policy = policy;
+        snapshot.kernel = kernel;
+        snapshot.width = width;
+        snapshot.height = height;
+        snapshot.seed = seed;
+        snapshot.tick = tick;
+        snapshot.skipAhead = skipAhead;
+        snapshot.collisionHorizons = collisionHorizons;
+        snapshot.visits = visits != null;
+        snapshot.x = Arrays.copyOf(x, count);
+        snapshot.y = Arrays.copyOf(y, count);
+        snapshot.lastX = Arrays.copyOf(lastX, count);
+        snapshot.lastY = Arrays.copyOf(lastY, count);
+        snapshot.radius = Arrays.copyOf(radius, count);
+        snapshot.originX = Arrays.copyOf(originX, count);
+        snapshot.originY = Arrays.copyOf(originY, count);
+        snapshot.dx = Arrays.copyOf(dx, count);
+        snapshot.dy = Arrays.copyOf(dy, count);
+        snapshot.steps = Arrays.copyOf(steps, count);
+        snapshot.totalSteps = Arrays.copyOf(totalSteps, count);
+        snapshot.activationTick = Arrays.copyOf(activationTick, count);
+        snapshot.returns = Arrays.copyOf(returns, count);
+        snapshot.folded = Arrays.copyOf(folded, count);
+        snapshot.resumeTick = Arrays.copyOf(resumeTick, count);
+        snapshot.generators = Arrays.copyOf(generators, count);
+        snapshot.active = Arrays.copyOf(active, count);
+        snapshot.absorbed = Arrays.copyOf(absorbed, count);
+        snapshot.moved = Arrays.copyOf(moved, count);
+        snapshot.activations = Arrays.copyOf(activations, activationCount);
+        snapshot.dormantOrder = dormant.getInsertionOrder();
+        return snapshot;
+    }
+
+    /**
+     * Clears every walker and starts a new walk in place, reusing the walker
+     * arrays, collision grids and visit bitmap
+     *
+     * Settings such as the policy, kernel, step limit, skip-ahead and visit
+     * tracking are kept. Adding the same walkers afterwards gives exactly the
+     * walk of a new engine with the same seed, and nothing is allocated
+     * unless there are more walkers than before or, for tracked visits, the
+     * area changes size.
+     *
+     * @param width  width of walk area
+     * @param height height of walk area
+     * @param seed   master seed, each walker's stream is derived from it and its id
+     */
+    public void rewind(double width, double height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        count = 0;
+        tick = 0;
+        activationCount = 0;
+        dormantEpoch = 0;
+        horizonSkips = 0;
+        dormant.reset(width, height);
+        clearanceGrid.reset(width, height);
+        if (visits != null) {
+            trackVisits();
+        }
+    }
+
+    /**
+     * Starts the standard scenario over in place, as createScenario() on a
+     * rewound engine, so a reset and initialize cycle produces no garbage
+     *
+     * @param width        width of walk area
+     * @param height       height of walk area
+     * @param dormantCount number of dormant walkers
+     * @param seed         master seed of placement and walker streams
+     */
+    public void resetScenario(double width, double height, int dormantCount, long seed) {
+        rewind(width, height, seed);
+        placeScenario(dormantCount);
+    }
+
+    /**
+     * Restores a snapshot in place, as RandomWalkEngine(SimulationSnapshot,
+     * long) does, reusing the walker arrays
+     *
+     * @param snapshot state taken by snapshot()
+     * @param seed     master seed of walker streams from here on
+     */
+    public void restore(SimulationSnapshot snapshot, long seed) {
+        rewind(snapshot.width, snapshot.height, seed);
+        if (x.length < snapshot.count) {
+            grow(snapshot.count);
+        }
+        count = snapshot.count;
+        tick = snapshot.tick;
+        setPolicy(snapshot.policy);
+        kernel = snapshot.kernel;
+        skipAhead = snapshot.skipAhead;
+        collisionHorizons = snapshot.collisionHorizons;
+        System.arraycopy(snapshot.x, 0, x, 0, count);
+        System.arraycopy(snapshot.y, 0, y, 0, count);
+        System.arraycopy(snapshot.lastX, 0, lastX, 0, count);
+        System.arraycopy(snapshot.lastY, 0, lastY, 0, count);
+        System.arraycopy(snapshot.radius, 0, radius, 0, count);
+        System.arraycopy(snapshot.originX, 0, originX, 0, count);
+        System.arraycopy(snapshot.originY, 0, originY, 0, count);
+        System.arraycopy(snapshot.dx, 0, dx, 0, count);
+        System.arraycopy(snapshot.dy, 0, dy, 0, count);
+        System.arraycopy(snapshot.steps, 0, steps, 0, count);
+        System.arraycopy(snapshot.totalSteps, 0, totalSteps, 0, count);
+        System.arraycopy(snapshot.activationTick, 0, activationTick, 0, count);
+        System.arraycopy(snapshot.returns, 0, returns, 0, count);
+        System.arraycopy(snapshot.folded, 0, folded, 0, count);
+        System.arraycopy(snapshot.resumeTick, 0, resumeTick, 0, count);
+        System.arraycopy(snapshot.active, 0, active, 0, count);
+        System.arraycopy(snapshot.absorbed, 0, absorbed, 0, count);
+        System.arraycopy(snapshot.moved, 0, moved, 0, count);
+        activationCount = snapshot.activations.length;
+        System.arraycopy(snapshot.activations, 0, activations, 0, activationCount);
+        for (int i = 0; i < count; i++) {
+            generators[i] = seed == snapshot.seed ? snapshot.generators[i] : SplitMix64.streamSeed(seed, i);
+            horizonEpoch[i] = -1;
+        }
+        for (int i : snapshot.dormantOrder) {
+            dormant.insert(i, x[i], y[i], radius[i]);
+            clearanceGrid.insert(i, x[i], y[i], radius[i]);
+        }
+        if (snapshot.visits) {
+            trackVisits();
+        } else {
+            visits = null;
+        }
+    }
+
+    /**
+     * Places the walkers of the standard scenario
+     *
+     * @param dormantCount number of dormant walkers
+     */
+    private void placeScenario(int dormantCount) {
+        // placement draws from its own stream, stepped here to avoid a generator object
+        long state = SplitMix64.streamSeed(seed, -1);
+
+        // main walker
+        activate(addWalker(width / 2, height / 2, MAIN_RADIUS));
+
+        // dormant walkers
+        for (int i = 0; i < dormantCount; i++) {
+            state += SplitMix64.GAMMA;
+            double x = (width / 10) * (SplitMix64.boundedInt(SplitMix64.mix64(state), 9 - 1 + 1) + 1);
+            state += SplitMix64.GAMMA;
+            double y = (height / 10) * (SplitMix64.boundedInt(SplitMix64.mix64(state), 9 - 1 + 1) + 1);
+            addWalker(x, y, DORMANT_RADIUS);
+        }
+    }
+
+    /**
+     * Grows the walker arrays
+     *
+     * @param capacity new capacity
+     */
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        lastX = Arrays.copyOf(lastX, capacity);
+        lastY = Arrays.copyOf(lastY, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        steps = Arrays.copyOf(steps, capacity);
+        totalSteps = Arrays.copyOf(totalSteps, capacity);
+        active = Arrays.copyOf(active, capacity);
+        absorbed = Arrays.copyOf(absorbed, capacity);
+        moved = Arrays.copyOf(moved, capacity);
+        activationTick = Arrays.copyOf(activationTick, capacity);
+        activations = Arrays.copyOf(activations, capacity);
+        generators = Arrays.copyOf(generators, capacity);
+        originX = Arrays.copyOf(originX, capacity);
+        originY = Arrays.copyOf(originY, capacity);
+        returns = Arrays.copyOf(returns, capacity);
+        folded = Arrays.copyOf(folded, capacity);
+        resumeTick = Arrays.copyOf(resumeTick, capacity);
+        horizonX = Arrays.copyOf(horizonX, capacity);
+        horizonY = Arrays.copyOf(horizonY, capacity);
+        horizonRadius = Arrays.copyOf(horizonRadius, capacity);
+        horizonEpoch = Arrays.copyOf(horizonEpoch, capacity);
+    }
+
+    /**
+     * Lane-wise moves of the standard kernel with the incubating Vector API
+     *
+     * Does for a lane of walkers what move() does for one under RESTRICT:
+     * counts the legal steps of every direction, draws one of them from each
+     * walker's SplitMix64 stream and stores the new positions. Only walkers
+     * flagged in moved[] are written. The other policies stay scalar, as
+     * picking among legal steps is the only part of a move costly enough
+     * for lanes to pay off.
+     *
+     * Step counts and directions are small whole numbers, so they are kept
+     * in double lanes, where every operation on them is exact, rather than
+     * converting between long and double lanes, which the JIT does not
+     * compile to vector instructions on every CPU. Random bits are moved
+     * across by placing them in the mantissa of 2^52.
+     *
+     * Only loaded by setVectorized() once VECTOR_AVAILABLE is checked, so the
+     * engine runs without the module.
+     */
+    private static final class VectorMoves {
+
+        // Constants
+
+        private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED; // lanes of doubles
+        private static final VectorSpecies<Long> LONGS = VectorSpecies.of(long.class,
+                DOUBLES.vectorShape()); // lanes of longs, as many as of doubles
+        private static final int LANES = DOUBLES.length(); // walkers moved at once
+        private static final double TWO_52 = 0x1.0p52; // doubles from here on are whole numbers
+        private static final long TWO_52_BITS = Double.doubleToRawLongBits(TWO_52); // bits of TWO_52
+        private static final double GAMMA_BITS = Double.longBitsToDouble(SplitMix64.GAMMA); // GAMMA as a double
+
+        // Data fields
+
+        private final RandomWalkEngine engine; // engine whose walkers are moved
+
+        // Constructors
+
+        /**
+         * Multi-arg constructor
+         *
+         * @param engine engine whose walkers are moved
+         */
+        VectorMoves(RandomWalkEngine engine) {
+            this.engine = engine;
+        }
+
+        // Other methods
+
+        /**
+         * Moves the flagged walkers of every whole lane in a range of ids
+         *
+         * @param from first walker id
+         * @param to   last walker id, exclusive
+         * @return first walker id not moved, where the scalar code takes over
+         */
+        int move(int from, int to) {
+            RandomWalkEngine e = engine;
+            int end = from + DOUBLES.loopBound(to - from);
+            DoubleVector width = DoubleVector.broadcast(DOUBLES, e.width);
+            DoubleVector height = DoubleVector.broadcast(DOUBLES, e.height);
+
+            for (int i = from; i < end; i += LANES) {
+                VectorMask<Double> writes = VectorMask.fromArray(DOUBLES, e.moved, i);
+                if (!writes.anyTrue()) {
+                    continue;
+                }
+                DoubleVector r = DoubleVector.fromArray(DOUBLES, e.radius, i);
+                DoubleVector highX = width.sub(r);
+                DoubleVector highY = height.sub(r);
+                DoubleVector startX = DoubleVector.fromArray(DOUBLES, e.x, i);
+                DoubleVector startY = DoubleVector.fromArray(DOUBLES, e.y, i);
+                LongVector generator = LongVector.fromArray(LONGS, e.generators, i);
+
+                // the area may have shrunk since the last move
+                startX = clamp(startX, r, highX);
+                startY = clamp(startY, r, highY);
+
+                // legal steps along each axis, then of each direction
+                DoubleVector north = legalSteps(startY.sub(r));
+                DoubleVector south = legalSteps(highY.sub(startY));
+                DoubleVector east = legalSteps(highX.sub(startX));
+                DoubleVector west = legalSteps(startX.sub(r));
+                DoubleVector northEast = east.min(north);
+                DoubleVector southEast = east.min(south);
+                DoubleVector southWest = west.min(south);
+                DoubleVector northWest = west.min(north);
+
+                // walkers with no legal move stand still without drawing
+                DoubleVector total = north.add(northEast).add(east).add(southEast).add(south).add(southWest)
+                        .add(west).add(northWest);
+                VectorMask<Double> draws = total.compare(VectorOperators.GT, 0);
+                generator = generator.add(DoubleVector.zero(DOUBLES).blend(GAMMA_BITS, draws)
+                        .reinterpretAsLongs());
+                DoubleVector pick = bounded(mix64(generator), total);
+
+                // the direction is how many running totals of legal steps the pick is past
+                DoubleVector direction = DoubleVector.zero(DOUBLES);
+                DoubleVector before = DoubleVector.zero(DOUBLES);
+                DoubleVector sum = north;
+                VectorMask<Double> past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(northEast);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(east);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(southEast);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(south);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(southWest);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                sum = sum.add(west);
+                past = pick.compare(VectorOperators.GE, sum);
+                direction = direction.add(1, past);
+                before = before.blend(sum, past);
+                DoubleVector count = pick.sub(before).add(1).blend(0, draws.not());
+                generator.intoArray(e.generators, i, VectorMask.fromArray(LONGS, e.moved, i));
+
+                VectorMask<Double> still = count.compare(VectorOperators.EQ, 0);
+                DoubleVector dx = directionX(direction).blend(0, still);
+                DoubleVector turned = direction.add(6);
+                DoubleVector dy = directionX(turned.sub(8, turned.compare(VectorOperators.GE, 8))).blend(0, still);
+                DoubleVector endX = startX.add(dx.mul(count).mul(STEP_SIZE));
+                DoubleVector endY = startY.add(dy.mul(count).mul(STEP_SIZE));
+
+                startX.intoArray(e.lastX, i, writes);
+                startY.intoArray(e.lastY, i, writes);
+                endX.intoArray(e.x, i, writes);
+                endY.intoArray(e.y, i, writes);
+                dx.intoArray(e.dx, i, writes);
+                dy.intoArray(e.dy, i, writes);
+                // lanes are read straight from the vector, as stepParallel()
+                // moves ranges on several threads that must share no scratch
+                for (int k = 0; k < LANES; k++) {
+                    int w = i + k;
+                    if (e.moved[w]) {
+                        e.steps[w] = (int) count.lane(k);
+                        e.totalSteps[w] += e.steps[w];
+                        e.folded[w] = 1;
+                    }
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Scrambles lanes of states into random longs, as SplitMix64.mix64()
+         *
+         * @param z states
+         * @return random longs
+         */
+        private static LongVector mix64(LongVector z) {
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(0xbf58476d1ce4e5b9L);
+            z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(0x94d049bb133111ebL);
+            return z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31));
+        }
+
+        /**
+         * Maps lanes of random longs below a bound, as SplitMix64.boundedInt()
+         *
+         * The upper 32 bits times a bound below 2^20 and scaled by 2^-32 are
+         * exact in a double, so the floor is the same whole number.
+         *
+         * @param random random longs
+         * @param bound  upper bounds, exclusive, whole numbers
+         * @return random whole numbers from 0 to bound
+         */
+        private static DoubleVector bounded(LongVector random, DoubleVector bound) {
+            DoubleVector upper = random.lanewise(VectorOperators.LSHR, 32).lanewise(VectorOperators.OR, TWO_52_BITS)
+                    .reinterpretAsDoubles().sub(TWO_52);
+            return floor(upper.mul(bound).mul(0x1.0p-32));
+        }
+
+        /**
+         * Rounds lanes down to whole numbers
+         *
+         * @param value values from 0 to 2^51
+         * @return floor of each value
+         */
+        private static DoubleVector floor(DoubleVector value) {
+            // adding 2^52 rounds to nearest, take 1 off where that rounded up
+            DoubleVector rounded = value.add(TWO_52).sub(TWO_52);
+            return rounded.sub(1, rounded.compare(VectorOperators.GT, value));
+        }
+
+        /**
+         * Returns the number of whole steps that fit in the room to an edge,
+         * as maxSteps() capped from 0 to MAX_STEP_COUNT
+         *
+         * @param room distance to the edge
+         * @return legal steps towards that edge
+         */
+        private static DoubleVector legalSteps(DoubleVector room) {
+            return floor(room.div(STEP_SIZE).max(0).min(MAX_STEP_COUNT));
+        }
+
+        /**
+         * Returns the x-differential of lanes of direction indices, which is
+         * also the y-differential of the direction two turns counterclockwise
+         *
+         * @param direction direction indices from 0 to 7
+         * @return 0 for N and S, 1 for NE, E and SE, -1 for SW, W and NW
+         */
+        private static DoubleVector directionX(DoubleVector direction) {
+            return direction.neg().add(4).max(-1).min(1).blend(0, direction.compare(VectorOperators.EQ, 0));
+        }
+
+        /**
+         * Clamps lanes of values, as RandomWalkEngine.clamp()
+         *
+         * @param value values
+         * @param low   lower bounds
+         * @param high  upper bounds
+         * @return clamped values
+         */
+        private static DoubleVector clamp(DoubleVector value, DoubleVector low, DoubleVector high) {
+            return value.min(high).max(low).blend(low.add(high).div(2), high.compare(VectorOperators.LT, low));
+        }
+
+    }
+
+}
@@ -5,36 +5,153 @@
  * @Description Pane subclass for random walk scene
  */
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
-import javafx.animation.KeyFrame;
-import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Shape;
-import javafx.util.Duration;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
 
 /**
  * Pane subclass for random walk scene
  */
 class RandomWalkPane extends Pane {
 
+    // Constants
+
+    private static final long METRICS_REFRESH = 250_000_000L; // nanoseconds between overlay refreshes
+    private static final double MIN_ZOOM = 0.001; // smallest zoom of the unbounded viewport
+    private static final double MAX_ZOOM = 8; // largest zoom of the unbounded viewport
+    private static final long HEATMAP_REFRESH = 250_000_000L; // nanoseconds between heatmap refreshes
+    private static final long DRAIN_BUDGET = 8_000_000L; // nanoseconds per frame spent drawing worker deltas
+
     // Data fields
 
-    private ArrayList<RandomWalkCircle> rwCircles; // ArrayList for secondary RandomWalkCircles
-    private RandomWalkCircle mainRW = null; // main blue RandomWalkCircle
-    private int duration = 0; // duration of RandomWalkCircle animations
+    private final SpriteLayer spriteLayer = new SpriteLayer(); // every walker, seen through the viewport
+    private int dormantCount = RandomWalkEngine.DORMANT_COUNT; // number of dormant walkers of next initialize()
+    private int activationsShown = 0; // number of engine activations shown
+    private RandomWalkEngine engine = null; // simulation state of all walkers
+    private RandomWalkEngine spareEngine = null; // engine of the last walk, rewound by the next initialize()
+    private final TrailLayer trailLayer = new TrailLayer(); // canvas for walker trails
+    private int duration = 0; // duration of a tick
+    private final TickScheduler scheduler; // advances all walkers each tick, may be shared
+    private BoundaryPolicy policy = BoundaryPolicy.RESTRICT; // edge handling for walkers
+    private StepKernel kernel = StepKernel.STANDARD; // distribution of moves
+    private long seed = ThreadLocalRandom.current().nextLong(); // master seed of next initialize()
+    private TrajectoryRecorder recorder = null; // log the walk is recorded to
+    private TrajectoryReplay replay = null; // log being replayed instead of simulating
+    private int replayTick = 0; // tick shown by the replay
+    private long replayRecord = 0; // next replay record to apply
+    private final SimulationMetrics metrics = new SimulationMetrics(); // performance counters
+    private final Label metricsOverlay = new Label(); // on-screen view of the counters
+    private long metricsShown = 0; // timestamp of last overlay refresh
+    private final VisitedSites sites = new VisitedSites(); // lattice sites visited in unbounded mode
+    private final SiteLayer siteLayer = new SiteLayer(sites, RandomWalkEngine.STEP_SIZE); // canvas for visited sites
+    private double viewX = 0; // world x-coordinate at the left edge of the pane
+    private double viewY = 0; // world y-coordinate at the top edge of the pane
+    private double zoom = 1; // pixels per world unit
+    private double dragX = 0; // pane x-coordinate of the last drag event
+    private double dragY = 0; // pane y-coordinate of the last drag event
+    private boolean turbo = false; // whether ticks run back to back within a frame budget
+    private boolean renderAtEnd = false; // whether turbo mode only draws once the walk is complete
+    private long turboBudget = 12_000_000L; // nanoseconds of ticks per frame in turbo mode
+    private WalkAnalytics analytics = null; // live statistics sampled as the walk runs, null if off
+    private long advanceTests = 0; // collision tests run by the last advance()
+    private long advanceStart = 0; // start timestamp of the last advance()
+    private long advanceEnd = 0; // end timestamp of the last advance()
+    private long advanceBytes = 0; // bytes allocated by the thread that ran the last advance()
+    private SimulationWorker worker = null; // steps the walk off the FX thread, null if the scheduler steps it
+    private boolean ownsScheduler = false; // whether the scheduler is the pane's own rather than shared
+    private final Consumer<FrameDelta> applier = this::apply; // draws a delta from the worker
+    private final FrameDelta pending = new FrameDelta(); // ticks stepped by the scheduler not yet drawn
+    private long shownSites = -1; // distinct cells visited as last drawn, -1 if not tracked
+    private double shownCoverage = 0; // fraction of the walk area visited as last drawn
+    private int shownReturns = 0; // returns of the main walker as last drawn
+    private long shownRangeX = 0; // columns spanned by the visited cells as last drawn
+    private long shownRangeY = 0; // rows spanned by the visited cells as last drawn
+    private final HeatmapLayer heatmapLayer = new HeatmapLayer(); // density of visits over the trail
+    private DensityGrid density = null; // visits along the trail, null until the heatmap is first shown
+    private double densityCellSize = 2; // world units per density cell side
+    private boolean heatmapVisible = false; // whether to show the heatmap outside unbounded mode
+    private long heatmapShown = 0; // timestamp of last heatmap refresh
 
     // Constructors
 
     /**
-     * No-arg constructor
+     * No-arg constructor, the pane runs its own scheduler for frames and
+     * replays, and steps its walks on a worker thread
      */
     RandomWalkPane() {
+        this(new TickScheduler());
+        ownsScheduler = true;
+        worker = new SimulationWorker(metrics);
+        worker.setBudget(turboBudget);
+        scheduler.addTask(this::tick);
+        scheduler.addFrameTask(this::frame);
+    }
 
+    /**
+     * Multi-arg constructor for a pane in an ensemble, whose shared scheduler
+     * calls advance(), showTick() and frame() itself instead of registering
+     * tasks for each pane
+     * 
+     * @param scheduler shared scheduler, started and stopped by play() and pause()
+     */
+    RandomWalkPane(TickScheduler scheduler) {
+        this.scheduler = scheduler;
+
+        // keep the engine's walk area and trail canvas in sync with the pane
+        widthProperty().addListener(ov -> resizeEngine());
+        heightProperty().addListener(ov -> resizeEngine());
+        widthProperty().addListener(ov -> spriteLayer.setSize(getWidth(), getHeight()));
+        heightProperty().addListener(ov -> spriteLayer.setSize(getWidth(), getHeight()));
+        trailLayer.widthProperty().bind(widthProperty());
+        trailLayer.heightProperty().bind(heightProperty());
+        trailLayer.setManaged(false);
+        getChildren().add(trailLayer);
+
+        // the heatmap stretches one pixel per density cell over the trail,
+        // and its cells no longer line up once the pane is resized
+        heatmapLayer.fitWidthProperty().bind(widthProperty());
+        heatmapLayer.fitHeightProperty().bind(heightProperty());
+        heatmapLayer.setManaged(false);
+        heatmapLayer.setViewOrder(-0.5);
+        heatmapLayer.setVisible(false);
+        getChildren().add(heatmapLayer);
+        widthProperty().addListener(ov -> fitDensity());
+        heightProperty().addListener(ov -> fitDensity());
+
+        // in unbounded mode the pane is a pan and zoom viewport onto the lattice
+        siteLayer.widthProperty().bind(widthProperty());
+        siteLayer.heightProperty().bind(heightProperty());
+        siteLayer.setManaged(false);
+        siteLayer.setVisible(false);
+        spriteLayer.setManaged(false);
+        spriteLayer.setViewOrder(-1);
+        getChildren().addAll(siteLayer, spriteLayer);
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(widthProperty());
+        clip.heightProperty().bind(heightProperty());
+        setClip(clip);
+        setOnMousePressed(this::dragStarted);
+        setOnMouseDragged(this::dragged);
+        setOnScroll(this::scrolled);
+
+        metricsOverlay.setFont(Font.font("Monospaced", 11));
+        metricsOverlay.setStyle("-fx-background-color: rgba(255, 255, 255, 0.8); -fx-padding: 4;");
+        metricsOverlay.setManaged(false);
+        metricsOverlay.setViewOrder(-2);
+        metricsOverlay.setVisible(false);
+        metricsOverlay.relocate(4, 4);
+        getChildren().add(metricsOverlay);
     }
 
     /**
@@ -42,9 +159,10 @@ class RandomWalkPane extends Pane {
      * 
      * @param width    width of pane
      * @param height   height of pane
-     * @param duration duration of RandomWalkCircle animations
+     * @param duration duration of a tick
      */
     RandomWalkPane(int width, int height, int duration) {
+        this();
         setHeight(height);
         setWidth(width);
         setDuration(duration);
@@ -55,46 +173,360 @@ class RandomWalkPane extends Pane {
 
     /**
      * Initializes RandomWalk
+     *
+     * The engine of the previous walk is rewound rather than replaced, and
+     * sprites and trails are redrawn into the existing layers, so repeated
+     * initialize and reset cycles allocate nothing once warmed up.
      */
     public void initialize() {
-        // instantiate main blue RandomWalkCircle
-        mainRW = new RandomWalkCircle(5, Color.BLUE);
-        mainRW.setViewOrder(-1);
-        mainRW.setCenter(getWidth() / 2, getHeight() / 2);
-        getChildren().add(mainRW);
+        try {
+            initialize(null);
+        } catch (IOException e) {
+            // nothing is recorded, so nothing can fail
+        }
+    }
+
+    /**
+     * Initializes RandomWalk and records the walk to a trajectory log until
+     * reset, the log is opened before the first tick so it holds the whole walk
+     * 
+     * @param record trajectory log, replaced if it exists, or null to record
+     *               nothing
+     * @throws IOException if the log cannot be written, the walk starts anyway
+     */
+    public void initialize(Path record) throws IOException {
+        halt();
+        if (engine == null) {
+            engine = spareEngine;
+        }
+        if (engine == null) {
+            engine = RandomWalkEngine.createScenario(getWidth(), getHeight(), dormantCount, seed);
+            engine.trackVisits();
+        } else {
+            engine.resetScenario(getWidth(), getHeight(), dormantCount, seed);
+            if (analytics != null) {
+                // a rewound engine starts a new walk for the charts too
+                analytics.sample(null, true);
+            }
+        }
+        engine.setPolicy(policy);
+        engine.setKernel(kernel);
+        engine.setVectorized(true);
+        activationsShown = engine.getActivationCount();
+        showVisits();
+        sites.clear();
+        if (isUnbounded()) {
+            visitSite(engine.getX(0), engine.getY(0));
+        }
+
+        // main blue walker and green inactive walkers
+        spriteLayer.setCount(engine.getCount());
+        for (int id = 0; id < engine.getCount(); id++) {
+            addSprite(id, engine.getX(id), engine.getY(id), engine.getRadius(id));
+        }
+        spriteLayer.render();
+
+        // start animation, with the recorder attached before the first tick
+        try {
+            if (record != null) {
+                recorder = new TrajectoryRecorder(record, engine);
+            }
+        } finally {
+            play();
+        }
+
+    }
+
+    /**
+     * Replays a recorded walk from a trajectory log instead of simulating it
+     * 
+     * @param path trajectory log written by initialize(Path)
+     * @throws IOException if the log cannot be read
+     */
+    public void replay(Path path) throws IOException {
+        reset();
+        replay = new TrajectoryReplay(path);
+        updateViewMode();
+        updateSchedulerBudget();
+        setSize(replay.getWidth(), replay.getHeight());
+        setMinSize(replay.getWidth(), replay.getHeight());
+        setMaxSize(replay.getWidth(), replay.getHeight());
+        spriteLayer.setCount(replay.getWalkerCount());
+        seekReplay(0);
+        play();
+    }
+
+    /**
+     * Jumps a replay to a tick, redrawing the trail up to it at once
+     * 
+     * @param tick tick to show
+     */
+    public void seekReplay(int tick) {
+        if (replay == null) {
+            return;
+        }
+        // the log starts with a PLACE record for every walker
+        for (long k = 0; k < replay.getWalkerCount(); k++) {
+            int id = replay.getId(k);
+            double radius = id == 0 ? RandomWalkEngine.MAIN_RADIUS : RandomWalkEngine.DORMANT_RADIUS;
+            addSprite(id, replay.getX(k), replay.getY(k), radius);
+        }
+
+        trailLayer.clear();
+        if (density != null) {
+            density.clear();
+        }
+        replayRecord = replay.getWalkerCount();
+        replayTick = tick;
+        applyReplay(replay.seek(tick + 1), false);
+        trailLayer.redraw();
+        spriteLayer.render();
+    }
+
+    /**
+     * Getter for the last tick of the replay
+     * 
+     * @return last tick in the trajectory log, 0 if not replaying
+     */
+    public int getReplayLastTick() {
+        return replay == null ? 0 : replay.getLastTick();
+    }
 
-        rwCircles = new ArrayList<RandomWalkCircle>();
+    /**
+     * Saves the walk, its trail and visited sites to a snapshot file
+     * 
+     * The state is copied between two ticks and written on a background
+     * thread, so saving even a large walk does not stall the animation.
+     * 
+     * @param path snapshot file, replaced if it exists
+     */
+    public void saveSnapshot(Path path) {
+        if (engine == null) {
+            return;
+        }
+        halt();
+        SimulationSnapshot snapshot = engine.snapshot();
+        resume();
+        TrailBuffer trail = trailLayer.getBuffer();
+        snapshot.trailCoords = new float[trail.size() * 4];
+        snapshot.trailColors = new int[trail.size()];
+        snapshot.trailMarks = new int[trail.size()];
+        int marks = 0;
+        for (int k = 0; k < trail.size(); k++) {
+            snapshot.trailCoords[k * 4] = trail.getX0(k);
+            snapshot.trailCoords[k * 4 + 1] = trail.getY0(k);
+            snapshot.trailCoords[k * 4 + 2] = trail.getX1(k);
+            snapshot.trailCoords[k * 4 + 3] = trail.getY1(k);
+            snapshot.trailColors[k] = SpriteLayer.toArgb(trailLayer.getPaletteColor(trail.getColor(k)));
+            for (int mark = trail.getFirstMark(k); mark >= 0; mark = trail.getNextMark(mark)) {
+                snapshot.trailMarks[k]++;
+                marks++;
+            }
+        }
+        snapshot.trailMarkCoords = new float[marks * 2];
+        marks = 0;
+        for (int k = 0; k < trail.size(); k++) {
+            for (int mark = trail.getFirstMark(k); mark >= 0; mark = trail.getNextMark(mark)) {
+                snapshot.trailMarkCoords[marks * 2] = trail.getMarkX(mark);
+                snapshot.trailMarkCoords[marks * 2 + 1] = trail.getMarkY(mark);
+                marks++;
+            }
+        }
+        snapshot.siteTileX = new int[sites.getTileCount()];
+        snapshot.siteTileY = new int[sites.getTileCount()];
+        snapshot.siteRows = new long[sites.getTileCount() * VisitedSites.TILE_SIZE];
+        for (int tile = 0; tile < sites.getTileCount(); tile++) {
+            snapshot.siteTileX[tile] = sites.getTileX(tile);
+            snapshot.siteTileY[tile] = sites.getTileY(tile);
+            for (int row = 0; row < VisitedSites.TILE_SIZE; row++) {
+                snapshot.siteRows[tile * VisitedSites.TILE_SIZE + row] = sites.getRow(tile, row);
+            }
+        }
 
-        // TODO: turn into method
-        // create 10 green inactive RandomWalkCircles
-        Random generator = new Random();
-        for (int i = 0; i < 10; i++) {
+        Thread writer = new Thread(() -> {
+            try {
+                snapshot.write(path);
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+        }, "snapshot-writer");
+        writer.start();
+    }
 
-            double x = (getWidth() / 10) * (generator.nextInt(9 - 1 + 1) + 1);
-            double y = (getHeight() / 10) * (generator.nextInt(9 - 1 + 1) + 1);
+    /**
+     * Resumes a walk saved by saveSnapshot(), paused and with its trail and
+     * visited sites redrawn
+     * 
+     * @param path snapshot file
+     * @throws IOException if the snapshot cannot be read
+     */
+    public void restoreSnapshot(Path path) throws IOException {
+        SimulationSnapshot snapshot = SimulationSnapshot.read(path);
+        reset();
+        setSize(snapshot.width, snapshot.height);
+        setMinSize(snapshot.width, snapshot.height);
+        setMaxSize(snapshot.width, snapshot.height);
+        seed = snapshot.seed;
+        policy = snapshot.policy;
+        kernel = snapshot.kernel;
+        if (spareEngine != null) {
+            engine = spareEngine;
+            engine.restore(snapshot, seed);
+        } else {
+            engine = new RandomWalkEngine(snapshot, seed);
+        }
+        engine.setVectorized(true);
+        if (engine.getVisits() == null) {
+            engine.trackVisits();
+        }
+        updateViewMode();
 
-            RandomWalkCircle rw = new RandomWalkCircle(10, Color.GREEN);
-            rw.setViewOrder(-1);
-            rw.setCenter(x, y);
-            rwCircles.add(rw);
-            // active animation when fill color changes (to red)
-            rw.fillProperty()
-                    .addListener(ov -> rw.startAnimation(new KeyFrame(Duration.millis(duration), e -> move(rw))));
+        spriteLayer.setCount(engine.getCount());
+        for (int id = 0; id < engine.getCount(); id++) {
+            addSprite(id, engine.getX(id), engine.getY(id), engine.getRadius(id));
+        }
+        for (int k = 0; k < engine.getActivationCount(); k++) {
+            if (engine.getActivation(k) != 0) {
+                spriteLayer.setColor(engine.getActivation(k), Color.RED, false);
+            }
         }
-        getChildren().addAll(rwCircles);
+        activationsShown = engine.getActivationCount();
+        showVisits();
 
-        // start main blue RandomWalkCircle animation
-        mainRW.startAnimation(new KeyFrame(Duration.millis(duration), e -> move(mainRW)));
+        int marks = 0;
+        for (int k = 0; k < snapshot.trailColors.length; k++) {
+            int argb = snapshot.trailColors[k];
+            trailLayer.record(snapshot.trailCoords[k * 4], snapshot.trailCoords[k * 4 + 1],
+                    snapshot.trailCoords[k * 4 + 2], snapshot.trailCoords[k * 4 + 3],
+                    Color.rgb(argb >> 16 & 0xff, argb >> 8 & 0xff, argb & 0xff));
+            for (int n = 0; n < snapshot.trailMarks[k]; n++, marks++) {
+                trailLayer.getBuffer().addMark(snapshot.trailMarkCoords[marks * 2],
+                        snapshot.trailMarkCoords[marks * 2 + 1]);
+            }
+        }
+        for (int tile = 0; tile < snapshot.siteTileX.length; tile++) {
+            for (int row = 0; row < VisitedSites.TILE_SIZE; row++) {
+                long bits = snapshot.siteRows[tile * VisitedSites.TILE_SIZE + row];
+                for (; bits != 0; bits &= bits - 1) {
+                    sites.visit(((long) snapshot.siteTileX[tile] << VisitedSites.TILE_SHIFT)
+                            + Long.numberOfTrailingZeros(bits),
+                            ((long) snapshot.siteTileY[tile] << VisitedSites.TILE_SHIFT) + row);
+                }
+            }
+        }
+        trailLayer.redraw();
+        siteLayer.redraw();
+        spriteLayer.render();
+    }
 
+    /**
+     * Places the sprite of a walker, walker 0 is the main blue walker and the
+     * rest are green and resting until activated
+     * 
+     * @param id     walker id
+     * @param x      x-coordinate
+     * @param y      y-coordinate
+     * @param radius radius of walker
+     */
+    private void addSprite(int id, double x, double y, double radius) {
+        spriteLayer.setSprite(id, x, y, radius, id == 0 ? Color.BLUE : Color.GREEN, id != 0);
     }
 
     /**
      * Setter for duration
      * 
-     * @param duration duration for RandomWalkCircle animations
+     * @param duration duration of a tick in milliseconds
      */
     public void setDuration(int duration) {
         this.duration = duration;
+        scheduler.setDuration(duration);
+        if (worker != null) {
+            worker.setDuration(duration);
+        }
+    }
+
+    /**
+     * Getter for dormantCount
+     * 
+     * @return number of dormant walkers placed by the next initialize()
+     */
+    public int getDormantCount() {
+        return dormantCount;
+    }
+
+    /**
+     * Setter for dormantCount, walkers are drawn as sprites in a single
+     * image, so the count can reach the hundreds of thousands
+     * 
+     * @param dormantCount number of dormant walkers placed by the next initialize()
+     */
+    public void setDormantCount(int dormantCount) {
+        this.dormantCount = Math.max(0, dormantCount);
+    }
+
+    /**
+     * Getter for policy
+     * 
+     * @return edge handling for walkers
+     */
+    public BoundaryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Setter for policy
+     * 
+     * @param policy edge handling for walkers
+     */
+    public void setPolicy(BoundaryPolicy policy) {
+        this.policy = policy;
+        halt();
+        if (engine != null) {
+            engine.setPolicy(policy);
+        }
+        updateViewMode();
+        resume();
+    }
+
+    /**
+     * Getter for kernel
+     * 
+     * @return distribution of moves
+     */
+    public StepKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Setter for kernel, takes effect on the next move
+     * 
+     * @param kernel distribution of moves
+     */
+    public void setKernel(StepKernel kernel) {
+        this.kernel = kernel;
+        halt();
+        if (engine != null) {
+            engine.setKernel(kernel);
+        }
+        resume();
+    }
+
+    /**
+     * Getter for seed
+     * 
+     * @return master seed of the current or next walk
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Setter for seed, the same seed reproduces the same walk
+     * 
+     * @param seed master seed of placement and walker streams
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
     }
 
     /**
@@ -109,133 +541,698 @@ class RandomWalkPane extends Pane {
     }
 
     /**
-     * Returns a circle
+     * Sets the maximum number of trail segments kept, older segments are erased
      * 
-     * @param x      x-coordinate pane
-     * @param y      y-coordinate in pane
-     * @param radius radius of circle
-     * @param color  fill color of circle
-     * @return circle
+     * @param capacity maximum number of segments, 0 for unbounded
      */
-    private Circle getCircle(double x, double y, double radius, Color color) {
-        Circle circle = new Circle(x, y, radius);
-        circle.setFill(color);
-        return circle;
+    public void setTrailCapacity(int capacity) {
+        trailLayer.setCapacity(capacity);
     }
 
     /**
-     * Moves the RandomWalkCircle within the pane
+     * Sets how far merged trail vertices may stray from the drawn segment
      * 
-     * @param rwCircle circle to move
+     * @param tolerance maximum distance in pixels, 0 merges only collinear moves,
+     *                  negative keeps every move as its own segment
      */
-    private void move(RandomWalkCircle rwCircle) {
-        rwCircle.play();
-        // generate random direction and number of steps
-        rwCircle.setDirection();
-        rwCircle.generateRandomSteps();
+    public void setTrailTolerance(double tolerance) {
+        trailLayer.setTolerance(tolerance);
+    }
 
-        double start_x = rwCircle.getCenterX(); // starting x-coordinate
-        double start_y = rwCircle.getCenterY(); // starting y-coordinate
-        double x = start_x; // x-coordinate of next location
-        double y = start_y; // y-coordinate of next location
-        double dx = rwCircle.getDx(); // x-coordinate differential
-        double dy = rwCircle.getDy(); // y-coordinate differential
-        int steps = rwCircle.getSteps(); // number of steps to be taken
-        int stepSize = rwCircle.getStepSize(); // size of steps
-        double radius = rwCircle.getRadius(); // radius of RandomWalkCircle
-        Color color = (Color) rwCircle.getFill(); // color of RandomWalkCircle
+    /**
+     * Switches turbo mode, which runs as many ticks per frame as the frame
+     * budget allows and shows only the latest state each frame
+     * 
+     * @param turbo whether to run in turbo mode
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        updateSchedulerBudget();
+        if (worker != null) {
+            worker.setTurbo(turbo);
+        }
+        if (!turbo) {
+            // catch up on anything deferred
+            if (renderAtEnd) {
+                trailLayer.redraw();
+                siteLayer.redraw();
+            }
+            present();
+        }
+    }
 
-        // add circle marker to previous coordinate location
-        getChildren().add(getCircle(x, y, 3, color));
+    /**
+     * Sets the frame-time budget of turbo mode
+     * 
+     * @param millis milliseconds of ticks per frame
+     */
+    public void setTurboBudget(int millis) {
+        turboBudget = Math.max(1, millis) * 1_000_000L;
+        updateSchedulerBudget();
+        if (worker != null) {
+            worker.setBudget(turboBudget);
+        }
+    }
 
-        // increment coordinates of next location
-        for (int i = 0; i < steps * stepSize; i++) {
+    /**
+     * Gives the scheduler the turbo budget when it steps the walk itself, a
+     * worker spends the budget on its own thread instead
+     */
+    private void updateSchedulerBudget() {
+        scheduler.setBudget(turbo && (worker == null || replay != null) ? turboBudget : 0);
+    }
 
-            // TODO: investigate further
-            // StackOverflowException?
-            // NullPointerException?
-            // if the generated step would leave the border,
-            // rerun function and return from function afterwards
-            if (x < radius || x > getWidth() - radius || y < radius || y > getHeight() - radius) {
-                rwCircle.setCenter(start_x, start_y);
-                try {
-                    move(rwCircle);
-                } catch (Throwable e) {
-                    pause();
-                    System.out.println(e);
-                    Platform.exit();
-                }
-                return;
+    /**
+     * Sets whether turbo mode runs the walk to completion before drawing the
+     * trail, instead of drawing it as it goes
+     * 
+     * @param renderAtEnd whether to draw only once the walk is complete
+     */
+    public void setRenderAtEnd(boolean renderAtEnd) {
+        if (this.renderAtEnd && !renderAtEnd) {
+            trailLayer.redraw();
+            siteLayer.redraw();
+        }
+        this.renderAtEnd = renderAtEnd;
+    }
+
+    /**
+     * Getter for engine, only safe to read while paused as a worker steps it
+     * while playing
+     * 
+     * @return simulation state of all walkers, or null if uninitialized
+     */
+    public RandomWalkEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Getter for metrics
+     * 
+     * @return performance counters
+     */
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Setter for analytics, the walk is sampled for it as it runs and when
+     * paused
+     *
+     * @param analytics live statistics to feed, null to stop sampling
+     */
+    public void setAnalytics(WalkAnalytics analytics) {
+        halt();
+        this.analytics = analytics;
+        if (analytics != null) {
+            analytics.sample(engine, true);
+        }
+        resume();
+    }
+
+    /**
+     * Shows or hides the metrics overlay in the top-left corner
+     * 
+     * @param visible whether to show the overlay
+     */
+    public void setMetricsVisible(boolean visible) {
+        metricsOverlay.setVisible(visible);
+        if (visible) {
+            refreshMetrics();
+        }
+    }
+
+    /**
+     * Shows or hides the heatmap of where walkers have been, visits are
+     * counted from the first time it is shown
+     * 
+     * @param visible whether to show the heatmap
+     */
+    public void setHeatmapVisible(boolean visible) {
+        heatmapVisible = visible;
+        if (visible && density == null) {
+            density = new DensityGrid(Math.max(1, getWidth()), Math.max(1, getHeight()), densityCellSize);
+        }
+        updateViewMode();
+        refreshHeatmap();
+    }
+
+    /**
+     * Setter for densityCellSize, clears the counts so far
+     * 
+     * @param cellSize world units per density cell side
+     */
+    public void setDensityCellSize(double cellSize) {
+        densityCellSize = cellSize;
+        if (density != null) {
+            density = new DensityGrid(Math.max(1, getWidth()), Math.max(1, getHeight()), cellSize);
+            refreshHeatmap();
+        }
+    }
+
+    /**
+     * Getter for density
+     * 
+     * @return visits along the trail, or null if the heatmap was never shown
+     */
+    public DensityGrid getDensity() {
+        return density;
+    }
+
+    /**
+     * Writes the density grid, see DensityGrid.write()
+     * 
+     * @param path PNG heatmap if the name ends in .png, raw counts otherwise
+     * @throws IOException if the file cannot be written
+     */
+    public void exportDensity(Path path) throws IOException {
+        if (density != null) {
+            density.write(path);
+        }
+    }
+
+    /**
+     * Updates the walk area of the engine to the size of the pane
+     */
+    private void resizeEngine() {
+        if (engine != null) {
+            halt();
+            engine.setSize(getWidth(), getHeight());
+            resume();
+        }
+    }
+
+    /**
+     * Stops the worker and draws what it left, so the engine can be read or
+     * changed on the FX thread
+     */
+    private void halt() {
+        if (worker != null) {
+            worker.halt(applier);
+        }
+    }
+
+    /**
+     * Hands the walk back to the worker if playing
+     */
+    private void resume() {
+        if (worker != null && scheduler.isRunning() && engine != null && replay == null) {
+            worker.resume(engine, isUnbounded(), recorder, analytics);
+        }
+    }
+
+    /**
+     * Advances every active walker by one move and renders the result, the
+     * worker does both instead when the pane has one
+     */
+    private void tick() {
+        if (replay != null) {
+            metrics.beginTick();
+            long first = replayRecord;
+            replayTick();
+            metrics.endTick((int) (replayRecord - first), 0);
+            return;
+        }
+        if (worker != null) {
+            return;
+        }
+
+        showTick(advance());
+    }
+
+    /**
+     * Returns whether the walk has ended, so an ensemble can stop its shared
+     * scheduler once every walk has
+     * 
+     * @return true if there is no walk or no walker will move again
+     */
+    boolean isComplete() {
+        return engine == null || engine.isComplete();
+    }
+
+    /**
+     * Advances every active walker by one move without rendering, touches
+     * only the engine so panes of an ensemble can advance in parallel. The
+     * tick is timed on the thread that runs it, as allocations are counted
+     * per thread
+     * 
+     * @return number of walkers that moved, 0 if there is no walk to simulate
+     */
+    int advance() {
+        if (engine == null || replay != null) {
+            return 0;
+        }
+        long tests = engine.getCollisionTests();
+        long bytes = metrics.getAllocatedBytes();
+        advanceStart = System.nanoTime();
+        int moved = engine.step();
+        advanceEnd = System.nanoTime();
+        advanceBytes = metrics.getAllocatedBytes() - bytes;
+        advanceTests = engine.getCollisionTests() - tests;
+        return moved;
+    }
+
+    /**
+     * Renders the tick made by advance(), records it if recording and adds
+     * its timing to the metrics. Turbo mode coalesces ticks and draws them
+     * once per frame
+     * 
+     * @param moved number of walkers that moved
+     */
+    void showTick(int moved) {
+        if (engine == null || replay != null) {
+            return;
+        }
+        pending.addTick(engine, isUnbounded(), activationsShown);
+        activationsShown = engine.getActivationCount();
+
+        if (recorder != null) {
+            try {
+                recorder.recordTick(engine);
+            } catch (IOException e) {
+                System.out.println(e);
+                stopRecording();
             }
+        }
+        metrics.recordTick(advanceStart, advanceEnd, moved, advanceTests, advanceBytes);
 
-            // update coordinate of next location
-            x += dx;
-            y += dy;
+        if (turbo && moved == 0 && engine.isComplete()) {
+            // walk complete, draw what was deferred and stop, unless other
+            // panes share the scheduler and may still be running
+            pending.complete = true;
+            if (ownsScheduler) {
+                pause();
+            }
         }
-        rwCircle.setCenter(x, y);
-        rwCircle.incrementTotalSteps();
+        if (!turbo || pending.complete) {
+            present();
+        }
+    }
 
-        // TODO: turn into method?
-        // create line from old coordinate location to new coordinate location
-        Line line = new Line(start_x, start_y, x, y);
-        line.setStroke(color);
-        line.setFill(color);
-        getChildren().add(line);
+    /**
+     * Draws the ticks the scheduler stepped since the last call, turbo mode
+     * calls this once per frame instead of after each tick
+     */
+    private void present() {
+        if (!pending.isEmpty()) {
+            apply(pending);
+            pending.clear();
+        }
+        spriteLayer.render();
+    }
 
-        // TODO: turn into method?
-        // for each non active secondary RandomWalkCircle check collision with the line
-        // that was just placed,
-        // if collision is detected change the fill color to red to trigger animation
-        // start
-        for (RandomWalkCircle rw : rwCircles) {
-            // TODO: redo logic, remove isAnimating rwCircles from ArrayList if possible
-            // https://stackoverflow.com/a/47638860
-            // obtains the intersection of two shapes. if the width of the bounds of the
-            // resulting
-            // intersection is greater than or equal to zero, the shapes are intersecting
-            if (!rw.isAnimating() && Shape.intersect(rw, line).getBoundsInLocal().getWidth() >= 0) {
-                rw.setFill(Color.RED);
+    /**
+     * Draws the changes of one or more ticks: activated walkers turn red,
+     * trails or visited sites are added and moved sprites placed at their
+     * latest position
+     * 
+     * @param delta changes to draw
+     */
+    private void apply(FrameDelta delta) {
+        for (int k = 0; k < delta.activationCount; k++) {
+            spriteLayer.setColor(delta.activations[k], Color.RED, false);
+        }
+        double[] coords = delta.segmentCoords;
+        for (int k = 0; k < delta.segmentCount; k++) {
+            addTrail(delta.segmentWalkers[k], coords[4 * k], coords[4 * k + 1], coords[4 * k + 2],
+                    coords[4 * k + 3], delta.segmentColors[k]);
+        }
+        if (!(turbo && renderAtEnd)) {
+            trailLayer.flush();
+        }
+        for (int k = 0; k < delta.siteCount; k++) {
+            long sx = delta.sites[2 * k];
+            long sy = delta.sites[2 * k + 1];
+            if (sites.visit(sx, sy)) {
+                siteLayer.drawSite(sx, sy);
+            }
+        }
+        for (int k = 0; k < delta.positionCount; k++) {
+            spriteLayer.setCenter(delta.positionWalkers[k], delta.positions[2 * k], delta.positions[2 * k + 1]);
+        }
+        for (int k = 0; k < delta.timings; k++) {
+            metrics.recordTick(delta.tickTimes[2 * k], delta.tickTimes[2 * k + 1], delta.tickMoves[k],
+                    delta.tickTests[k], delta.tickBytes[k]);
+        }
+        if (delta.ticks > 0) {
+            shownSites = delta.visitedSites;
+            shownCoverage = delta.coverage;
+            shownReturns = delta.mainReturns;
+            shownRangeX = delta.rangeX;
+            shownRangeY = delta.rangeY;
+        }
+        if (delta.recordingFailed) {
+            stopRecording();
+        }
+        if (delta.complete) {
+            // the walk stopped itself, stop the frames too
+            if (ownsScheduler) {
+                scheduler.stop();
+            }
+            if (renderAtEnd) {
+                trailLayer.redraw();
+                siteLayer.redraw();
             }
+        }
+    }
 
+    /**
+     * Copies the visit statistics of the engine for the metrics overlay,
+     * while the worker is halted
+     */
+    private void showVisits() {
+        VisitationBitmap visits = engine.getVisits();
+        shownSites = visits == null ? -1 : visits.getDistinct();
+        if (visits != null) {
+            shownCoverage = visits.getCoverage();
+            shownReturns = engine.getReturns(0);
+            shownRangeX = visits.getRangeX();
+            shownRangeY = visits.getRangeY();
+        }
+    }
+
+    /**
+     * Adds a trail segment, only buffering it while turbo mode defers drawing,
+     * and counts it in the density grid
+     * 
+     * @param id    walker id
+     * @param x0    starting x-coordinate
+     * @param y0    starting y-coordinate
+     * @param x1    ending x-coordinate
+     * @param y1    ending y-coordinate
+     * @param color color of segment
+     */
+    private void addTrail(int id, double x0, double y0, double x1, double y1, Color color) {
+        if (turbo && renderAtEnd) {
+            trailLayer.record(id, x0, y0, x1, y1, color);
+        } else {
+            trailLayer.addSegment(id, x0, y0, x1, y1, color);
+        }
+        if (density != null) {
+            density.addSegment(x0, y0, x1, y1);
         }
     }
 
     /**
-     * Plays animations of all active RandomWalkCircles
+     * Draws what the worker published, or what turbo mode deferred, and the
+     * sprites, records the frame interval and refreshes the metrics overlay
+     * if due
+     */
+    void frame() {
+        if (worker != null) {
+            worker.drain(applier, DRAIN_BUDGET);
+        } else if (turbo) {
+            present();
+        }
+        spriteLayer.render();
+        if (analytics != null && worker == null) {
+            analytics.sample(engine, false);
+        }
+        if (scheduler.getFrameInterval() > 0) {
+            metrics.recordFrame(scheduler.getFrameInterval());
+        }
+        long now = System.nanoTime();
+        if (metricsOverlay.isVisible() && now - metricsShown >= METRICS_REFRESH) {
+            refreshMetrics();
+        }
+        if (heatmapLayer.isVisible() && now - heatmapShown >= HEATMAP_REFRESH) {
+            refreshHeatmap();
+        }
+    }
+
+    /**
+     * Redraws the heatmap from the density grid if any count changed
+     */
+    private void refreshHeatmap() {
+        if (density != null) {
+            heatmapLayer.refresh(density);
+        }
+        heatmapShown = System.nanoTime();
+    }
+
+    /**
+     * Fits the density grid to the size of the pane, clearing its counts
+     */
+    private void fitDensity() {
+        if (density != null) {
+            density.reset(Math.max(1, getWidth()), Math.max(1, getHeight()));
+            refreshHeatmap();
+        }
+    }
+
+    /**
+     * Refreshes the metrics overlay, counting the live scene nodes
+     */
+    private void refreshMetrics() {
+        metrics.setNodeCount(countNodes(this));
+        String text = metrics.toString();
+        if (engine != null && shownSites >= 0) {
+            text += String.format("%nsites       %,12d%n"
+                    + "coverage    %11.2f%%%n"
+                    + "returns     %,12d%n"
+                    + "range       %,6d x %,d",
+                    shownSites, 100 * shownCoverage, shownReturns, shownRangeX, shownRangeY);
+        }
+        metricsOverlay.setText(text);
+        metricsShown = System.nanoTime();
+    }
+
+    /**
+     * Counts a node and all of its descendants
+     * 
+     * @param node root of subtree
+     * @return number of nodes in subtree
+     */
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Advances a replay by one tick, pausing at the end of the log
+     */
+    private void replayTick() {
+        if (replayTick >= replay.getLastTick()) {
+            pause();
+            return;
+        }
+        replayTick++;
+        applyReplay(replay.seek(replayTick + 1), true);
+    }
+
+    /**
+     * Applies replay records up to an index
+     * 
+     * @param end  index of first record not to apply
+     * @param draw whether to draw trail segments now or only buffer them for a redraw
+     */
+    private void applyReplay(long end, boolean draw) {
+        for (; replayRecord < end; replayRecord++) {
+            long k = replayRecord;
+            int id = replay.getId(k);
+            double x = replay.getX(k);
+            double y = replay.getY(k);
+            switch (replay.getEvent(k)) {
+                case TrajectoryRecorder.MOVE:
+                    Color color = spriteLayer.getColor(id);
+                    if (draw) {
+                        trailLayer.addSegment(id, spriteLayer.getCenterX(id), spriteLayer.getCenterY(id), x, y, color);
+                    } else {
+                        trailLayer.record(id, spriteLayer.getCenterX(id), spriteLayer.getCenterY(id), x, y, color);
+                    }
+                    if (density != null) {
+                        density.addSegment(spriteLayer.getCenterX(id), spriteLayer.getCenterY(id), x, y);
+                    }
+                    spriteLayer.setCenter(id, x, y);
+                    break;
+                case TrajectoryRecorder.JUMP:
+                case TrajectoryRecorder.PLACE:
+                    spriteLayer.setCenter(id, x, y);
+                    break;
+                case TrajectoryRecorder.ACTIVATE:
+                    if (id != 0) {
+                        spriteLayer.setColor(id, Color.RED, false);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (draw) {
+            trailLayer.flush();
+        }
+    }
+
+    /**
+     * Closes the trajectory log being recorded, if any
+     */
+    private void stopRecording() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+            recorder = null;
+        }
+    }
+
+    /**
+     * Marks the lattice site of a position visited
+     * 
+     * @param x x-coordinate
+     * @param y y-coordinate
+     */
+    private void visitSite(double x, double y) {
+        long sx = Math.round(x / RandomWalkEngine.STEP_SIZE);
+        long sy = Math.round(y / RandomWalkEngine.STEP_SIZE);
+        if (sites.visit(sx, sy)) {
+            siteLayer.drawSite(sx, sy);
+        }
+    }
+
+    /**
+     * Returns whether the pane is a viewport onto an unbounded lattice walk
+     * 
+     * @return true if simulating with the UNBOUNDED policy
+     */
+    private boolean isUnbounded() {
+        return policy == BoundaryPolicy.UNBOUNDED && replay == null;
+    }
+
+    /**
+     * Shows visited sites through the viewport in unbounded mode, and the
+     * trail at a fixed scale otherwise
+     */
+    private void updateViewMode() {
+        boolean unbounded = isUnbounded();
+        siteLayer.setVisible(unbounded);
+        trailLayer.setVisible(!unbounded);
+        heatmapLayer.setVisible(heatmapVisible && !unbounded);
+        if (!unbounded) {
+            setViewport(0, 0, 1);
+        }
+    }
+
+    /**
+     * Pans and zooms the viewport
+     * 
+     * @param viewX world x-coordinate at the left edge of the pane
+     * @param viewY world y-coordinate at the top edge of the pane
+     * @param zoom  pixels per world unit
+     */
+    private void setViewport(double viewX, double viewY, double zoom) {
+        this.viewX = viewX;
+        this.viewY = viewY;
+        this.zoom = zoom;
+        siteLayer.setViewport(viewX, viewY, zoom);
+        spriteLayer.setViewport(viewX, viewY, zoom);
+        spriteLayer.render();
+    }
+
+    /**
+     * Starts panning the viewport
+     * 
+     * @param e mouse event
+     */
+    private void dragStarted(MouseEvent e) {
+        dragX = e.getX();
+        dragY = e.getY();
+    }
+
+    /**
+     * Pans the viewport with the mouse in unbounded mode
+     * 
+     * @param e mouse event
+     */
+    private void dragged(MouseEvent e) {
+        if (isUnbounded()) {
+            setViewport(viewX - (e.getX() - dragX) / zoom, viewY - (e.getY() - dragY) / zoom, zoom);
+        }
+        dragX = e.getX();
+        dragY = e.getY();
+    }
+
+    /**
+     * Zooms the viewport about the mouse in unbounded mode
+     * 
+     * @param e scroll event
+     */
+    private void scrolled(ScrollEvent e) {
+        if (!isUnbounded() || e.getDeltaY() == 0) {
+            return;
+        }
+        // keep the world point under the mouse fixed
+        double worldX = viewX + e.getX() / zoom;
+        double worldY = viewY + e.getY() / zoom;
+        double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * Math.pow(1.002, e.getDeltaY())));
+        setViewport(worldX - e.getX() / newZoom, worldY - e.getY() / newZoom, newZoom);
+    }
+
+    /**
+     * Plays the animation of all active walkers
      */
     public void play() {
-        mainRW.play();
-        for (RandomWalkCircle rw : rwCircles)
-            rw.play();
+        if (engine != null || replay != null) {
+            halt();
+            scheduler.start();
+            resume();
+        }
     }
 
     /**
-     * Pauses animations of all active RandomWalkCircles
+     * Pauses the animation of all active walkers
      */
     public void pause() {
-        mainRW.pause();
-        for (RandomWalkCircle rw : rwCircles)
-            rw.pause();
+        scheduler.stop();
+        halt();
+        if (analytics != null) {
+            analytics.sample(engine, true);
+        }
     }
 
     /**
      * Resets the state of the RandomWalk
-     * Pauses animations, sets RandomWalkCircles to null, and clears children
+     * Stops the scheduler, and clears the walkers and trails, keeping the
+     * engine and layers for the next initialize()
      */
     public void reset() {
-        // if animations aren't paused, orphaned circles cause exceptions to be thrown
-        // (i miss manual memory management)
         pause();
-        mainRW = null;
-        for (RandomWalkCircle rw : rwCircles) {
-            rw.pause();
-            rw = null;
+        stopRecording();
+        if (replay != null) {
+            try {
+                replay.close();
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+            replay = null;
+            updateSchedulerBudget();
+        }
+        if (engine != null) {
+            spareEngine = engine;
+        }
+        engine = null;
+        pending.clear();
+        trailLayer.clear();
+        sites.clear();
+        if (density != null) {
+            density.clear();
+            refreshHeatmap();
+        }
+        spriteLayer.setCount(0);
+        setViewport(0, 0, 1);
+        updateViewMode();
+        metrics.clear();
+        if (analytics != null) {
+            analytics.sample(null, true);
         }
-        getChildren().clear();
-        rwCircles = null;
         duration = 0;
-
-        // System.gc();
+        seed = ThreadLocalRandom.current().nextLong();
     }
 
-}
\ No newline at end of file
+}
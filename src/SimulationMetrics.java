@@ -0,0 +1,267 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SimulationMetrics.java
+ * @Description Performance counters of a running simulation
+ */
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Performance counters of a running simulation
+ *
+ * Tracks steps and collision tests per second, tick and frame durations, the
+ * live scene node count and bytes allocated per step, cheaply enough to stay
+ * on for production runs.
+ */
+public class SimulationMetrics {
+
+    // Constants
+
+    private static final long WINDOW = 1_000_000_000L; // nanoseconds per rate window
+    private static final double SMOOTHING = 0.1; // weight of newest sample in averages
+
+    // Data fields
+
+    private final com.sun.management.ThreadMXBean threads; // allocation counter, null if unsupported
+    private long steps = 0; // total walker moves
+    private long collisionTests = 0; // total exact collision tests
+    private long ticks = 0; // total ticks
+    private long windowStart = 0; // start of current rate window
+    private long windowSteps = 0; // moves in current rate window
+    private long windowTests = 0; // collision tests in current rate window
+    private double stepsPerSecond = 0; // moves per second over the last window
+    private double collisionsPerSecond = 0; // collision tests per second over the last window
+    private long tickStart = 0; // start of current tick
+    private long tickAllocationStart = 0; // bytes allocated by thread at start of current tick
+    private double tickNanos = 0; // average tick duration
+    private long maxTickNanos = 0; // longest tick duration
+    private double frameNanos = 0; // average frame interval
+    private long maxFrameNanos = 0; // longest frame interval
+    private double allocationPerStep = 0; // average bytes allocated per move
+    private int nodeCount = 0; // live scene nodes
+
+    // Constructors
+
+    /**
+     * No-arg constructor
+     */
+    SimulationMetrics() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for steps
+     *
+     * @return total walker moves
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Getter for collisionTests
+     *
+     * @return total exact collision tests
+     */
+    public long getCollisionTests() {
+        return collisionTests;
+    }
+
+    /**
+     * Getter for ticks
+     *
+     * @return total ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Getter for stepsPerSecond
+     *
+     * @return walker moves per second over the last second
+     */
+    public double getStepsPerSecond() {
+        return stepsPerSecond;
+    }
+
+    /**
+     * Getter for collisionsPerSecond
+     *
+     * @return collision tests per second over the last second
+     */
+    public double getCollisionsPerSecond() {
+        return collisionsPerSecond;
+    }
+
+    /**
+     * Getter for tickNanos
+     *
+     * @return average tick duration in nanoseconds
+     */
+    public double getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Getter for frameNanos
+     *
+     * @return average frame interval in nanoseconds
+     */
+    public double getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * Getter for allocationPerStep
+     *
+     * @return average bytes allocated per walker move, -1 if unsupported
+     */
+    public double getAllocationPerStep() {
+        return threads == null ? -1 : allocationPerStep;
+    }
+
+    /**
+     * Setter for nodeCount
+     *
+     * @param nodeCount live scene nodes
+     */
+    public void setNodeCount(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Getter for nodeCount
+     *
+     * @return live scene nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the calling thread, safe to call
+     * from any thread
+     *
+     * @return allocated bytes, 0 if unsupported
+     */
+    public long getAllocatedBytes() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    // Other methods
+
+    /**
+     * Marks the start of a tick
+     */
+    public void beginTick() {
+        tickStart = System.nanoTime();
+        tickAllocationStart = getAllocatedBytes();
+    }
+
+    /**
+     * Marks the end of a tick
+     *
+     * @param moved number of walker moves in the tick
+     * @param tests number of collision tests in the tick
+     */
+    public void endTick(int moved, long tests) {
+        recordTick(tickStart, System.nanoTime(), moved, tests, getAllocatedBytes() - tickAllocationStart);
+    }
+
+    /**
+     * Records a tick timed elsewhere, as by the thread that stepped it
+     *
+     * @param start          start timestamp in nanoseconds
+     * @param end            end timestamp in nanoseconds
+     * @param moved          number of walker moves in the tick
+     * @param tests          number of collision tests in the tick
+     * @param allocatedBytes bytes allocated by the tick
+     */
+    public void recordTick(long start, long end, int moved, long tests, long allocatedBytes) {
+        long nanos = end - start;
+        tickNanos = ticks == 0 ? nanos : tickNanos + SMOOTHING * (nanos - tickNanos);
+        maxTickNanos = Math.max(maxTickNanos, nanos);
+        if (threads != null && moved > 0) {
+            double perStep = (double) allocatedBytes / moved;
+            allocationPerStep = steps == 0 ? perStep : allocationPerStep + SMOOTHING * (perStep - allocationPerStep);
+        }
+
+        ticks++;
+        steps += moved;
+        collisionTests += tests;
+        windowSteps += moved;
+        windowTests += tests;
+        if (windowStart == 0) {
+            windowStart = start;
+        }
+        if (end - windowStart >= WINDOW) {
+            double seconds = (end - windowStart) / 1e9;
+            stepsPerSecond = windowSteps / seconds;
+            collisionsPerSecond = windowTests / seconds;
+            windowStart = end;
+            windowSteps = 0;
+            windowTests = 0;
+        }
+    }
+
+    /**
+     * Records the interval since the previous frame
+     *
+     * @param nanos frame interval in nanoseconds
+     */
+    public void recordFrame(long nanos) {
+        frameNanos = frameNanos == 0 ? nanos : frameNanos + SMOOTHING * (nanos - frameNanos);
+        maxFrameNanos = Math.max(maxFrameNanos, nanos);
+    }
+
+    /**
+     * Clears every counter
+     */
+    public void clear() {
+        steps = 0;
+        collisionTests = 0;
+        ticks = 0;
+        windowStart = 0;
+        windowSteps = 0;
+        windowTests = 0;
+        stepsPerSecond = 0;
+        collisionsPerSecond = 0;
+        tickNanos = 0;
+        maxTickNanos = 0;
+        frameNanos = 0;
+        maxFrameNanos = 0;
+        allocationPerStep = 0;
+    }
+
+    /**
+     * Returns the counters as lines of text
+     *
+     * @return counters
+     */
+    @Override
+    public String toString() {
+        return String.format("steps/s     %,12.0f%n"
+                + "collisions/s %,11.0f%n"
+                + "tick        %8.3f ms (max %.3f)%n"
+                + "frame       %8.3f ms (max %.3f)%n"
+                + "nodes       %,12d%n"
+                + "alloc/step  %12s",
+                stepsPerSecond, collisionsPerSecond,
+                tickNanos / 1e6, maxTickNanos / 1e6,
+                frameNanos / 1e6, maxFrameNanos / 1e6,
+                nodeCount,
+                threads == null ? "n/a" : String.format("%.1f B", allocationPerStep));
+    }
+
+}
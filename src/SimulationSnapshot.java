@@ -0,0 +1,347 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SimulationSnapshot.java
+ * @Description Saved state of a running simulation in a compact binary file
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saved state of a running simulation in a compact binary file
+ *
+ * Holds copies of the engine's per-walker arrays, random stream states
+ * included, together with the trail segments and visited sites drawn so
+ * far. Taking a snapshot only copies arrays, so it can be done between two
+ * ticks, and writing it streams the copies through a small direct buffer so
+ * it can run on a background thread while the simulation goes on. Restoring
+ * with the saved seed resumes the walk exactly, any other seed forks a new
+ * continuation from the same state.
+ */
+public class SimulationSnapshot {
+
+    // Constants
+
+    public static final int MAGIC = 0x52575353; // "RWSS"
+    public static final int VERSION = 3; // format version, version 2 files without trail marks are read too
+    public static final int HEADER_SIZE = 64; // bytes before the kernel spec and walker arrays
+    private static final int BUFFER_SIZE = 1 << 16; // bytes written at a time
+
+    private static final int SKIP_AHEAD = 1; // flag bit of skip-ahead sampling
+    private static final int COLLISION_HORIZONS = 2; // flag bit of collision horizons
+    private static final int VISITS = 4; // flag bit of visit tracking
+
+    // Data fields
+
+    int count; // number of walkers
+    BoundaryPolicy policy; // edge handling
+    StepKernel kernel; // distribution of moves
+    double width; // width of walk area
+    double height; // height of walk area
+    long seed; // master seed of walker streams
+    int tick; // number of calls to step()
+    boolean skipAhead; // whether moves far from anything are sampled in bulk
+    boolean collisionHorizons; // whether moves inside a walker's horizon skip collision tests
+    boolean visits; // whether visited cells were tracked
+
+    double[] x; // x-coordinates
+    double[] y; // y-coordinates
+    double[] lastX; // x-coordinates before the last move
+    double[] lastY; // y-coordinates before the last move
+    double[] radius; // radii
+    double[] originX; // x-coordinates walkers started from
+    double[] originY; // y-coordinates walkers started from
+    double[] dx; // x-coordinate differentials of a step, in steps
+    double[] dy; // y-coordinate differentials of a step, in steps
+    int[] steps; // number of steps taken by the last move
+    int[] totalSteps; // total steps taken
+    int[] activationTick; // tick of activation, -1 if dormant
+    int[] returns; // number of returns to the starting cell
+    int[] folded; // number of moves folded into the last move
+    int[] resumeTick; // tick a walker that skipped ahead moves again on
+    long[] generators; // SplitMix64 state of each walker's random stream
+    boolean[] active; // whether walker has been activated
+    boolean[] absorbed; // whether walker has been absorbed by an edge
+    boolean[] moved; // whether walker moved during the last step()
+    int[] activations; // walker ids in order of activation
+    int[] dormantOrder; // dormant walker ids in the order that rebuilds the collision grid
+
+    float[] trailCoords = new float[0]; // x0, y0, x1, y1 of each trail segment
+    int[] trailColors = new int[0]; // ARGB color of each trail segment
+    int[] trailMarks = new int[0]; // number of merged moves in each trail segment
+    float[] trailMarkCoords = new float[0]; // x, y of the start of each merged move, segment by segment
+    int[] siteTileX = new int[0]; // x-coordinate of each visited site tile
+    int[] siteTileY = new int[0]; // y-coordinate of each visited site tile
+    long[] siteRows = new long[0]; // VisitedSites.TILE_SIZE row bitmaps of each tile
+
+    // Constructors
+
+    /**
+     * No-arg constructor, RandomWalkEngine.snapshot() fills in the fields
+     */
+    SimulationSnapshot() {
+    }
+
+    // Other methods
+
+    /**
+     * Writes the snapshot, can run on any thread once the snapshot is taken
+     *
+     * The snapshot is written to a temporary file next to the target, which
+     * then atomically replaces it, so a failed or interrupted write never
+     * leaves a truncated snapshot behind or destroys the previous one.
+     *
+     * @param path snapshot file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file
+     *
+     * @param path file, already created
+     * @throws IOException if the file cannot be written
+     */
+    private void writeTo(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(count);
+            buffer.putInt(policy.ordinal());
+            buffer.putDouble(width);
+            buffer.putDouble(height);
+            buffer.putLong(seed);
+            buffer.putInt(tick);
+            buffer.putInt(activations.length);
+            buffer.putInt((skipAhead ? SKIP_AHEAD : 0) | (collisionHorizons ? COLLISION_HORIZONS : 0)
+                    | (visits ? VISITS : 0));
+            buffer.putInt(trailColors.length);
+            buffer.putInt(siteTileX.length);
+            byte[] spec = kernel.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(spec.length);
+            buffer.position(HEADER_SIZE);
+            ensure(channel, buffer, spec.length).put(spec);
+
+            for (double[] values : new double[][] { x, y, lastX, lastY, radius, originX, originY, dx, dy }) {
+                for (double value : values) {
+                    ensure(channel, buffer, Double.BYTES).putDouble(value);
+                }
+            }
+            for (int[] values : new int[][] { steps, totalSteps, activationTick, returns, folded,
+                    resumeTick, activations, dormantOrder, trailColors, siteTileX, siteTileY, trailMarks }) {
+                for (int value : values) {
+                    ensure(channel, buffer, Integer.BYTES).putInt(value);
+                }
+            }
+            for (long[] values : new long[][] { generators, siteRows }) {
+                for (long value : values) {
+                    ensure(channel, buffer, Long.BYTES).putLong(value);
+                }
+            }
+            for (boolean[] values : new boolean[][] { active, absorbed, moved }) {
+                for (boolean value : values) {
+                    ensure(channel, buffer, 1).put((byte) (value ? 1 : 0));
+                }
+            }
+            for (float[] values : new float[][] { trailCoords, trailMarkCoords }) {
+                for (float value : values) {
+                    ensure(channel, buffer, Float.BYTES).putFloat(value);
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by write()
+     *
+     * @param path snapshot file
+     * @return snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static SimulationSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a simulation snapshot: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a simulation snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != 2) {
+                throw new IOException("Not a simulation snapshot: " + path);
+            }
+
+            SimulationSnapshot s = new SimulationSnapshot();
+            s.count = buffer.getInt();
+            s.policy = BoundaryPolicy.values()[buffer.getInt()];
+            s.width = buffer.getDouble();
+            s.height = buffer.getDouble();
+            s.seed = buffer.getLong();
+            s.tick = buffer.getInt();
+            int activationCount = buffer.getInt();
+            int flags = buffer.getInt();
+            s.skipAhead = (flags & SKIP_AHEAD) != 0;
+            s.collisionHorizons = (flags & COLLISION_HORIZONS) != 0;
+            s.visits = (flags & VISITS) != 0;
+            int segments = buffer.getInt();
+            int tiles = buffer.getInt();
+            byte[] spec = new byte[buffer.getInt()];
+            buffer.position(HEADER_SIZE);
+            buffer.get(spec);
+            s.kernel = StepKernel.parse(new String(spec, StandardCharsets.UTF_8));
+
+            s.x = readDoubles(buffer, s.count);
+            s.y = readDoubles(buffer, s.count);
+            s.lastX = readDoubles(buffer, s.count);
+            s.lastY = readDoubles(buffer, s.count);
+            s.radius = readDoubles(buffer, s.count);
+            s.originX = readDoubles(buffer, s.count);
+            s.originY = readDoubles(buffer, s.count);
+            s.dx = readDoubles(buffer, s.count);
+            s.dy = readDoubles(buffer, s.count);
+            s.steps = readInts(buffer, s.count);
+            s.totalSteps = readInts(buffer, s.count);
+            s.activationTick = readInts(buffer, s.count);
+            s.returns = readInts(buffer, s.count);
+            s.folded = readInts(buffer, s.count);
+            s.resumeTick = readInts(buffer, s.count);
+            s.activations = readInts(buffer, activationCount);
+            s.dormantOrder = readInts(buffer, s.count - activationCount);
+            s.trailColors = readInts(buffer, segments);
+            s.siteTileX = readInts(buffer, tiles);
+            s.siteTileY = readInts(buffer, tiles);
+            s.trailMarks = version == 2 ? new int[segments] : readInts(buffer, segments);
+            s.generators = readLongs(buffer, s.count);
+            s.siteRows = readLongs(buffer, tiles * VisitedSites.TILE_SIZE);
+            s.active = readBooleans(buffer, s.count);
+            s.absorbed = readBooleans(buffer, s.count);
+            s.moved = readBooleans(buffer, s.count);
+            s.trailCoords = new float[segments * 4];
+            buffer.asFloatBuffer().get(s.trailCoords);
+            buffer.position(buffer.position() + segments * 4 * Float.BYTES);
+            int marks = 0;
+            for (int n : s.trailMarks) {
+                marks += n;
+            }
+            s.trailMarkCoords = new float[marks * 2];
+            buffer.asFloatBuffer().get(s.trailMarkCoords);
+            return s;
+        } catch (RuntimeException e) {
+            // truncated file or counts that do not add up
+            throw new IOException("Corrupt simulation snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Makes room in the write buffer, writing it out when too full
+     *
+     * @param channel snapshot file
+     * @param buffer  write buffer
+     * @param bytes   bytes about to be put
+     * @return buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes the buffered bytes to the file
+     *
+     * @param channel snapshot file
+     * @param buffer  write buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads doubles and advances the buffer past them
+     *
+     * @param buffer mapped file
+     * @param n      number of values
+     * @return values
+     */
+    private static double[] readDoubles(ByteBuffer buffer, int n) {
+        double[] values = new double[n];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + n * Double.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads ints and advances the buffer past them
+     *
+     * @param buffer mapped file
+     * @param n      number of values
+     * @return values
+     */
+    private static int[] readInts(ByteBuffer buffer, int n) {
+        int[] values = new int[n];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads longs and advances the buffer past them
+     *
+     * @param buffer mapped file
+     * @param n      number of values
+     * @return values
+     */
+    private static long[] readLongs(ByteBuffer buffer, int n) {
+        long[] values = new long[n];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        return values;
+    }
+
+    /**
+     * Reads booleans stored as bytes and advances the buffer past them
+     *
+     * @param buffer mapped file
+     * @param n      number of values
+     * @return values
+     */
+    private static boolean[] readBooleans(ByteBuffer buffer, int n) {
+        boolean[] values = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            values[k] = buffer.get() != 0;
+        }
+        return values;
+    }
+
+}
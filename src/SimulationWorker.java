@@ -0,0 +1,260 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SimulationWorker.java
+ * @Description Steps a walk on its own thread and hands the changes to the FX thread
+ */
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Steps a walk on its own thread and hands the changes to the FX thread
+ *
+ * The worker ticks the engine at the set duration, or in turbo mode back to
+ * back for the turbo budget out of every FRAME_INTERVAL, and adds each tick
+ * to the FrameDelta at the back of a BatchQueue. It
+ * publishes the delta every PUBLISH_INTERVAL and before waiting for the next
+ * tick, so a delta coalesces however many ticks ran in that time, and the FX
+ * thread drains the published deltas once per frame. Stepping therefore never
+ * holds up a frame, and drawing never holds up stepping unless the FX thread
+ * falls so far behind that a delta reaches MAX_PENDING segments.
+ *
+ * The engine belongs to the worker while it runs. The FX thread may only read
+ * or change the engine, recorder or analytics after halt(), which waits for
+ * the worker to stop and draws whatever it left, and hands them back with
+ * resume().
+ */
+public class SimulationWorker {
+
+    // Constants
+
+    private static final long PUBLISH_INTERVAL = 8_000_000L; // nanoseconds between published deltas
+    private static final int MAX_CATCH_UP = 5; // maximum ticks run back to back after a stall
+    private static final int MAX_PENDING = 1 << 18; // segments and sites a delta holds before the worker waits
+    private static final long WAIT = 100_000L; // nanoseconds between checks while waiting for the other thread
+    private static final long FRAME_INTERVAL = 16_666_667L; // nanoseconds per frame at 60 Hz, the span of a turbo budget
+
+    // Data fields
+
+    private final BatchQueue<FrameDelta> deltas = new BatchQueue<FrameDelta>(FrameDelta::new, 4); // worker to FX thread
+    private final SimulationMetrics metrics; // source of the allocation counter
+    private final Thread thread; // steps the engine
+    private volatile boolean running = false; // whether the worker should step
+    private volatile boolean idle = true; // whether the worker has stopped touching the engine
+    private volatile boolean turbo = false; // whether ticks run back to back
+    private volatile long period = 100_000_000L; // nanoseconds per tick
+    private volatile long budget = 12_000_000L; // nanoseconds of ticks per frame interval in turbo mode
+
+    private RandomWalkEngine engine = null; // walk being stepped, set while halted
+    private boolean unbounded = false; // whether to record visited sites instead of trail segments
+    private TrajectoryRecorder recorder = null; // log each tick is recorded to, null if off
+    private WalkAnalytics analytics = null; // live statistics to sample, null if off
+    private int activations = 0; // engine activations already added to a delta
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor, starts the worker halted
+     *
+     * @param metrics performance counters of the pane, used to count allocations
+     */
+    SimulationWorker(SimulationMetrics metrics) {
+        this.metrics = metrics;
+        thread = new Thread(this::work, "walk-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Getters and setters
+
+    /**
+     * Sets the duration of a tick
+     *
+     * @param millis milliseconds per tick
+     */
+    public void setDuration(int millis) {
+        period = Math.max(1, millis) * 1_000_000L;
+    }
+
+    /**
+     * Switches turbo mode, which runs ticks back to back and stops once the
+     * walk is complete
+     *
+     * @param turbo whether to run in turbo mode
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Sets the frame-time budget of turbo mode
+     *
+     * @param nanos nanoseconds of ticks to run per frame interval, at least the interval to never pause
+     */
+    public void setBudget(long nanos) {
+        budget = Math.max(1, nanos);
+    }
+
+    /**
+     * Returns whether the worker is stepping
+     *
+     * @return true if resumed and neither halted nor stopped at the end of a turbo walk
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Other methods
+
+    /**
+     * Starts stepping a walk, FX thread only and only while halted
+     *
+     * @param engine    walk to step
+     * @param unbounded whether to record visited sites instead of trail segments
+     * @param recorder  log to record each tick to, null if off
+     * @param analytics live statistics to sample, null if off
+     */
+    public void resume(RandomWalkEngine engine, boolean unbounded, TrajectoryRecorder recorder,
+            WalkAnalytics analytics) {
+        this.engine = engine;
+        this.unbounded = unbounded;
+        this.recorder = recorder;
+        this.analytics = analytics;
+        activations = engine.getActivationCount();
+        running = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stops stepping and waits for the worker to let go of the engine, then
+     * passes every delta it left to the FX thread, FX thread only
+     *
+     * @param sink draws a delta
+     */
+    public void halt(Consumer<FrameDelta> sink) {
+        running = false;
+        LockSupport.unpark(thread);
+        while (!idle) {
+            LockSupport.parkNanos(this, WAIT);
+        }
+        drain(sink, Long.MAX_VALUE);
+    }
+
+    /**
+     * Passes published deltas to the FX thread until a time budget is spent,
+     * and the last delta too once the worker has stopped, FX thread only
+     *
+     * @param sink   draws a delta
+     * @param budget nanoseconds to spend, at least one delta is passed if there is one
+     */
+    public void drain(Consumer<FrameDelta> sink, long budget) {
+        long start = System.nanoTime();
+        FrameDelta delta;
+        while ((delta = deltas.peek()) != null) {
+            sink.accept(delta);
+            delta.clear();
+            deltas.remove();
+            if (System.nanoTime() - start >= budget) {
+                return;
+            }
+        }
+        if (!running && idle) {
+            // nothing fills the back delta until the next resume()
+            delta = deltas.getBack();
+            if (!delta.isEmpty()) {
+                sink.accept(delta);
+                delta.clear();
+            }
+        }
+    }
+
+    /**
+     * Steps the engine while running, publishing deltas as it goes
+     */
+    private void work() {
+        long next = 0; // timestamp the next tick is due
+        long published = 0; // timestamp of the last publish
+        long frameEnd = 0; // timestamp the current turbo frame interval ends
+        long budgetEnd = 0; // timestamp the current turbo frame interval's budget runs out
+        while (true) {
+            // pairs with halt(): either halt() sees the worker busy and waits,
+            // or the worker sees running cleared and stops
+            idle = false;
+            if (!running) {
+                idle = true;
+                LockSupport.park(this);
+                next = System.nanoTime() + period;
+                published = next;
+                continue;
+            }
+
+            FrameDelta delta = deltas.getBack();
+            long now = System.nanoTime();
+            if (turbo && now >= frameEnd) {
+                // a new frame interval, its budget of ticks starts now
+                frameEnd = now + FRAME_INTERVAL;
+                budgetEnd = now + budget;
+            }
+            long wait = turbo ? (now < budgetEnd ? 0 : frameEnd - now) : next - now;
+            if (wait > 0) {
+                // ahead of schedule or out of budget, hand over what there is and wait
+                if (!delta.isEmpty() && deltas.publish()) {
+                    published = now;
+                }
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+            if (delta.segmentCount + delta.siteCount >= MAX_PENDING) {
+                // the FX thread is behind, wait for it rather than buffer without bound
+                if (!deltas.publish()) {
+                    LockSupport.parkNanos(this, WAIT);
+                    continue;
+                }
+                published = now;
+                delta = deltas.getBack();
+            }
+
+            long tests = engine.getCollisionTests();
+            long bytes = metrics.getAllocatedBytes();
+            int moved = engine.step();
+            delta.addTick(engine, unbounded, activations);
+            activations = engine.getActivationCount();
+            if (recorder != null) {
+                try {
+                    recorder.recordTick(engine);
+                } catch (IOException e) {
+                    System.out.println(e);
+                    recorder = null;
+                    delta.recordingFailed = true;
+                }
+            }
+            if (analytics != null) {
+                analytics.sample(engine, false);
+            }
+            long end = System.nanoTime();
+            delta.addTiming(now, end, moved, engine.getCollisionTests() - tests, metrics.getAllocatedBytes() - bytes);
+
+            if (turbo && moved == 0 && engine.isComplete()) {
+                // walk complete, hand over the rest and stop
+                if (analytics != null) {
+                    analytics.sample(engine, true);
+                }
+                delta.complete = true;
+                deltas.publish();
+                running = false;
+                continue;
+            }
+            if (!turbo) {
+                // drop time that could not be caught up rather than bursting later
+                next = Math.max(next + period, end - MAX_CATCH_UP * period);
+            }
+            if (end - published >= PUBLISH_INTERVAL && deltas.publish()) {
+                published = end;
+            }
+        }
+    }
+
+}
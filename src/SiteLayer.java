@@ -0,0 +1,189 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SiteLayer.java
+ * @Description Canvas that draws visited lattice sites through a viewport
+ */
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Canvas that draws visited lattice sites through a viewport
+ *
+ * Shows a VisitedSites set panned and zoomed so that world point (viewX,
+ * viewY) is at the top-left corner and one world unit is zoom pixels. A redraw
+ * only touches the tiles overlapping the canvas, so its cost depends on the
+ * view and not on how long the walk has run. Runs of visited sites in a tile
+ * row are filled as one rectangle, and when a tile shrinks to a few pixels it
+ * is filled as a whole, shaded by how many of its sites were visited.
+ */
+public class SiteLayer extends Canvas {
+
+    // Constants
+
+    private static final double MIN_TILE_PIXELS = 16; // tile size below which tiles are drawn whole
+
+    // Data fields
+
+    private final VisitedSites sites; // sites to draw
+    private final double spacing; // world distance between neighbouring sites
+    private Color color = Color.DARKGRAY; // color of visited sites
+    private double viewX = 0; // world x-coordinate at the left edge
+    private double viewY = 0; // world y-coordinate at the top edge
+    private double zoom = 1; // pixels per world unit
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param sites   sites to draw
+     * @param spacing world distance between neighbouring sites
+     */
+    SiteLayer(VisitedSites sites, double spacing) {
+        this.sites = sites;
+        this.spacing = spacing;
+        widthProperty().addListener(ov -> redraw());
+        heightProperty().addListener(ov -> redraw());
+    }
+
+    // Getters and setters
+
+    /**
+     * Sets the viewport and redraws
+     *
+     * @param viewX world x-coordinate at the left edge
+     * @param viewY world y-coordinate at the top edge
+     * @param zoom  pixels per world unit
+     */
+    public void setViewport(double viewX, double viewY, double zoom) {
+        this.viewX = viewX;
+        this.viewY = viewY;
+        this.zoom = zoom;
+        redraw();
+    }
+
+    /**
+     * Setter for color
+     *
+     * @param color color of visited sites
+     */
+    public void setColor(Color color) {
+        this.color = color;
+    }
+
+    // Other methods
+
+    /**
+     * Draws a single newly visited site
+     *
+     * @param sx x-coordinate of site
+     * @param sy y-coordinate of site
+     */
+    public void drawSite(long sx, long sy) {
+        double size = spacing * zoom;
+        double left = (sx * spacing - spacing / 2 - viewX) * zoom;
+        double top = (sy * spacing - spacing / 2 - viewY) * zoom;
+        if (left + size < 0 || top + size < 0 || left > getWidth() || top > getHeight()) {
+            return;
+        }
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.setFill(color);
+        if (VisitedSites.TILE_SIZE * size < MIN_TILE_PIXELS) {
+            // tiles are shaded as a whole at this zoom, redraw just this one
+            int tx = (int) (sx >> VisitedSites.TILE_SHIFT);
+            int ty = (int) (sy >> VisitedSites.TILE_SHIFT);
+            double tileSize = Math.max(VisitedSites.TILE_SIZE * size, 1);
+            gc.clearRect(((long) tx * VisitedSites.TILE_SIZE * spacing - spacing / 2 - viewX) * zoom,
+                    ((long) ty * VisitedSites.TILE_SIZE * spacing - spacing / 2 - viewY) * zoom, tileSize, tileSize);
+            drawTile(gc, sites.findTile(tx, ty));
+            return;
+        }
+        gc.fillRect(left, top, Math.max(size, 1), Math.max(size, 1));
+    }
+
+    /**
+     * Clears the canvas
+     */
+    public void clear() {
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Clears the canvas and draws every visible visited site
+     */
+    public void redraw() {
+        GraphicsContext gc = getGraphicsContext2D();
+        gc.clearRect(0, 0, getWidth(), getHeight());
+        if (sites == null || sites.getTileCount() == 0) {
+            return;
+        }
+        gc.setFill(color);
+
+        double tileWorld = VisitedSites.TILE_SIZE * spacing;
+        int firstX = (int) Math.floor((viewX + spacing / 2) / tileWorld) - 1;
+        int firstY = (int) Math.floor((viewY + spacing / 2) / tileWorld) - 1;
+        int lastX = (int) Math.floor((viewX + getWidth() / zoom + spacing / 2) / tileWorld);
+        int lastY = (int) Math.floor((viewY + getHeight() / zoom + spacing / 2) / tileWorld);
+        long visible = (long) (lastX - firstX + 1) * (lastY - firstY + 1);
+
+        if (visible < sites.getTileCount()) {
+            // look up each tile in view
+            for (int ty = firstY; ty <= lastY; ty++) {
+                for (int tx = firstX; tx <= lastX; tx++) {
+                    int tile = sites.findTile(tx, ty);
+                    if (tile >= 0) {
+                        drawTile(gc, tile);
+                    }
+                }
+            }
+        } else {
+            // fewer tiles exist than fit in view, scan them all
+            for (int tile = 0; tile < sites.getTileCount(); tile++) {
+                int tx = sites.getTileX(tile);
+                int ty = sites.getTileY(tile);
+                if (tx >= firstX && tx <= lastX && ty >= firstY && ty <= lastY) {
+                    drawTile(gc, tile);
+                }
+            }
+        }
+        gc.setGlobalAlpha(1);
+    }
+
+    /**
+     * Draws the visited sites of a tile
+     *
+     * @param gc   graphics context of canvas
+     * @param tile tile index
+     */
+    private void drawTile(GraphicsContext gc, int tile) {
+        double size = spacing * zoom;
+        double left = ((long) sites.getTileX(tile) * VisitedSites.TILE_SIZE * spacing - spacing / 2 - viewX) * zoom;
+        double top = ((long) sites.getTileY(tile) * VisitedSites.TILE_SIZE * spacing - spacing / 2 - viewY) * zoom;
+        double tileSize = VisitedSites.TILE_SIZE * size;
+
+        if (tileSize < MIN_TILE_PIXELS) {
+            double share = (double) sites.getTileSites(tile) / (VisitedSites.TILE_SIZE * VisitedSites.TILE_SIZE);
+            gc.setGlobalAlpha(Math.min(1, 0.2 + 0.8 * share));
+            gc.fillRect(left, top, Math.max(tileSize, 1), Math.max(tileSize, 1));
+            gc.setGlobalAlpha(1);
+            return;
+        }
+
+        double height = Math.max(size, 1);
+        for (int row = 0; row < VisitedSites.TILE_SIZE; row++) {
+            long bits = sites.getRow(tile, row);
+            double y = top + row * size;
+            while (bits != 0) {
+                // fill each run of consecutive visited sites at once
+                int first = Long.numberOfTrailingZeros(bits);
+                int run = Long.numberOfTrailingZeros(~(bits >>> first));
+                gc.fillRect(left + first * size, y, Math.max(run * size, 1), height);
+                bits = run == 64 ? 0 : bits & ~(((1L << run) - 1) << first);
+            }
+        }
+    }
+
+}
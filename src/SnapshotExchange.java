@@ -0,0 +1,98 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SnapshotExchange.java
+ * @Description Lock-free handoff of reusable buffers between two threads
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free handoff of reusable buffers between two threads
+ *
+ * Double buffering with a spare buffer in between: the producer fills its
+ * back buffer and swaps it for the spare, the consumer swaps its front buffer
+ * for the spare when a fresher one is waiting. Each swap is a single atomic
+ * exchange, so neither side ever waits for the other or sees a buffer that is
+ * being written, and nothing is allocated after construction. The consumer
+ * only ever sees the latest published buffer, older ones are overwritten.
+ *
+ * Only one thread may produce and one thread may consume.
+ *
+ * @param <T> buffer type
+ */
+public class SnapshotExchange<T> {
+
+    // Constants
+
+    private static final int INDEX = 3; // bits of the spare buffer's index
+    private static final int FRESH = 4; // bit set while the spare buffer is unread
+
+    // Data fields
+
+    private final Object[] buffers; // the three buffers
+    private final AtomicInteger spare; // index of the spare buffer, with FRESH if unread
+    private int back = 0; // index of the buffer the producer fills
+    private int front = 1; // index of the buffer the consumer reads
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param back  buffer the producer fills first
+     * @param front buffer the consumer reads until the first publish
+     * @param spare buffer in between
+     */
+    SnapshotExchange(T back, T front, T spare) {
+        buffers = new Object[] { back, front, spare };
+        this.spare = new AtomicInteger(2);
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the buffer the producer fills, producer thread only
+     *
+     * @return back buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Returns the buffer the consumer reads, consumer thread only
+     *
+     * @return front buffer, the latest taken by update()
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        return (T) buffers[front];
+    }
+
+    // Other methods
+
+    /**
+     * Publishes the back buffer and takes the spare one to fill next,
+     * producer thread only
+     */
+    public void publish() {
+        back = spare.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Takes the latest published buffer as the front buffer if there is a
+     * fresher one than the current front, consumer thread only
+     *
+     * @return true if the front buffer changed
+     */
+    public boolean update() {
+        if ((spare.get() & FRESH) == 0) {
+            return false;
+        }
+        front = spare.getAndSet(front) & INDEX;
+        return true;
+    }
+
+}
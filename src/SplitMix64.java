@@ -0,0 +1,142 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SplitMix64.java
+ * @Description Seedable, splittable random number generator
+ */
+
+/**
+ * Seedable, splittable random number generator
+ *
+ * Implements the SplitMix64 generator that backs java.util.SplittableRandom,
+ * but keeps its whole state in a single long, so walker streams can be stored
+ * in a primitive array and saved or restored exactly. Unlike java.util.Random
+ * there is no atomic update on each draw.
+ */
+public class SplitMix64 {
+
+    // Constants
+
+    public static final long GAMMA = 0x9e3779b97f4a7c15L; // odd increment of the Weyl sequence
+
+    // Data fields
+
+    private long state; // current state
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param seed initial state
+     */
+    SplitMix64(long seed) {
+        state = seed;
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for state
+     *
+     * @return current state
+     */
+    public long getState() {
+        return state;
+    }
+
+    // Other methods
+
+    /**
+     * Returns the next random long
+     *
+     * @return random long
+     */
+    public long nextLong() {
+        return mix64(state += GAMMA);
+    }
+
+    /**
+     * Returns a random int from 0 inclusive to bound exclusive
+     *
+     * @param bound upper bound, positive
+     * @return random int
+     */
+    public int nextInt(int bound) {
+        return boundedInt(nextLong(), bound);
+    }
+
+    /**
+     * Returns a random double from 0 inclusive to 1 exclusive
+     *
+     * @return random double
+     */
+    public double nextDouble() {
+        return unitDouble(nextLong());
+    }
+
+    /**
+     * Returns the seed of a new, independent stream and advances this one
+     *
+     * @return seed of new stream
+     */
+    public long splitSeed() {
+        return mix64(nextLong());
+    }
+
+    /**
+     * Returns a new, independent generator and advances this one
+     *
+     * @return new generator
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(splitSeed());
+    }
+
+    /**
+     * Returns the seed of a numbered stream derived from a master seed, the
+     * same for a given master seed and index whatever order streams are made in
+     *
+     * @param seed  master seed
+     * @param index stream index
+     * @return seed of stream
+     */
+    public static long streamSeed(long seed, long index) {
+        return mix64(mix64(seed + GAMMA * (index + 1)));
+    }
+
+    /**
+     * Scrambles a state into a random long, Stafford's variant 13 finalizer
+     *
+     * @param z state
+     * @return random long
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Maps a random long to an int from 0 inclusive to bound exclusive, by
+     * multiplying its upper bits, without a rejection loop
+     *
+     * @param random random long
+     * @param bound  upper bound, positive
+     * @return random int
+     */
+    public static int boundedInt(long random, int bound) {
+        return (int) (((random >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Maps a random long to a double from 0 inclusive to 1 exclusive
+     *
+     * @param random random long
+     * @return random double
+     */
+    public static double unitDouble(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+}
@@ -0,0 +1,525 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        SpriteLayer.java
+ * @Description Image that draws every walker as a sprite in one pixel buffer
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Image that draws every walker as a sprite in one pixel buffer
+ *
+ * Walkers are filled circles with a black outline, stamped as precomputed
+ * pixel masks into a frame that is written with one bulk put into the
+ * IntBuffer backing a PixelBuffer. There is no scene node per walker, and the
+ * image is uploaded once per frame however many walkers there are. Resting
+ * walkers, which only change when they are placed or recolored, are stamped
+ * into a cached background that each frame starts from with a single copy,
+ * so only moving walkers are stamped anew. Walkers are drawn in id order
+ * through a pan and zoom viewport.
+ *
+ * The background is only restamped whole after a resize, a new viewport or a
+ * new set of walkers. A walker that joins, leaves or changes in the
+ * background just has its square repaired: the square is cleared and the
+ * resting walkers overlapping it, found through an index of tiles, are
+ * stamped back into it in id order.
+ */
+public class SpriteLayer extends ImageView {
+
+    // Constants
+
+    private static final int TILE_SHIFT = 5; // log2 of the tile side in pixels of the resting walker index
+
+    // Data fields
+
+    private int pixelWidth = 0; // width of pixel buffer
+    private int pixelHeight = 0; // height of pixel buffer
+    private IntBuffer pixels = null; // premultiplied ARGB pixels, row by row
+    private PixelBuffer<IntBuffer> pixelBuffer = null; // pixels shared with the image
+    private int[] background = new int[0]; // pixels of the resting walkers
+    private int[] frame = new int[0]; // pixels of the next frame
+    private boolean backgroundDirty = true; // whether the background needs restamping
+    private boolean dirty = true; // whether the image needs updating
+    private final HashMap<Color, int[][]> spriteCache = new HashMap<Color, int[][]>(); // sprites by color and size
+    private double viewX = 0; // world x-coordinate at the left edge
+    private double viewY = 0; // world y-coordinate at the top edge
+    private double zoom = 1; // pixels per world unit
+
+    private int count = 0; // number of walkers
+    private double[] x = new double[0]; // x-coordinates of walkers
+    private double[] y = new double[0]; // y-coordinates of walkers
+    private double[] radius = new double[0]; // radii of walkers
+    private Color[] color = new Color[0]; // fill colors of walkers
+    private boolean[] resting = new boolean[0]; // whether walkers are drawn into the background
+    private int[][] sprite = new int[0][]; // sprite of each walker at the current zoom
+
+    private int tileColumns = 0; // tiles per row of the resting walker index
+    private int tileRows = 0; // rows of tiles of the resting walker index
+    private int[][] tileIds = new int[0][]; // ids of the resting walkers overlapping each tile
+    private int[] tileSizes = new int[0]; // number of ids in each tile
+    private int[] repairIds = new int[16]; // resting walkers overlapping the square being repaired
+
+    // Constructors
+
+    /**
+     * No-arg constructor
+     */
+    SpriteLayer() {
+        setPreserveRatio(false);
+        setSmooth(false);
+    }
+
+    // Getters and setters
+
+    /**
+     * Resizes the pixel buffer
+     *
+     * @param width  width in pixels
+     * @param height height in pixels
+     */
+    public void setSize(double width, double height) {
+        int w = (int) Math.ceil(width);
+        int h = (int) Math.ceil(height);
+        if (w == pixelWidth && h == pixelHeight) {
+            return;
+        }
+        pixelWidth = w;
+        pixelHeight = h;
+        if (w <= 0 || h <= 0) {
+            pixels = null;
+            pixelBuffer = null;
+            setImage(null);
+            return;
+        }
+        // PixelBuffer needs a direct buffer
+        pixels = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<IntBuffer>(w, h, pixels, PixelFormat.getIntArgbPreInstance());
+        setImage(new WritableImage(pixelBuffer));
+        background = new int[w * h];
+        frame = new int[w * h];
+        backgroundDirty = true;
+        dirty = true;
+    }
+
+    /**
+     * Sets the viewport
+     *
+     * @param viewX world x-coordinate at the left edge
+     * @param viewY world y-coordinate at the top edge
+     * @param zoom  pixels per world unit
+     */
+    public void setViewport(double viewX, double viewY, double zoom) {
+        if (zoom != this.zoom) {
+            this.zoom = zoom;
+            for (int id = 0; id < count; id++) {
+                updateSprite(id);
+            }
+        }
+        this.viewX = viewX;
+        this.viewY = viewY;
+        backgroundDirty = true;
+        dirty = true;
+    }
+
+    /**
+     * Getter for count
+     *
+     * @return number of walkers
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Removes every walker and makes room for a number of them
+     *
+     * @param count number of walkers
+     */
+    public void setCount(int count) {
+        this.count = count;
+        if (x.length < count) {
+            x = new double[count];
+            y = new double[count];
+            radius = new double[count];
+            color = new Color[count];
+            resting = new boolean[count];
+            sprite = new int[count][];
+        }
+        Arrays.fill(sprite, null);
+        backgroundDirty = true;
+        dirty = true;
+    }
+
+    /**
+     * Places a walker
+     *
+     * @param id      walker id
+     * @param x       x-coordinate
+     * @param y       y-coordinate
+     * @param radius  radius of walker
+     * @param color   fill color of walker
+     * @param resting whether the walker rarely moves and is drawn into the background
+     */
+    public void setSprite(int id, double x, double y, double radius, Color color, boolean resting) {
+        leaveBackground(id);
+        this.x[id] = x;
+        this.y[id] = y;
+        this.radius[id] = radius;
+        this.color[id] = color;
+        this.resting[id] = resting;
+        updateSprite(id);
+        enterBackground(id);
+        dirty = true;
+    }
+
+    /**
+     * Moves a walker
+     *
+     * @param id walker id
+     * @param x  x-coordinate
+     * @param y  y-coordinate
+     */
+    public void setCenter(int id, double x, double y) {
+        if (x == this.x[id] && y == this.y[id]) {
+            return;
+        }
+        leaveBackground(id);
+        this.x[id] = x;
+        this.y[id] = y;
+        enterBackground(id);
+        dirty = true;
+    }
+
+    /**
+     * Recolors a walker, a walker that starts moving leaves the background
+     *
+     * @param id      walker id
+     * @param color   fill color of walker
+     * @param resting whether the walker rarely moves and is drawn into the background
+     */
+    public void setColor(int id, Color color, boolean resting) {
+        leaveBackground(id);
+        this.color[id] = color;
+        this.resting[id] = resting;
+        updateSprite(id);
+        enterBackground(id);
+        dirty = true;
+    }
+
+    /**
+     * Getter for x-coordinate
+     *
+     * @param id walker id
+     * @return x-coordinate
+     */
+    public double getCenterX(int id) {
+        return x[id];
+    }
+
+    /**
+     * Getter for y-coordinate
+     *
+     * @param id walker id
+     * @return y-coordinate
+     */
+    public double getCenterY(int id) {
+        return y[id];
+    }
+
+    /**
+     * Getter for color
+     *
+     * @param id walker id
+     * @return fill color
+     */
+    public Color getColor(int id) {
+        return color[id];
+    }
+
+    // Other methods
+
+    /**
+     * Writes every walker into the pixel buffer if anything changed since the
+     * last call, must run on the JavaFX application thread
+     */
+    public void render() {
+        if (!dirty || pixelBuffer == null) {
+            return;
+        }
+        pixelBuffer.updateBuffer(buffer -> {
+            if (backgroundDirty) {
+                restampBackground();
+            }
+            System.arraycopy(background, 0, frame, 0, frame.length);
+            for (int id = 0; id < count; id++) {
+                if (!resting[id]) {
+                    stamp(frame, id, 0, 0, pixelWidth, pixelHeight);
+                }
+            }
+            pixels.clear();
+            pixels.put(frame);
+            return null;
+        });
+        dirty = false;
+    }
+
+    /**
+     * Clears the background and stamps every resting walker into it, indexing
+     * them by tile
+     */
+    private void restampBackground() {
+        Arrays.fill(background, 0);
+        tileColumns = (pixelWidth >> TILE_SHIFT) + 1;
+        tileRows = (pixelHeight >> TILE_SHIFT) + 1;
+        if (tileIds.length < tileColumns * tileRows) {
+            tileIds = new int[tileColumns * tileRows][];
+            tileSizes = new int[tileColumns * tileRows];
+        }
+        Arrays.fill(tileSizes, 0);
+        for (int id = 0; id < count; id++) {
+            if (resting[id] && sprite[id] != null) {
+                stamp(background, id, 0, 0, pixelWidth, pixelHeight);
+                index(id, true);
+            }
+        }
+        backgroundDirty = false;
+    }
+
+    /**
+     * Takes a resting walker out of the background before it changes
+     *
+     * @param id walker id
+     */
+    private void leaveBackground(int id) {
+        if (backgroundDirty || !resting[id] || sprite[id] == null) {
+            return;
+        }
+        index(id, false);
+        repair(id);
+    }
+
+    /**
+     * Puts a resting walker into the background after it changed
+     *
+     * @param id walker id
+     */
+    private void enterBackground(int id) {
+        if (backgroundDirty || !resting[id] || sprite[id] == null) {
+            return;
+        }
+        index(id, true);
+        repair(id);
+    }
+
+    /**
+     * Adds a resting walker to, or removes it from, the tiles its sprite overlaps
+     *
+     * @param id  walker id
+     * @param add whether to add the walker rather than remove it
+     */
+    private void index(int id, boolean add) {
+        int size = spriteSize(id);
+        int left = spriteLeft(id, size);
+        int top = spriteTop(id, size);
+        int lastColumn = Math.min(tileColumns - 1, (left + size - 1) >> TILE_SHIFT);
+        int lastRow = Math.min(tileRows - 1, (top + size - 1) >> TILE_SHIFT);
+        for (int row = Math.max(0, top >> TILE_SHIFT); row <= lastRow; row++) {
+            for (int column = Math.max(0, left >> TILE_SHIFT); column <= lastColumn; column++) {
+                int tile = row * tileColumns + column;
+                int[] ids = tileIds[tile];
+                int n = tileSizes[tile];
+                if (add) {
+                    if (ids == null || ids.length == n) {
+                        ids = tileIds[tile] = ids == null ? new int[4] : Arrays.copyOf(ids, 2 * n);
+                    }
+                    ids[tileSizes[tile]++] = id;
+                    continue;
+                }
+                for (int k = 0; k < n; k++) {
+                    if (ids[k] == id) {
+                        ids[k] = ids[n - 1];
+                        tileSizes[tile]--;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Redraws the background within the square of a walker's sprite from the
+     * resting walkers overlapping it, in id order
+     *
+     * @param id walker id
+     */
+    private void repair(int id) {
+        int size = spriteSize(id);
+        int left = Math.max(0, spriteLeft(id, size));
+        int top = Math.max(0, spriteTop(id, size));
+        int right = Math.min(pixelWidth, spriteLeft(id, size) + size);
+        int bottom = Math.min(pixelHeight, spriteTop(id, size) + size);
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        for (int row = top; row < bottom; row++) {
+            Arrays.fill(background, row * pixelWidth + left, row * pixelWidth + right, 0);
+        }
+
+        int n = 0;
+        for (int row = top >> TILE_SHIFT; row <= (bottom - 1) >> TILE_SHIFT; row++) {
+            for (int column = left >> TILE_SHIFT; column <= (right - 1) >> TILE_SHIFT; column++) {
+                int tile = row * tileColumns + column;
+                if (n + tileSizes[tile] > repairIds.length) {
+                    repairIds = Arrays.copyOf(repairIds, Math.max(2 * repairIds.length, n + tileSizes[tile]));
+                }
+                System.arraycopy(tileIds[tile], 0, repairIds, n, tileSizes[tile]);
+                n += tileSizes[tile];
+            }
+        }
+        // a walker spanning several tiles is listed once per tile
+        Arrays.sort(repairIds, 0, n);
+        for (int k = 0; k < n; k++) {
+            if (k == 0 || repairIds[k] != repairIds[k - 1]) {
+                stamp(background, repairIds[k], left, top, right, bottom);
+            }
+        }
+    }
+
+    /**
+     * Returns the side of a walker's sprite
+     *
+     * @param id walker id
+     * @return side in pixels
+     */
+    private int spriteSize(int id) {
+        return (int) Math.sqrt(sprite[id].length);
+    }
+
+    /**
+     * Returns the left edge of a walker's sprite
+     *
+     * @param id   walker id
+     * @param size side of the sprite
+     * @return pixel column
+     */
+    private int spriteLeft(int id, int size) {
+        return (int) Math.round((x[id] - viewX) * zoom) - size / 2;
+    }
+
+    /**
+     * Returns the top edge of a walker's sprite
+     *
+     * @param id   walker id
+     * @param size side of the sprite
+     * @return pixel row
+     */
+    private int spriteTop(int id, int size) {
+        return (int) Math.round((y[id] - viewY) * zoom) - size / 2;
+    }
+
+    /**
+     * Looks up the sprite of a walker at the current zoom
+     *
+     * @param id walker id
+     */
+    private void updateSprite(int id) {
+        if (color[id] == null) {
+            return;
+        }
+        // quarter-pixel radii are indistinguishable
+        int quarters = Math.max(2, (int) Math.round(radius[id] * zoom * 4));
+        // indexed by size within each color, so a lookup allocates no key
+        int[][] sizes = spriteCache.get(color[id]);
+        if (sizes == null || sizes.length <= quarters) {
+            sizes = sizes == null ? new int[quarters + 1][]
+                    : Arrays.copyOf(sizes, Math.max(quarters + 1, sizes.length * 2));
+            spriteCache.put(color[id], sizes);
+        }
+        if (sizes[quarters] == null) {
+            sizes[quarters] = createSprite(quarters / 4.0, toArgb(color[id]));
+        }
+        sprite[id] = sizes[quarters];
+    }
+
+    /**
+     * Draws a filled circle with a one-pixel black outline into a square mask
+     *
+     * @param r    radius in pixels
+     * @param argb fill color
+     * @return opaque pixels of the sprite, 0 outside the circle, row by row
+     */
+    private static int[] createSprite(double r, int argb) {
+        int half = (int) Math.ceil(r + 0.5);
+        int size = 2 * half + 1;
+        int[] s = new int[size * size];
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                double d = Math.hypot(column - half, row - half);
+                if (d <= r - 0.5) {
+                    s[row * size + column] = argb;
+                } else if (d <= r + 0.5) {
+                    s[row * size + column] = 0xff000000;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Stamps a walker's sprite into an array of pixels, clipped to a rectangle
+     * within the buffer
+     *
+     * @param target     pixels, row by row
+     * @param id         walker id
+     * @param clipLeft   first pixel column to draw
+     * @param clipTop    first pixel row to draw
+     * @param clipRight  pixel column after the last to draw
+     * @param clipBottom pixel row after the last to draw
+     */
+    private void stamp(int[] target, int id, int clipLeft, int clipTop, int clipRight, int clipBottom) {
+        int[] s = sprite[id];
+        if (s == null) {
+            return;
+        }
+        int size = spriteSize(id);
+        int left = spriteLeft(id, size);
+        int top = spriteTop(id, size);
+        int firstRow = Math.max(0, clipTop - top);
+        int lastRow = Math.min(size, clipBottom - top);
+        int firstColumn = Math.max(0, clipLeft - left);
+        int lastColumn = Math.min(size, clipRight - left);
+        for (int row = firstRow; row < lastRow; row++) {
+            int from = row * size;
+            int to = (top + row) * pixelWidth + left;
+            for (int column = firstColumn; column < lastColumn; column++) {
+                int pixel = s[from + column];
+                if (pixel != 0) {
+                    target[to + column] = pixel;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a color to an opaque ARGB int
+     *
+     * @param color color
+     * @return ARGB with full alpha, which premultiplying leaves unchanged
+     */
+    static int toArgb(Color color) {
+        return 0xff000000 | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        StepKernel.java
+ * @Description Distribution of the moves a walker makes
+ */
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the moves a walker makes
+ *
+ * A kernel draws the direction and number of steps of one move from a
+ * walker's own random stream and hands them to the engine. Draws must take
+ * constant time and allocate nothing, since they run for every walker on
+ * every tick, from several threads at once with stepParallel(). Under
+ * RESTRICT a kernel draws only from the moves that fit the room around the
+ * walker, never redrawing until one does.
+ *
+ * Kernels are named by a spec that parse() turns back into the kernel, so a
+ * kernel can be chosen on the command line and saved with a snapshot:
+ *
+ * 8-neighbour, 4-neighbour, biased:n:ne:e:se:s:sw:w:nw, levy:alpha[:max] and
+ * gaussian:sigma
+ */
+public abstract class StepKernel {
+
+    // Constants
+
+    public static final int LEVY_MAX_STEPS = 1000; // default longest Levy flight in steps
+
+    // cardinal and ordinal directions, N, NE, E, SE, S, SW, W, NW
+    static final int[] DIRECTION_X = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    static final int[] DIRECTION_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+    // the original kernel, any of the 8 neighbour directions and 1 to
+    // MAX_STEP_COUNT steps, all equally likely
+    public static final StepKernel STANDARD = new LatticeKernel("8-neighbour",
+            new double[] { 1, 1, 1, 1, 1, 1, 1, 1 }, uniformSteps());
+
+    // Other methods
+
+    /**
+     * Draws a move of a walker and sets it with RandomWalkEngine.setStep()
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     */
+    abstract void draw(RandomWalkEngine engine, int i);
+
+    /**
+     * Draws a move of a walker that stays within the room around it and sets
+     * it with RandomWalkEngine.setStep(), or sets no move if none fits
+     *
+     * @param engine engine the walker belongs to, the source of its random stream
+     * @param i      walker id
+     * @param west   room towards negative x, in steps
+     * @param north  room towards negative y, in steps
+     * @param east   room towards positive x, in steps
+     * @param south  room towards positive y, in steps
+     */
+    abstract void drawWithin(RandomWalkEngine engine, int i, double west, double north, double east, double south);
+
+    /**
+     * Returns a kernel of the 4 cardinal directions and 1 to MAX_STEP_COUNT
+     * steps, all equally likely
+     *
+     * @return 4-neighbour kernel
+     */
+    public static StepKernel fourNeighbour() {
+        return new LatticeKernel("4-neighbour", new double[] { 1, 0, 1, 0, 1, 0, 1, 0 }, uniformSteps());
+    }
+
+    /**
+     * Returns a kernel of weighted neighbour directions and 1 to
+     * MAX_STEP_COUNT equally likely steps
+     *
+     * @param weights relative weights of N, NE, E, SE, S, SW, W and NW, 0 to never go that way
+     * @return biased kernel
+     */
+    public static StepKernel biased(double[] weights) {
+        if (weights.length != DIRECTION_X.length) {
+            throw new IllegalArgumentException("Expected 8 direction weights, got " + weights.length);
+        }
+        StringBuilder name = new StringBuilder("biased");
+        for (double weight : weights) {
+            name.append(':').append(format(weight));
+        }
+        return new LatticeKernel(name.toString(), weights.clone(), uniformSteps());
+    }
+
+    /**
+     * Returns a Levy flight over the 8 neighbour directions, with the number
+     * of steps l drawn with probability proportional to l^-(1 + alpha) up to
+     * a cutoff
+     *
+     * @param alpha    tail exponent, from 0 exclusive to 2, smaller gives longer flights
+     * @param maxSteps longest flight in steps
+     * @return Levy kernel
+     */
+    public static StepKernel levy(double alpha, int maxSteps) {
+        if (!(alpha > 0 && alpha <= 2) || maxSteps < 1) {
+            throw new IllegalArgumentException("Levy kernel needs 0 < alpha <= 2 and maxSteps >= 1");
+        }
+        double[] lengths = new double[maxSteps];
+        for (int l = 1; l <= maxSteps; l++) {
+            lengths[l - 1] = Math.pow(l, -(1 + alpha));
+        }
+        return new LatticeKernel("levy:" + format(alpha) + ":" + maxSteps,
+                new double[] { 1, 1, 1, 1, 1, 1, 1, 1 }, lengths);
+    }
+
+    /**
+     * Returns a kernel of continuous-angle moves whose displacement along each
+     * axis is normally distributed
+     *
+     * @param sigma standard deviation of each axis in steps
+     * @return Gaussian kernel
+     */
+    public static StepKernel gaussian(double sigma) {
+        if (!(sigma > 0) || Double.isInfinite(sigma)) {
+            throw new IllegalArgumentException("Gaussian kernel needs a positive sigma");
+        }
+        return new GaussianKernel("gaussian:" + format(sigma), sigma);
+    }
+
+    /**
+     * Returns the kernel named by a spec
+     *
+     * @param spec spec as returned by toString()
+     * @return kernel
+     */
+    public static StepKernel parse(String spec) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "8-neighbour":
+                    return STANDARD;
+                case "4-neighbour":
+                    return fourNeighbour();
+                case "biased":
+                    double[] weights = new double[parts.length - 1];
+                    for (int k = 0; k < weights.length; k++) {
+                        weights[k] = Double.parseDouble(parts[k + 1]);
+                    }
+                    return biased(weights);
+                case "levy":
+                    return levy(Double.parseDouble(parts[1]),
+                            parts.length > 2 ? Integer.parseInt(parts[2]) : LEVY_MAX_STEPS);
+                case "gaussian":
+                    return gaussian(Double.parseDouble(parts[1]));
+                default:
+                    break;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed step kernel: " + spec, e);
+        }
+        throw new IllegalArgumentException("Unknown step kernel: " + spec);
+    }
+
+    /**
+     * Returns equal weights of 1 to MAX_STEP_COUNT steps
+     *
+     * @return weight of each number of steps, from 1 on
+     */
+    private static double[] uniformSteps() {
+        double[] lengths = new double[RandomWalkEngine.MAX_STEP_COUNT];
+        Arrays.fill(lengths, 1);
+        return lengths;
+    }
+
+    /**
+     * Formats a parameter for a spec, without a fraction if it is whole
+     *
+     * @param value parameter
+     * @return formatted parameter
+     */
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+}
@@ -0,0 +1,204 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        TickScheduler.java
+ * @Description Single frame-driven scheduler for random walk ticks
+ */
+
+import java.util.ArrayList;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Single frame-driven scheduler for random walk ticks
+ *
+ * Runs every registered task once per tick from one AnimationTimer, so all
+ * active walkers advance together in one pass per tick with consistent timing
+ * instead of each walker running its own Timeline. In turbo mode the tick
+ * period is ignored and ticks run back to back until a frame-time budget is
+ * spent, so the simulation runs at full speed while frames keep coming.
+ */
+public class TickScheduler extends AnimationTimer {
+
+    // Constants
+
+    private static final int MAX_CATCH_UP = 5; // maximum ticks run per frame after a stall
+
+    // Data fields
+
+    private final ArrayList<Runnable> tasks = new ArrayList<Runnable>(); // tasks run each tick
+    private final ArrayList<Runnable> frameTasks = new ArrayList<Runnable>(); // tasks run each frame
+    private long period = 100_000_000L; // nanoseconds per tick
+    private long budget = 0; // nanoseconds of ticks per frame in turbo mode, 0 if off
+    private long lastFrame = 0; // timestamp of previous frame, 0 if stopped
+    private long elapsed = 0; // nanoseconds not yet consumed by ticks
+    private long frameInterval = 0; // nanoseconds between the last two frames
+    private boolean running = false; // whether the scheduler is started
+
+    // Getters and setters
+
+    /**
+     * Sets the duration of a tick
+     *
+     * @param millis milliseconds per tick
+     */
+    public void setDuration(int millis) {
+        period = Math.max(1, millis) * 1_000_000L;
+    }
+
+    /**
+     * Sets the frame-time budget of turbo mode
+     *
+     * @param nanos nanoseconds of ticks to run per frame, 0 to run ticks at the set duration
+     */
+    public void setBudget(long nanos) {
+        budget = Math.max(0, nanos);
+        elapsed = 0;
+    }
+
+    /**
+     * Getter for budget
+     *
+     * @return nanoseconds of ticks per frame in turbo mode, 0 if off
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns whether the scheduler is started
+     *
+     * @return true if started
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Getter for frameInterval
+     *
+     * @return nanoseconds between the last two frames, 0 before the second frame
+     */
+    public long getFrameInterval() {
+        return frameInterval;
+    }
+
+    // Other methods
+
+    /**
+     * Registers a task to run once per tick
+     *
+     * @param task task to run
+     */
+    public void addTask(Runnable task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Unregisters a task
+     *
+     * @param task task to remove
+     */
+    public void removeTask(Runnable task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * Registers a task to run once per frame, after that frame's ticks
+     *
+     * @param task task to run
+     */
+    public void addFrameTask(Runnable task) {
+        frameTasks.add(task);
+    }
+
+    /**
+     * Unregisters a frame task
+     *
+     * @param task task to remove
+     */
+    public void removeFrameTask(Runnable task) {
+        frameTasks.remove(task);
+    }
+
+    /**
+     * Starts running ticks
+     */
+    @Override
+    public void start() {
+        lastFrame = 0;
+        frameInterval = 0;
+        running = true;
+        super.start();
+    }
+
+    /**
+     * Stops running ticks
+     */
+    @Override
+    public void stop() {
+        super.stop();
+        running = false;
+    }
+
+    /**
+     * Runs as many ticks as have elapsed since the previous frame
+     *
+     * @param now timestamp of current frame in nanoseconds
+     */
+    @Override
+    public void handle(long now) {
+        if (lastFrame == 0) {
+            // first tick runs one period after starting
+            lastFrame = now;
+            elapsed = 0;
+            return;
+        }
+        frameInterval = now - lastFrame;
+        elapsed += frameInterval;
+        lastFrame = now;
+
+        if (budget > 0) {
+            // turbo, tick until the budget is spent or a task stops the scheduler
+            long start = System.nanoTime();
+            do {
+                runTasks();
+            } while (running && System.nanoTime() - start < budget);
+            elapsed = 0;
+            runFrameTasks();
+            return;
+        }
+
+        int ticks = 0;
+        while (elapsed >= period && ticks < MAX_CATCH_UP) {
+            elapsed -= period;
+            ticks++;
+            runTasks();
+        }
+        // drop time that could not be caught up rather than bursting later
+        if (ticks == MAX_CATCH_UP) {
+            elapsed = Math.min(elapsed, period);
+        }
+
+        runFrameTasks();
+    }
+
+    /**
+     * Runs every task once
+     */
+    private void runTasks() {
+        for (int k = 0; k < tasks.size(); k++) {
+            tasks.get(k).run();
+        }
+    }
+
+    /**
+     * Runs every frame task once
+     */
+    private void runFrameTasks() {
+        for (int k = 0; k < frameTasks.size(); k++) {
+            frameTasks.get(k).run();
+        }
+    }
+
+}
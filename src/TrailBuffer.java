@@ -0,0 +1,478 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        TrailBuffer.java
+ * @Description Bounded ring buffer of trail segments
+ */
+
+import java.util.Arrays;
+
+/**
+ * Bounded ring buffer of trail segments
+ *
+ * Stores the segments drawn by walkers as packed floats so a trail can be
+ * redrawn without keeping a scene node per move. With a capacity set, the
+ * oldest segments are evicted once the buffer is full.
+ *
+ * Segments added for a walker are merged into that walker's newest segment
+ * while they continue it in nearly the same direction, Reumann-Witkam style:
+ * a run keeps absorbing moves as long as their ends stay within half the
+ * tolerance of the line through the run's first move, so every merged vertex
+ * stays within the tolerance of the stored segment. A run stays open until
+ * the walker's next move fails to continue it or closeRuns() is called.
+ *
+ * The start of every merged move is kept as a mark of its segment, in a
+ * chain of pooled nodes, so a merged run still shows where each of its
+ * moves began. Segments that absorbed nothing use no nodes.
+ */
+public class TrailBuffer {
+
+    // Constants
+
+    private static final double COLLINEAR_SLACK = 1e-3; // float rounding allowed for collinear moves
+
+    // Data fields
+
+    private float[] coords; // x0, y0, x1, y1 of each segment
+    private int[] colors; // color index of each segment
+    private int capacity; // maximum number of segments, 0 for unbounded
+    private int start = 0; // slot of oldest segment
+    private int size = 0; // number of segments stored
+    private long added = 0; // number of segments ever stored, merged moves excluded
+    private double tolerance = 0; // maximum distance of merged vertices, negative to never merge
+    private long[] runs = new long[16]; // sequence number of each walker's open segment, -1 for none
+    private float[] runDx = new float[16]; // unit x-direction of each walker's open segment
+    private float[] runDy = new float[16]; // unit y-direction of each walker's open segment
+    private int[] firstMarks; // first mark node of each segment, -1 for none
+    private int[] lastMarks; // last mark node of each segment, -1 for none
+    private float[] markCoords = new float[64]; // x, y of each mark node
+    private int[] nextMarks = new int[32]; // next mark node of the same segment, -1 for none
+    private int markTop = 0; // number of mark nodes ever used since clear()
+    private int freeMarks = -1; // first node of the chain of freed mark nodes, -1 for none
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param capacity maximum number of segments, 0 for unbounded
+     */
+    TrailBuffer(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        int slots = capacity > 0 ? capacity : 1024;
+        coords = new float[slots * 4];
+        colors = new int[slots];
+        firstMarks = new int[slots];
+        lastMarks = new int[slots];
+        Arrays.fill(runs, -1);
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for capacity
+     *
+     * @return maximum number of segments, 0 for unbounded
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Setter for capacity, keeps the newest segments that still fit
+     *
+     * @param capacity maximum number of segments, 0 for unbounded
+     */
+    public void setCapacity(int capacity) {
+        capacity = Math.max(capacity, 0);
+        if (capacity == this.capacity) {
+            // keep the storage, as every initialize sets the capacity again
+            return;
+        }
+        int keep = capacity > 0 ? Math.min(size, capacity) : size;
+        int slots = Math.max(capacity > 0 ? capacity : Math.max(keep, 1024), 1);
+        float[] newCoords = new float[slots * 4];
+        int[] newColors = new int[slots];
+        int[] newFirstMarks = new int[slots];
+        int[] newLastMarks = new int[slots];
+        for (int k = 0; k < size - keep; k++) {
+            freeMarks(slot(k));
+        }
+        for (int k = 0; k < keep; k++) {
+            int slot = slot(size - keep + k);
+            System.arraycopy(coords, slot * 4, newCoords, k * 4, 4);
+            newColors[k] = colors[slot];
+            newFirstMarks[k] = firstMarks[slot];
+            newLastMarks[k] = lastMarks[slot];
+        }
+        this.capacity = capacity;
+        coords = newCoords;
+        colors = newColors;
+        firstMarks = newFirstMarks;
+        lastMarks = newLastMarks;
+        start = 0;
+        size = keep;
+    }
+
+    /**
+     * Getter for tolerance
+     *
+     * @return maximum distance of merged vertices from their segment, negative if merging is off
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Setter for tolerance, 0 merges only exactly collinear moves
+     *
+     * @param tolerance maximum distance of merged vertices from their segment, negative to never merge
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+        Arrays.fill(runs, -1);
+    }
+
+    /**
+     * Getter for size
+     *
+     * @return number of segments stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Getter for added
+     *
+     * @return number of segments ever stored, merged moves excluded
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the starting x-coordinate of a segment
+     *
+     * @param k segment index, 0 is the oldest
+     * @return starting x-coordinate
+     */
+    public float getX0(int k) {
+        return coords[slot(k) * 4];
+    }
+
+    /**
+     * Returns the starting y-coordinate of a segment
+     *
+     * @param k segment index, 0 is the oldest
+     * @return starting y-coordinate
+     */
+    public float getY0(int k) {
+        return coords[slot(k) * 4 + 1];
+    }
+
+    /**
+     * Returns the ending x-coordinate of a segment
+     *
+     * @param k segment index, 0 is the oldest
+     * @return ending x-coordinate
+     */
+    public float getX1(int k) {
+        return coords[slot(k) * 4 + 2];
+    }
+
+    /**
+     * Returns the ending y-coordinate of a segment
+     *
+     * @param k segment index, 0 is the oldest
+     * @return ending y-coordinate
+     */
+    public float getY1(int k) {
+        return coords[slot(k) * 4 + 3];
+    }
+
+    /**
+     * Returns the color index of a segment
+     *
+     * @param k segment index, 0 is the oldest
+     * @return color index
+     */
+    public int getColor(int k) {
+        return colors[slot(k)];
+    }
+
+    /**
+     * Returns the first mark of a segment, the start of the first move merged
+     * into it
+     *
+     * @param k segment index, 0 is the oldest
+     * @return mark node, -1 if no move was merged into the segment
+     */
+    public int getFirstMark(int k) {
+        return firstMarks[slot(k)];
+    }
+
+    /**
+     * Returns the last mark of a segment, the start of the newest move merged
+     * into it
+     *
+     * @param k segment index, 0 is the oldest
+     * @return mark node, -1 if no move was merged into the segment
+     */
+    public int getLastMark(int k) {
+        return lastMarks[slot(k)];
+    }
+
+    /**
+     * Returns the mark following a mark of the same segment
+     *
+     * @param mark mark node
+     * @return next mark node, -1 if it is the segment's last mark
+     */
+    public int getNextMark(int mark) {
+        return nextMarks[mark];
+    }
+
+    /**
+     * Returns the x-coordinate of a mark
+     *
+     * @param mark mark node
+     * @return x-coordinate of the start of a merged move
+     */
+    public float getMarkX(int mark) {
+        return markCoords[mark * 2];
+    }
+
+    /**
+     * Returns the y-coordinate of a mark
+     *
+     * @param mark mark node
+     * @return y-coordinate of the start of a merged move
+     */
+    public float getMarkY(int mark) {
+        return markCoords[mark * 2 + 1];
+    }
+
+    /**
+     * Returns the number of walkers that may have an open segment
+     *
+     * @return one more than the highest walker id seen so far
+     */
+    public int getWalkerCount() {
+        return runs.length;
+    }
+
+    /**
+     * Returns the open segment of a walker, the one its next move may extend
+     *
+     * @param walker walker id
+     * @return segment index, -1 if the walker has no open segment
+     */
+    public int getOpenSegment(int walker) {
+        if (walker >= runs.length || runs[walker] < 0) {
+            return -1;
+        }
+        long k = runs[walker] - (added - size);
+        return k < 0 ? -1 : (int) k;
+    }
+
+    // Other methods
+
+    /**
+     * Appends a segment, evicting the oldest segment if the buffer is full
+     *
+     * @param x0    starting x-coordinate
+     * @param y0    starting y-coordinate
+     * @param x1    ending x-coordinate
+     * @param y1    ending y-coordinate
+     * @param color color index
+     * @return true if a segment was evicted
+     */
+    public boolean add(double x0, double y0, double x1, double y1, int color) {
+        boolean evicted = false;
+        if (capacity > 0 && size == capacity) {
+            freeMarks(start);
+            start = (start + 1) % capacity;
+            size--;
+            evicted = true;
+        } else if (capacity == 0 && size == colors.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+            colors = Arrays.copyOf(colors, colors.length * 2);
+            firstMarks = Arrays.copyOf(firstMarks, firstMarks.length * 2);
+            lastMarks = Arrays.copyOf(lastMarks, lastMarks.length * 2);
+        }
+        int slot = slot(size++);
+        coords[slot * 4] = (float) x0;
+        coords[slot * 4 + 1] = (float) y0;
+        coords[slot * 4 + 2] = (float) x1;
+        coords[slot * 4 + 3] = (float) y1;
+        colors[slot] = color;
+        firstMarks[slot] = -1;
+        lastMarks[slot] = -1;
+        added++;
+        return evicted;
+    }
+
+    /**
+     * Adds a mark to the newest segment, as when restoring a saved trail
+     *
+     * @param x x-coordinate of the start of a merged move
+     * @param y y-coordinate of the start of a merged move
+     */
+    public void addMark(double x, double y) {
+        if (size > 0) {
+            addMark(slot(size - 1), x, y);
+        }
+    }
+
+    /**
+     * Appends the move of a walker, merging it into the walker's newest segment
+     * if it continues that segment within the tolerance
+     *
+     * @param walker walker id
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param color  color index
+     * @return true if a segment was evicted
+     */
+    public boolean add(int walker, double x0, double y0, double x1, double y1, int color) {
+        if (walker >= runs.length) {
+            int length = Math.max(walker + 1, runs.length * 2);
+            int old = runs.length;
+            runs = Arrays.copyOf(runs, length);
+            runDx = Arrays.copyOf(runDx, length);
+            runDy = Arrays.copyOf(runDy, length);
+            Arrays.fill(runs, old, length, -1);
+        }
+        if (tolerance >= 0 && extend(walker, x0, y0, x1, y1, color)) {
+            return false;
+        }
+
+        boolean evicted = add(x0, y0, x1, y1, color);
+        double length = Math.hypot(x1 - x0, y1 - y0);
+        if (tolerance >= 0 && length > 0) {
+            runs[walker] = added - 1;
+            runDx[walker] = (float) ((x1 - x0) / length);
+            runDy[walker] = (float) ((y1 - y0) / length);
+        } else {
+            runs[walker] = -1;
+        }
+        return evicted;
+    }
+
+    /**
+     * Removes every segment
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+        markTop = 0;
+        freeMarks = -1;
+        Arrays.fill(runs, -1);
+    }
+
+    /**
+     * Closes the open segment of every walker, later moves start new segments
+     */
+    public void closeRuns() {
+        Arrays.fill(runs, -1);
+    }
+
+    /**
+     * Extends the open segment of a walker to a move's end if the move
+     * continues it within the tolerance
+     *
+     * @param walker walker id
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param color  color index
+     * @return true if the move was merged
+     */
+    private boolean extend(int walker, double x0, double y0, double x1, double y1, int color) {
+        long run = runs[walker];
+        long k = run - (added - size);
+        if (run < 0 || k < 0) {
+            // no open segment, or it has been evicted
+            return false;
+        }
+        int slot = slot((int) k);
+        if (colors[slot] != color || coords[slot * 4 + 2] != (float) x0 || coords[slot * 4 + 3] != (float) y0) {
+            return false;
+        }
+
+        // the move must head forward and end within the strip around the run's line
+        double dx = runDx[walker];
+        double dy = runDy[walker];
+        if ((x1 - x0) * dx + (y1 - y0) * dy <= 0) {
+            return false;
+        }
+        double offX = x1 - coords[slot * 4];
+        double offY = y1 - coords[slot * 4 + 1];
+        if (Math.abs(offX * dy - offY * dx) > tolerance / 2 + COLLINEAR_SLACK) {
+            return false;
+        }
+        coords[slot * 4 + 2] = (float) x1;
+        coords[slot * 4 + 3] = (float) y1;
+        addMark(slot, x0, y0);
+        return true;
+    }
+
+    /**
+     * Appends a mark to the chain of a segment
+     *
+     * @param slot slot of segment
+     * @param x    x-coordinate of the start of a merged move
+     * @param y    y-coordinate of the start of a merged move
+     */
+    private void addMark(int slot, double x, double y) {
+        int mark = freeMarks;
+        if (mark >= 0) {
+            freeMarks = nextMarks[mark];
+        } else {
+            if (markTop == nextMarks.length) {
+                nextMarks = Arrays.copyOf(nextMarks, markTop * 2);
+                markCoords = Arrays.copyOf(markCoords, markTop * 4);
+            }
+            mark = markTop++;
+        }
+        markCoords[mark * 2] = (float) x;
+        markCoords[mark * 2 + 1] = (float) y;
+        nextMarks[mark] = -1;
+        if (lastMarks[slot] < 0) {
+            firstMarks[slot] = mark;
+        } else {
+            nextMarks[lastMarks[slot]] = mark;
+        }
+        lastMarks[slot] = mark;
+    }
+
+    /**
+     * Returns the mark chain of a segment to the free nodes
+     *
+     * @param slot slot of segment
+     */
+    private void freeMarks(int slot) {
+        if (firstMarks[slot] >= 0) {
+            nextMarks[lastMarks[slot]] = freeMarks;
+            freeMarks = firstMarks[slot];
+            firstMarks[slot] = -1;
+            lastMarks[slot] = -1;
+        }
+    }
+
+    /**
+     * Maps a segment index to its slot in the backing arrays
+     *
+     * @param k segment index, 0 is the oldest
+     * @return slot
+     */
+    private int slot(int k) {
+        int slot = start + k;
+        return slot >= colors.length ? slot - colors.length : slot;
+    }
+
+}
@@ -0,0 +1,315 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        TrailLayer.java
+ * @Description Canvas that draws walker trails
+ */
+
+import java.util.ArrayList;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Canvas that draws walker trails
+ *
+ * Each segment is drawn once onto the canvas as a line with a marker at its
+ * starting point, so the number of scene nodes stays constant however long
+ * the walk runs. Segments are kept in a TrailBuffer to redraw the canvas when
+ * it is resized or when capped segments are evicted. Consecutive moves of a
+ * walker that continue in the same direction are merged into one buffered
+ * segment, so long runs keep far fewer segments to store and stroke, while
+ * the marks of the merged moves keep a marker at the start of every move.
+ *
+ * Moves are only buffered as they come in. flush() draws the segments added
+ * since the last flush, and of each walker's open segment drawn before only
+ * the part added since, so the canvas always shows exactly the buffered
+ * segments and a redraw looks the same as the trail drawn live. Merged
+ * segments of a tolerance above 0 are not collinear with their moves, so
+ * with such a tolerance flush() closes every open segment instead and only
+ * moves buffered between two flushes are merged.
+ */
+public class TrailLayer extends Canvas {
+
+    // Data fields
+
+    private final double markerRadius = 3; // radius of move markers
+    private final TrailBuffer buffer; // segments drawn so far
+    private final ArrayList<Color> palette = new ArrayList<Color>(); // colors by index
+    private int evictedSinceRedraw = 0; // segments evicted but still on canvas
+    private long drawn = 0; // number of segments ever added that are drawn
+    private long[] tailRuns = new long[0]; // sequence number of each walker's open segment when drawn, -1 for none
+    private float[] tailX = new float[0]; // drawn ending x-coordinate of each walker's open segment
+    private float[] tailY = new float[0]; // drawn ending y-coordinate of each walker's open segment
+    private int[] tailMarks = new int[0]; // last drawn mark of each walker's open segment, -1 for none
+
+    // Constructors
+
+    /**
+     * No-arg constructor, keeps every segment
+     */
+    TrailLayer() {
+        this(0);
+    }
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param capacity maximum number of segments kept, 0 for unbounded
+     */
+    TrailLayer(int capacity) {
+        buffer = new TrailBuffer(capacity);
+        widthProperty().addListener(ov -> redraw());
+        heightProperty().addListener(ov -> redraw());
+    }
+
+    // Getters and setters
+
+    /**
+     * Setter for capacity
+     *
+     * @param capacity maximum number of segments kept, 0 for unbounded
+     */
+    public void setCapacity(int capacity) {
+        buffer.setCapacity(capacity);
+        redraw();
+    }
+
+    /**
+     * Setter for tolerance of trail simplification
+     *
+     * @param tolerance maximum distance in pixels of merged move ends from their
+     *                  segment, 0 merges only collinear moves, negative never merges
+     */
+    public void setTolerance(double tolerance) {
+        buffer.setTolerance(tolerance);
+    }
+
+    /**
+     * Getter for buffer
+     *
+     * @return segments drawn so far
+     */
+    public TrailBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns a color of the palette
+     *
+     * @param index palette index, as returned by TrailBuffer.getColor()
+     * @return color
+     */
+    public Color getPaletteColor(int index) {
+        return palette.get(index);
+    }
+
+    // Other methods
+
+    /**
+     * Adds the move of a walker, drawn by the next flush()
+     *
+     * @param walker walker id, moves continuing the walker's last one are merged with it
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param color  color of segment
+     */
+    public void addSegment(int walker, double x0, double y0, double x1, double y1, Color color) {
+        if (buffer.add(walker, x0, y0, x1, y1, colorIndex(color))) {
+            evicted();
+        }
+    }
+
+    /**
+     * Adds a segment, drawn by the next flush()
+     *
+     * @param x0    starting x-coordinate
+     * @param y0    starting y-coordinate
+     * @param x1    ending x-coordinate
+     * @param y1    ending y-coordinate
+     * @param color color of segment
+     */
+    public void addSegment(double x0, double y0, double x1, double y1, Color color) {
+        if (buffer.add(x0, y0, x1, y1, colorIndex(color))) {
+            evicted();
+        }
+    }
+
+    /**
+     * Buffers the move of a walker without drawing it, for many moves followed by redraw()
+     *
+     * @param walker walker id, moves continuing the walker's last one are merged with it
+     * @param x0     starting x-coordinate
+     * @param y0     starting y-coordinate
+     * @param x1     ending x-coordinate
+     * @param y1     ending y-coordinate
+     * @param color  color of segment
+     */
+    public void record(int walker, double x0, double y0, double x1, double y1, Color color) {
+        buffer.add(walker, x0, y0, x1, y1, colorIndex(color));
+    }
+
+    /**
+     * Buffers a segment without drawing it, for many segments followed by redraw()
+     *
+     * @param x0    starting x-coordinate
+     * @param y0    starting y-coordinate
+     * @param x1    ending x-coordinate
+     * @param y1    ending y-coordinate
+     * @param color color of segment
+     */
+    public void record(double x0, double y0, double x1, double y1, Color color) {
+        buffer.add(x0, y0, x1, y1, colorIndex(color));
+    }
+
+    /**
+     * Removes every segment and clears the canvas
+     */
+    public void clear() {
+        buffer.clear();
+        evictedSinceRedraw = 0;
+        drawn = buffer.getAdded();
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    /**
+     * Draws the segments added since the last flush or redraw, and the moves
+     * merged since into open segments drawn before
+     */
+    public void flush() {
+        long first = buffer.getAdded() - buffer.size();
+        int from = (int) Math.max(drawn - first, 0);
+        GraphicsContext gc = getGraphicsContext2D();
+        for (int walker = 0; walker < Math.min(buffer.getWalkerCount(), tailRuns.length); walker++) {
+            int k = buffer.getOpenSegment(walker);
+            if (k >= 0 && k < from && tailRuns[walker] == first + k
+                    && (buffer.getX1(k) != tailX[walker] || buffer.getY1(k) != tailY[walker])) {
+                drawTail(gc, walker, k);
+            }
+        }
+        drawSegments(from);
+    }
+
+    /**
+     * Clears the canvas and redraws every buffered segment
+     */
+    public void redraw() {
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+        drawSegments(0);
+        evictedSinceRedraw = 0;
+    }
+
+    /**
+     * Draws buffered segments from an index on and notes how far every
+     * walker's open segment is drawn
+     *
+     * @param from index of first segment to draw, 0 is the oldest
+     */
+    private void drawSegments(int from) {
+        GraphicsContext gc = getGraphicsContext2D();
+        for (int k = from; k < buffer.size(); k++) {
+            drawSegment(gc, k);
+        }
+        drawn = buffer.getAdded();
+        if (buffer.getTolerance() != 0) {
+            // a later move would bend the drawn segment, so start a new one
+            buffer.closeRuns();
+        }
+
+        int walkers = buffer.getWalkerCount();
+        if (tailRuns.length < walkers) {
+            tailRuns = new long[walkers];
+            tailX = new float[walkers];
+            tailY = new float[walkers];
+            tailMarks = new int[walkers];
+        }
+        long first = buffer.getAdded() - buffer.size();
+        for (int walker = 0; walker < tailRuns.length; walker++) {
+            int k = walker < walkers ? buffer.getOpenSegment(walker) : -1;
+            tailRuns[walker] = k < 0 ? -1 : first + k;
+            if (k >= 0) {
+                tailX[walker] = buffer.getX1(k);
+                tailY[walker] = buffer.getY1(k);
+                tailMarks[walker] = buffer.getLastMark(k);
+            }
+        }
+    }
+
+    /**
+     * Counts an evicted segment, redrawing once enough have piled up
+     */
+    private void evicted() {
+        // evicted segments are only wiped by a full redraw, so batch them up
+        // to keep the cost per segment constant
+        evictedSinceRedraw++;
+        if (evictedSinceRedraw >= Math.max(1, buffer.getCapacity() / 4)) {
+            redraw();
+        }
+    }
+
+    /**
+     * Returns the palette index of a color, adding it if new
+     *
+     * @param color color of segment
+     * @return palette index
+     */
+    private int colorIndex(Color color) {
+        int index = palette.indexOf(color);
+        if (index < 0) {
+            index = palette.size();
+            palette.add(color);
+        }
+        return index;
+    }
+
+    /**
+     * Draws a single buffered segment, with a marker at its start and at the
+     * start of every move merged into it
+     *
+     * @param gc graphics context of canvas
+     * @param k  segment index, 0 is the oldest
+     */
+    private void drawSegment(GraphicsContext gc, int k) {
+        Color color = palette.get(buffer.getColor(k));
+        gc.setFill(color);
+        gc.setStroke(color);
+        drawMarker(gc, buffer.getX0(k), buffer.getY0(k));
+        gc.strokeLine(buffer.getX0(k), buffer.getY0(k), buffer.getX1(k), buffer.getY1(k));
+        for (int mark = buffer.getFirstMark(k); mark >= 0; mark = buffer.getNextMark(mark)) {
+            drawMarker(gc, buffer.getMarkX(mark), buffer.getMarkY(mark));
+        }
+    }
+
+    /**
+     * Draws the part of a walker's open segment merged since it was last drawn
+     *
+     * @param gc     graphics context of canvas
+     * @param walker walker id
+     * @param k      segment index of the walker's open segment
+     */
+    private void drawTail(GraphicsContext gc, int walker, int k) {
+        Color color = palette.get(buffer.getColor(k));
+        gc.setFill(color);
+        gc.setStroke(color);
+        gc.strokeLine(tailX[walker], tailY[walker], buffer.getX1(k), buffer.getY1(k));
+        int mark = tailMarks[walker] < 0 ? buffer.getFirstMark(k) : buffer.getNextMark(tailMarks[walker]);
+        for (; mark >= 0; mark = buffer.getNextMark(mark)) {
+            drawMarker(gc, buffer.getMarkX(mark), buffer.getMarkY(mark));
+        }
+    }
+
+    /**
+     * Draws a move marker in the current fill color
+     *
+     * @param gc graphics context of canvas
+     * @param x  x-coordinate of marker center
+     * @param y  y-coordinate of marker center
+     */
+    private void drawMarker(GraphicsContext gc, double x, double y) {
+        gc.fillOval(x - markerRadius, y - markerRadius, 2 * markerRadius, 2 * markerRadius);
+    }
+
+}
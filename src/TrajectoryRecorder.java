@@ -0,0 +1,180 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        TrajectoryRecorder.java
+ * @Description Appends walker trajectories to a compact binary log
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends walker trajectories to a compact binary log
+ *
+ * The log is a fixed header followed by fixed-width records of walker id,
+ * tick, x, y and event, written in tick order through a direct buffer so a
+ * run can be replayed later by TrajectoryReplay without redoing the
+ * simulation.
+ */
+public class TrajectoryRecorder implements AutoCloseable {
+
+    // Constants
+
+    public static final int MAGIC = 0x52575452; // "RWTR"
+    public static final int VERSION = 1; // format version
+    public static final int HEADER_SIZE = 64; // bytes before the first record
+    public static final int RECORD_SIZE = 17; // id, tick, x, y and event
+
+    public static final byte PLACE = 0; // walker placed, tick 0
+    public static final byte MOVE = 1; // walker moved in a straight line
+    public static final byte JUMP = 2; // walker moved without a trail, re-entering on wrap
+    public static final byte ACTIVATE = 3; // walker activated
+
+    // Data fields
+
+    private final FileChannel channel; // log file
+    private final ByteBuffer buffer; // records not yet written
+    private int activationsRecorded = 0; // number of engine activations recorded
+    private long records = 0; // number of records written
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor, creates the log and records the starting state
+     *
+     * @param path   log file, replaced if it exists
+     * @param engine engine to record
+     * @throws IOException if the log cannot be written
+     */
+    TrajectoryRecorder(Path path, RandomWalkEngine engine) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(engine.getCount());
+        header.putInt(engine.getPolicy().ordinal());
+        header.putDouble(engine.getWidth());
+        header.putDouble(engine.getHeight());
+        header.putLong(engine.getSeed());
+        header.position(0);
+        channel.write(header);
+
+        for (int i = 0; i < engine.getCount(); i++) {
+            write(i, 0, engine.getX(i), engine.getY(i), PLACE);
+        }
+        recordActivations(engine);
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for records
+     *
+     * @return number of records written
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    // Other methods
+
+    /**
+     * Records the moves and activations of the last engine tick
+     *
+     * @param engine engine to record
+     * @throws IOException if the log cannot be written
+     */
+    public void recordTick(RandomWalkEngine engine) throws IOException {
+        int tick = engine.getTick();
+        for (int i = 0; i < engine.getCount(); i++) {
+            if (!engine.hasMoved(i)) {
+                continue;
+            }
+            double x = engine.getX(i);
+            double y = engine.getY(i);
+            double moveX = engine.getMoveX(i);
+            double moveY = engine.getMoveY(i);
+            double startX = engine.getLastX(i);
+            double startY = engine.getLastY(i);
+            if (engine.getPolicy() == BoundaryPolicy.WRAP && (x != startX + moveX || y != startY + moveY)) {
+                // leave through one edge, then re-enter from the opposite one
+                write(i, tick, startX + moveX, startY + moveY, MOVE);
+                write(i, tick, x - moveX, y - moveY, JUMP);
+            }
+            // a reflected move is replayed as the parts between its bounces
+            int bounces = engine.getBounceCount(i);
+            for (int k = 0; k < bounces; k++) {
+                write(i, tick, engine.getBounceX(i, k), engine.getBounceY(i, k), MOVE);
+            }
+            write(i, tick, x, y, MOVE);
+        }
+        recordActivations(engine);
+    }
+
+    /**
+     * Writes buffered records and closes the log
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * Records activations not yet recorded
+     *
+     * @param engine engine to record
+     * @throws IOException if the log cannot be written
+     */
+    private void recordActivations(RandomWalkEngine engine) throws IOException {
+        while (activationsRecorded < engine.getActivationCount()) {
+            int id = engine.getActivation(activationsRecorded++);
+            write(id, engine.getActivationTick(id), engine.getX(id), engine.getY(id), ACTIVATE);
+        }
+    }
+
+    /**
+     * Appends a record, writing the buffer out when full
+     *
+     * @param id    walker id
+     * @param tick  tick of event
+     * @param x     x-coordinate
+     * @param y     y-coordinate
+     * @param event event type
+     * @throws IOException if the log cannot be written
+     */
+    private void write(int id, int tick, double x, double y, byte event) throws IOException {
+        if (buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        buffer.putInt(id);
+        buffer.putInt(tick);
+        buffer.putFloat((float) x);
+        buffer.putFloat((float) y);
+        buffer.put(event);
+        records++;
+    }
+
+    /**
+     * Writes buffered records to the log
+     *
+     * @throws IOException if the log cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        TrajectoryReplay.java
+ * @Description Memory-mapped reader of trajectory logs
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped reader of trajectory logs
+ *
+ * Maps a log written by TrajectoryRecorder instead of reading it, so opening
+ * even a very long run is instant and records stay off the heap. Records are
+ * in tick order, so the first record of any tick is found by binary search.
+ */
+public class TrajectoryReplay implements AutoCloseable {
+
+    // Constants
+
+    private static final int RECORDS_PER_REGION = (1 << 30) / TrajectoryRecorder.RECORD_SIZE; // per mapping
+
+    // Data fields
+
+    private final FileChannel channel; // log file
+    private final MappedByteBuffer[] regions; // mapped records, split to stay under 2 GB each
+    private final long records; // number of records
+    private final int walkerCount; // number of walkers
+    private final BoundaryPolicy policy; // edge handling of recorded run
+    private final double width; // width of walk area
+    private final double height; // height of walk area
+    private final long seed; // master seed of recorded run
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param path log file
+     * @throws IOException if the log cannot be read or is not a trajectory log
+     */
+    TrajectoryReplay(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryRecorder.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // read whole header
+        }
+        header.flip();
+        if (header.remaining() < TrajectoryRecorder.HEADER_SIZE || header.getInt() != TrajectoryRecorder.MAGIC
+                || header.getInt() != TrajectoryRecorder.VERSION) {
+            channel.close();
+            throw new IOException("Not a trajectory log: " + path);
+        }
+        walkerCount = header.getInt();
+        policy = BoundaryPolicy.values()[header.getInt()];
+        width = header.getDouble();
+        height = header.getDouble();
+        seed = header.getLong();
+
+        records = (channel.size() - TrajectoryRecorder.HEADER_SIZE) / TrajectoryRecorder.RECORD_SIZE;
+        regions = new MappedByteBuffer[(int) ((records + RECORDS_PER_REGION - 1) / RECORDS_PER_REGION)];
+        for (int r = 0; r < regions.length; r++) {
+            long first = (long) r * RECORDS_PER_REGION;
+            long count = Math.min(RECORDS_PER_REGION, records - first);
+            regions[r] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    TrajectoryRecorder.HEADER_SIZE + first * TrajectoryRecorder.RECORD_SIZE,
+                    count * TrajectoryRecorder.RECORD_SIZE);
+            regions[r].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for records
+     *
+     * @return number of records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Getter for walkerCount
+     *
+     * @return number of walkers
+     */
+    public int getWalkerCount() {
+        return walkerCount;
+    }
+
+    /**
+     * Getter for policy
+     *
+     * @return edge handling of recorded run
+     */
+    public BoundaryPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Getter for width
+     *
+     * @return width of walk area
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for height
+     *
+     * @return height of walk area
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter for seed
+     *
+     * @return master seed of recorded run
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the last tick in the log
+     *
+     * @return last tick, 0 if the log is empty
+     */
+    public int getLastTick() {
+        return records == 0 ? 0 : getTick(records - 1);
+    }
+
+    /**
+     * Returns the walker id of a record
+     *
+     * @param k record index
+     * @return walker id
+     */
+    public int getId(long k) {
+        return region(k).getInt(offset(k));
+    }
+
+    /**
+     * Returns the tick of a record
+     *
+     * @param k record index
+     * @return tick
+     */
+    public int getTick(long k) {
+        return region(k).getInt(offset(k) + 4);
+    }
+
+    /**
+     * Returns the x-coordinate of a record
+     *
+     * @param k record index
+     * @return x-coordinate
+     */
+    public float getX(long k) {
+        return region(k).getFloat(offset(k) + 8);
+    }
+
+    /**
+     * Returns the y-coordinate of a record
+     *
+     * @param k record index
+     * @return y-coordinate
+     */
+    public float getY(long k) {
+        return region(k).getFloat(offset(k) + 12);
+    }
+
+    /**
+     * Returns the event type of a record
+     *
+     * @param k record index
+     * @return event type, one of the TrajectoryRecorder event constants
+     */
+    public byte getEvent(long k) {
+        return region(k).get(offset(k) + 16);
+    }
+
+    // Other methods
+
+    /**
+     * Finds the first record of a tick or later by binary search
+     *
+     * @param tick tick to seek to
+     * @return index of first record with a tick at least the given one,
+     *         the number of records if there is none
+     */
+    public long seek(int tick) {
+        long low = 0;
+        long high = records;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getTick(mid) < tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Closes the log
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the mapped region holding a record
+     *
+     * @param k record index
+     * @return mapped region
+     */
+    private MappedByteBuffer region(long k) {
+        return regions[(int) (k / RECORDS_PER_REGION)];
+    }
+
+    /**
+     * Returns the offset of a record within its mapped region
+     *
+     * @param k record index
+     * @return byte offset
+     */
+    private int offset(long k) {
+        return (int) (k % RECORDS_PER_REGION) * TrajectoryRecorder.RECORD_SIZE;
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        VisitationBitmap.java
+ * @Description Off-heap bitmap of visited lattice cells with running statistics
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Off-heap bitmap of visited lattice cells with running statistics
+ *
+ * Holds one bit per cell of a fixed rectangular domain in a direct buffer, so
+ * even a domain of 10^8 cells costs 12.5 MB outside the Java heap and adds
+ * nothing for the garbage collector to scan. Every visit updates the number of
+ * distinct cells and the bounding box of the walk in constant time, so the
+ * statistics can be read at any moment without a scan.
+ */
+public class VisitationBitmap {
+
+    // Data fields
+
+    private final long columns; // cells per row
+    private final long rows; // rows of cells
+    private final ByteBuffer bits; // one bit per cell, row by row
+    private long distinct = 0; // number of distinct cells visited
+    private long visits = 0; // number of visits, repeats included
+    private long minX = Long.MAX_VALUE; // smallest column visited
+    private long minY = Long.MAX_VALUE; // smallest row visited
+    private long maxX = Long.MIN_VALUE; // largest column visited
+    private long maxY = Long.MIN_VALUE; // largest row visited
+
+    // Constructors
+
+    /**
+     * Multi-arg constructor
+     *
+     * @param columns cells per row
+     * @param rows    rows of cells
+     * @throws IllegalArgumentException if the domain does not fit a single direct buffer
+     */
+    VisitationBitmap(long columns, long rows) {
+        long words = (Math.max(columns, 1) * Math.max(rows, 1) + 63) / 64;
+        if (words > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Domain too large: " + columns + "x" + rows);
+        }
+        this.columns = Math.max(columns, 1);
+        this.rows = Math.max(rows, 1);
+        bits = ByteBuffer.allocateDirect((int) words * 8).order(ByteOrder.nativeOrder());
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for columns
+     *
+     * @return cells per row
+     */
+    public long getColumns() {
+        return columns;
+    }
+
+    /**
+     * Getter for rows
+     *
+     * @return rows of cells
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for distinct
+     *
+     * @return number of distinct cells visited
+     */
+    public long getDistinct() {
+        return distinct;
+    }
+
+    /**
+     * Getter for visits
+     *
+     * @return number of visits, repeats included
+     */
+    public long getVisits() {
+        return visits;
+    }
+
+    /**
+     * Returns the share of the domain visited
+     *
+     * @return distinct cells visited over cells in the domain, from 0 to 1
+     */
+    public double getCoverage() {
+        return (double) distinct / (columns * rows);
+    }
+
+    /**
+     * Returns the width of the walk's bounding box
+     *
+     * @return number of columns spanned, 0 before the first visit
+     */
+    public long getRangeX() {
+        return visits == 0 ? 0 : maxX - minX + 1;
+    }
+
+    /**
+     * Returns the height of the walk's bounding box
+     *
+     * @return number of rows spanned, 0 before the first visit
+     */
+    public long getRangeY() {
+        return visits == 0 ? 0 : maxY - minY + 1;
+    }
+
+    // Other methods
+
+    /**
+     * Marks a cell visited, cells outside the domain only widen the range
+     *
+     * @param cx column of cell
+     * @param cy row of cell
+     * @return true if the cell is in the domain and had not been visited before
+     */
+    public boolean visit(long cx, long cy) {
+        visits++;
+        minX = Math.min(minX, cx);
+        minY = Math.min(minY, cy);
+        maxX = Math.max(maxX, cx);
+        maxY = Math.max(maxY, cy);
+        if (cx < 0 || cy < 0 || cx >= columns || cy >= rows) {
+            return false;
+        }
+        long cell = cy * columns + cx;
+        int index = (int) (cell >>> 6) * 8;
+        long word = bits.getLong(index);
+        long bit = 1L << cell;
+        if ((word & bit) != 0) {
+            return false;
+        }
+        bits.putLong(index, word | bit);
+        distinct++;
+        return true;
+    }
+
+    /**
+     * Returns whether a cell has been visited
+     *
+     * @param cx column of cell
+     * @param cy row of cell
+     * @return true if the cell is in the domain and has been visited
+     */
+    public boolean isVisited(long cx, long cy) {
+        if (cx < 0 || cy < 0 || cx >= columns || cy >= rows) {
+            return false;
+        }
+        long cell = cy * columns + cx;
+        return (bits.getLong((int) (cell >>> 6) * 8) & (1L << cell)) != 0;
+    }
+
+    /**
+     * Unmarks every cell and resets the statistics, keeping the buffer
+     */
+    public void clear() {
+        for (int index = 0; index < bits.capacity(); index += 8) {
+            bits.putLong(index, 0);
+        }
+        distinct = 0;
+        visits = 0;
+        minX = Long.MAX_VALUE;
+        minY = Long.MAX_VALUE;
+        maxX = Long.MIN_VALUE;
+        maxY = Long.MIN_VALUE;
+    }
+
+}
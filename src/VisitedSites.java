@@ -0,0 +1,244 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        VisitedSites.java
+ * @Description Sparse set of visited lattice sites
+ */
+
+import java.util.Arrays;
+
+/**
+ * Sparse set of visited lattice sites
+ *
+ * Splits the unbounded integer lattice into square tiles of 64 by 64 sites.
+ * Each tile is a bitmap of 64 longs, one per row, created the first time a
+ * site in it is visited and found through an open-addressing hash table keyed
+ * by the packed tile coordinates. Memory grows with the tiles actually
+ * visited, and the tiles overlapping a viewport are found without touching
+ * the rest.
+ */
+public class VisitedSites {
+
+    // Constants
+
+    public static final int TILE_SHIFT = 6; // log2 of tile side in sites
+    public static final int TILE_SIZE = 1 << TILE_SHIFT; // tile side in sites
+    private static final int TILE_MASK = TILE_SIZE - 1; // site offset within tile
+    private static final long EMPTY = Long.MIN_VALUE; // key of an empty hash slot
+
+    // Data fields
+
+    private long[] keys; // packed tile coordinates of each hash slot
+    private int[] slots; // tile index of each hash slot
+    private long[] rows; // TILE_SIZE row bitmaps of each tile
+    private int[] tileX; // x-coordinate of each tile
+    private int[] tileY; // y-coordinate of each tile
+    private int[] tileSites; // number of visited sites in each tile
+    private int tiles = 0; // number of tiles
+    private long size = 0; // number of visited sites
+    private int lastKeyTile = -1; // tile of the previous lookup, sites are visited in runs
+    private long lastKey = EMPTY; // key of the previous lookup
+
+    // Constructors
+
+    /**
+     * No-arg constructor
+     */
+    VisitedSites() {
+        keys = new long[64];
+        slots = new int[64];
+        Arrays.fill(keys, EMPTY);
+        rows = new long[16 * TILE_SIZE];
+        tileX = new int[16];
+        tileY = new int[16];
+        tileSites = new int[16];
+    }
+
+    // Getters and setters
+
+    /**
+     * Getter for size
+     *
+     * @return number of visited sites
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Getter for tiles
+     *
+     * @return number of tiles holding visited sites
+     */
+    public int getTileCount() {
+        return tiles;
+    }
+
+    /**
+     * Returns the x-coordinate of a tile
+     *
+     * @param tile tile index
+     * @return x-coordinate in tiles
+     */
+    public int getTileX(int tile) {
+        return tileX[tile];
+    }
+
+    /**
+     * Returns the y-coordinate of a tile
+     *
+     * @param tile tile index
+     * @return y-coordinate in tiles
+     */
+    public int getTileY(int tile) {
+        return tileY[tile];
+    }
+
+    /**
+     * Returns the number of visited sites in a tile
+     *
+     * @param tile tile index
+     * @return number of visited sites
+     */
+    public int getTileSites(int tile) {
+        return tileSites[tile];
+    }
+
+    /**
+     * Returns a row bitmap of a tile, bit k is the site at column k
+     *
+     * @param tile tile index
+     * @param row  row within tile, from 0 to TILE_SIZE - 1
+     * @return row bitmap
+     */
+    public long getRow(int tile, int row) {
+        return rows[tile * TILE_SIZE + row];
+    }
+
+    // Other methods
+
+    /**
+     * Marks a site visited
+     *
+     * @param sx x-coordinate of site
+     * @param sy y-coordinate of site
+     * @return true if the site had not been visited before
+     */
+    public boolean visit(long sx, long sy) {
+        int tile = tile((int) (sx >> TILE_SHIFT), (int) (sy >> TILE_SHIFT), true);
+        int row = tile * TILE_SIZE + (int) (sy & TILE_MASK);
+        long bit = 1L << (sx & TILE_MASK);
+        if ((rows[row] & bit) != 0) {
+            return false;
+        }
+        rows[row] |= bit;
+        tileSites[tile]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns whether a site has been visited
+     *
+     * @param sx x-coordinate of site
+     * @param sy y-coordinate of site
+     * @return true if visited
+     */
+    public boolean isVisited(long sx, long sy) {
+        int tile = findTile((int) (sx >> TILE_SHIFT), (int) (sy >> TILE_SHIFT));
+        return tile >= 0 && (rows[tile * TILE_SIZE + (int) (sy & TILE_MASK)] & (1L << (sx & TILE_MASK))) != 0;
+    }
+
+    /**
+     * Finds a tile by its coordinates
+     *
+     * @param tx x-coordinate in tiles
+     * @param ty y-coordinate in tiles
+     * @return tile index, -1 if no site in it has been visited
+     */
+    public int findTile(int tx, int ty) {
+        return tile(tx, ty, false);
+    }
+
+    /**
+     * Removes every visited site, keeping the allocated storage
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(rows, 0, tiles * TILE_SIZE, 0);
+        tiles = 0;
+        size = 0;
+        lastKeyTile = -1;
+        lastKey = EMPTY;
+    }
+
+    /**
+     * Looks up a tile, creating it if asked
+     *
+     * @param tx     x-coordinate in tiles
+     * @param ty     y-coordinate in tiles
+     * @param create whether to create a missing tile
+     * @return tile index, -1 if missing and not created
+     */
+    private int tile(int tx, int ty, boolean create) {
+        long key = ((long) tx << 32) | (ty & 0xffffffffL);
+        if (key == lastKey) {
+            return lastKeyTile;
+        }
+        int mask = keys.length - 1;
+        int h = (int) (SplitMix64.mix64(key) & mask);
+        while (keys[h] != EMPTY) {
+            if (keys[h] == key) {
+                lastKey = key;
+                lastKeyTile = slots[h];
+                return lastKeyTile;
+            }
+            h = (h + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+
+        if (tiles == tileX.length) {
+            int capacity = tiles * 2;
+            rows = Arrays.copyOf(rows, capacity * TILE_SIZE);
+            tileX = Arrays.copyOf(tileX, capacity);
+            tileY = Arrays.copyOf(tileY, capacity);
+            tileSites = Arrays.copyOf(tileSites, capacity);
+        }
+        int tile = tiles++;
+        tileX[tile] = tx;
+        tileY[tile] = ty;
+        tileSites[tile] = 0;
+        keys[h] = key;
+        slots[h] = tile;
+        if (2 * tiles > keys.length) {
+            rehash(keys.length * 2);
+        }
+        lastKey = key;
+        lastKeyTile = tile;
+        return tile;
+    }
+
+    /**
+     * Rebuilds the hash table with more slots, keeping load under one half
+     *
+     * @param length number of slots, a power of two
+     */
+    private void rehash(int length) {
+        keys = new long[length];
+        slots = new int[length];
+        Arrays.fill(keys, EMPTY);
+        int mask = length - 1;
+        for (int tile = 0; tile < tiles; tile++) {
+            long key = ((long) tileX[tile] << 32) | (tileY[tile] & 0xffffffffL);
+            int h = (int) (SplitMix64.mix64(key) & mask);
+            while (keys[h] != EMPTY) {
+                h = (h + 1) & mask;
+            }
+            keys[h] = key;
+            slots[h] = tile;
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        WalkAnalytics.java
+ * @Description Live statistics of a running walk, computed on a worker thread
+ */
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Live statistics of a running walk, computed on a worker thread
+ *
+ * The stepping thread copies the displacement, total steps and activation
+ * tick of every active walker into a reusable sample at most every
+ * SAMPLE_INTERVAL, and the worker turns the latest sample into a
+ * WalkStatistics for the charts. Samples and statistics each pass through a
+ * SnapshotExchange, so stepping never waits for the worker or the charts and
+ * the charts never wait for either. Samples that arrive faster than the
+ * worker keeps up are skipped, and nothing is allocated once the sample
+ * arrays have grown to the number of active walkers.
+ */
+public class WalkAnalytics {
+
+    // Constants
+
+    public static final long SAMPLE_INTERVAL = 100_000_000L; // nanoseconds between samples
+
+    // Data fields
+
+    private final SnapshotExchange<Sample> samples = new SnapshotExchange<Sample>(
+            new Sample(), new Sample(), new Sample()); // stepping thread to worker
+    private final SnapshotExchange<WalkStatistics> statistics = new SnapshotExchange<WalkStatistics>(
+            new WalkStatistics(), new WalkStatistics(), new WalkStatistics()); // worker to FX thread
+    private final Thread worker; // computes statistics from samples
+
+    private RandomWalkEngine sampled = null; // engine of the last sample
+    private int generation = 0; // walk of the last sample
+    private int sampledTick = -1; // tick of the last sample
+    private long sampledAt = 0; // timestamp of the last sample
+
+    private final double[] historyTicks = new double[WalkStatistics.HISTORY]; // tick of each history point
+    private final double[] history = new double[WalkStatistics.HISTORY]; // mean squared displacement
+    private int historyCount = 0; // number of history points
+    private int historyGeneration = 0; // walk the history belongs to
+
+    // Constructors
+
+    /**
+     * No-arg constructor, starts the worker
+     */
+    WalkAnalytics() {
+        worker = new Thread(this::work, "walk-analytics");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Getters and setters
+
+    /**
+     * Returns the latest statistics, FX thread only
+     *
+     * @return statistics taken by the last update()
+     */
+    public WalkStatistics getStatistics() {
+        return statistics.getFront();
+    }
+
+    // Other methods
+
+    /**
+     * Samples the active walkers if the walk moved on and SAMPLE_INTERVAL has
+     * passed, stepping thread only
+     *
+     * @param engine walk to sample, null to clear the statistics
+     * @param force  whether to sample before SAMPLE_INTERVAL has passed, as when pausing
+     * @return true if a sample was taken
+     */
+    public boolean sample(RandomWalkEngine engine, boolean force) {
+        long now = System.nanoTime();
+        if (engine == sampled) {
+            if (engine == null || engine.getTick() == sampledTick
+                    || !force && now - sampledAt < SAMPLE_INTERVAL) {
+                return false;
+            }
+        } else {
+            // a new walk starts a new history
+            sampled = engine;
+            generation++;
+        }
+        sampledAt = now;
+        sampledTick = engine == null ? -1 : engine.getTick();
+
+        Sample s = samples.getBack();
+        s.generation = generation;
+        s.tick = Math.max(0, sampledTick);
+        s.count = engine == null ? 0 : engine.getActivationCount();
+        s.ensureCapacity(s.count);
+        for (int k = 0; k < s.count; k++) {
+            int id = engine.getActivation(k);
+            s.displacementX[k] = engine.getX(id) - engine.getOriginX(id);
+            s.displacementY[k] = engine.getY(id) - engine.getOriginY(id);
+            s.totalSteps[k] = engine.getTotalSteps(id);
+            s.activationTick[k] = engine.getActivationTick(id);
+        }
+        samples.publish();
+        LockSupport.unpark(worker);
+        return true;
+    }
+
+    /**
+     * Takes the latest statistics if the worker published newer ones, FX
+     * thread only
+     *
+     * @return true if getStatistics() changed
+     */
+    public boolean update() {
+        return statistics.update();
+    }
+
+    /**
+     * Computes statistics from each new sample, sleeping while there is none
+     */
+    private void work() {
+        while (true) {
+            if (!samples.update()) {
+                LockSupport.park(this);
+                continue;
+            }
+            compute(samples.getFront(), statistics.getBack());
+            statistics.publish();
+        }
+    }
+
+    /**
+     * Computes statistics from a sample
+     *
+     * @param s   sample of the active walkers
+     * @param out statistics to fill in
+     */
+    private void compute(Sample s, WalkStatistics out) {
+        out.generation = s.generation;
+        out.tick = s.tick;
+        out.walkers = s.count;
+
+        // mean squared displacement, appended to the history of this walk
+        double sum = 0;
+        double max = 0;
+        for (int k = 0; k < s.count; k++) {
+            double squared = s.displacementX[k] * s.displacementX[k] + s.displacementY[k] * s.displacementY[k];
+            sum += squared;
+            max = Math.max(max, squared);
+        }
+        if (s.generation != historyGeneration) {
+            historyGeneration = s.generation;
+            historyCount = 0;
+        }
+        if (s.count > 0 && (historyCount == 0 || s.tick > historyTicks[historyCount - 1])) {
+            if (historyCount == WalkStatistics.HISTORY) {
+                // full, keep every other point so the history spans the whole walk
+                for (int k = 0; k < WalkStatistics.HISTORY / 2; k++) {
+                    historyTicks[k] = historyTicks[2 * k + 1];
+                    history[k] = history[2 * k + 1];
+                }
+                historyCount = WalkStatistics.HISTORY / 2;
+            }
+            historyTicks[historyCount] = s.tick;
+            history[historyCount++] = sum / s.count;
+        }
+        System.arraycopy(historyTicks, 0, out.msdTicks, 0, historyCount);
+        System.arraycopy(history, 0, out.msd, 0, historyCount);
+        out.msdCount = historyCount;
+
+        // displacement histogram up to the farthest walker
+        double farthest = Math.sqrt(max);
+        out.binWidth = farthest > 0 ? farthest / WalkStatistics.HISTOGRAM_BINS : 1;
+        for (int b = 0; b < WalkStatistics.HISTOGRAM_BINS; b++) {
+            out.histogram[b] = 0;
+        }
+        for (int k = 0; k < s.count; k++) {
+            double distance = Math.hypot(s.displacementX[k], s.displacementY[k]);
+            out.histogram[Math.min(WalkStatistics.HISTOGRAM_BINS - 1, (int) (distance / out.binWidth))]++;
+        }
+
+        // total steps of each walker in order of activation, grouped when
+        // there are more walkers than bars
+        out.walkersPerBar = Math.max(1, (s.count + WalkStatistics.STEP_BARS - 1) / WalkStatistics.STEP_BARS);
+        out.barCount = (s.count + out.walkersPerBar - 1) / out.walkersPerBar;
+        for (int b = 0; b < out.barCount; b++) {
+            int first = b * out.walkersPerBar;
+            int last = Math.min(s.count, first + out.walkersPerBar);
+            long steps = 0;
+            for (int k = first; k < last; k++) {
+                steps += s.totalSteps[k];
+            }
+            out.stepBars[b] = (double) steps / (last - first);
+        }
+
+        // activations so far against tick, activation ticks never decrease
+        out.timelineCount = Math.min(s.count, WalkStatistics.TIMELINE);
+        for (int p = 0; p < out.timelineCount; p++) {
+            int k = (int) ((long) (p + 1) * s.count / out.timelineCount) - 1;
+            out.timelineTicks[p] = s.activationTick[k];
+            out.timelineCounts[p] = k + 1;
+        }
+    }
+
+    /**
+     * Copy of the active walkers at one tick, in order of activation
+     */
+    static class Sample {
+
+        int generation; // walk the sample belongs to
+        int tick; // tick of the sample
+        int count; // number of active walkers
+        double[] displacementX = new double[0]; // x-distance of each walker from where it started
+        double[] displacementY = new double[0]; // y-distance of each walker from where it started
+        int[] totalSteps = new int[0]; // total steps of each walker
+        int[] activationTick = new int[0]; // tick each walker was activated on
+
+        /**
+         * Grows the arrays to hold a number of walkers, doubling so growth is rare
+         *
+         * @param capacity number of walkers
+         */
+        void ensureCapacity(int capacity) {
+            if (capacity <= totalSteps.length) {
+                return;
+            }
+            int size = Math.max(capacity, 2 * totalSteps.length);
+            displacementX = new double[size];
+            displacementY = new double[size];
+            totalSteps = new int[size];
+            activationTick = new int[size];
+        }
+
+    }
+
+}
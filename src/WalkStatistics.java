@@ -0,0 +1,53 @@
+/**
+ * @Author      agent
+ * @Created     Sun Oct 18 2026
+ * @File        WalkStatistics.java
+ * @Description Chart data computed from a sample of a running walk
+ */
+
+/**
+ * Chart data computed from a sample of a running walk
+ *
+ * Filled in by WalkAnalytics on its own thread and handed to the FX thread
+ * through a SnapshotExchange, so every array has a fixed size and is reused
+ * from one sample to the next.
+ */
+public class WalkStatistics {
+
+    // Constants
+
+    public static final int HISTORY = 512; // most points of the displacement history
+    public static final int HISTOGRAM_BINS = 32; // bins of the displacement histogram
+    public static final int STEP_BARS = 64; // most bars of the total steps chart
+    public static final int TIMELINE = 256; // most points of the activation timeline
+
+    // Data fields
+
+    int generation = 0; // walk the statistics belong to, changes on initialize and reset
+    int tick = 0; // tick of the sample
+    int walkers = 0; // number of active walkers
+
+    double[] msdTicks = new double[HISTORY]; // tick of each history point
+    double[] msd = new double[HISTORY]; // mean squared displacement of active walkers at each point
+    int msdCount = 0; // number of history points
+
+    double[] histogram = new double[HISTOGRAM_BINS]; // active walkers in each displacement bin
+    double binWidth = 0; // displacement covered by a bin
+
+    double[] stepBars = new double[STEP_BARS]; // mean total steps of each group of walkers
+    int barCount = 0; // number of bars
+    int walkersPerBar = 1; // walkers in each group, in order of activation
+
+    double[] timelineTicks = new double[TIMELINE]; // tick of each timeline point
+    double[] timelineCounts = new double[TIMELINE]; // walkers activated by that tick
+    int timelineCount = 0; // number of timeline points
+
+    // Constructors
+
+    /**
+     * No-arg constructor, WalkAnalytics fills in the fields
+     */
+    WalkStatistics() {
+    }
+
+}